@@ -0,0 +1,272 @@
+package io.github.semanticsearch.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Broadcasts near-cache invalidations to every node over a Redis pub/sub channel.
+ *
+ * <p>Evictions are queued and coalesced per cache, then published as one message per flush
+ * interval. A cache cleared within the interval swallows its pending key evictions, and so does a
+ * cache with more than {@code maxKeysPerCache} pending keys. Each published batch advances a
+ * per-cache epoch counter in Redis and carries the new epoch. A node applies its own messages
+ * only to advance its epoch, since it already updated its near-cache when it wrote.
+ *
+ * <p>Pub/sub delivery is at most once, so every node tracks the last epoch it applied per cache.
+ * A message that skips an epoch means one was lost, and the node clears that near-cache. The node
+ * also polls the epoch counters periodically. If it is still behind the epoch seen on the previous
+ * poll, the node clears as well, which covers messages lost while no newer ones arrive.
+ */
+public class CacheInvalidationBus implements MessageListener, AutoCloseable {
+
+  /** Receives invalidations that must be applied to this node's near-caches. */
+  public interface LocalInvalidation {
+    void evictLocal(String cacheName, Collection<String> keys);
+
+    void clearLocal(String cacheName);
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+  static final String EPOCH_KEY_PREFIX = "cache:epoch:";
+
+  private final String origin = UUID.randomUUID().toString();
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final String channel;
+  private final int maxKeysPerCache;
+  private final Duration flushInterval;
+  private final Duration epochCheckInterval;
+  private final ScheduledExecutorService scheduler;
+
+  private final Map<String, Long> appliedEpochs = new ConcurrentHashMap<>();
+  private final Map<String, Long> polledEpochs = new ConcurrentHashMap<>();
+  private final Object pendingLock = new Object();
+  private Map<String, Set<String>> pendingKeys = new HashMap<>();
+  private Set<String> pendingClears = new LinkedHashSet<>();
+  private volatile LocalInvalidation target;
+
+  public CacheInvalidationBus(
+      RedisTemplate<String, Object> redisTemplate,
+      String channel,
+      Duration flushInterval,
+      Duration epochCheckInterval,
+      int maxKeysPerCache) {
+    this.redisTemplate = redisTemplate;
+    this.channel = channel;
+    this.maxKeysPerCache = maxKeysPerCache;
+    this.flushInterval = flushInterval;
+    this.epochCheckInterval = epochCheckInterval;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "cache-invalidation");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Start the periodic flush and epoch check. Called once the bus is fully constructed, so the
+   * scheduler thread never sees it half-built.
+   */
+  public void start() {
+    scheduler.scheduleWithFixedDelay(
+        this::flushQuietly,
+        flushInterval.toMillis(),
+        flushInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+    scheduler.scheduleWithFixedDelay(
+        this::checkEpochsQuietly,
+        epochCheckInterval.toMillis(),
+        epochCheckInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  /**
+   * Set the near-cache manager that applies incoming invalidations. Call it once the manager is
+   * constructed, since the listener thread may use it at once.
+   */
+  public void bind(LocalInvalidation target) {
+    this.target = target;
+  }
+
+  /**
+   * Start tracking a cache from the epoch Redis currently holds, so earlier invalidations are not
+   * mistaken for lost messages.
+   *
+   * @param cacheName Cache name
+   */
+  public void track(String cacheName) {
+    appliedEpochs.computeIfAbsent(cacheName, this::readEpoch);
+  }
+
+  /** Queue an eviction of one key on every other node. */
+  public void publishEvict(String cacheName, String key) {
+    synchronized (pendingLock) {
+      if (pendingClears.contains(cacheName)) {
+        return;
+      }
+      Set<String> keys = pendingKeys.computeIfAbsent(cacheName, n -> new LinkedHashSet<>());
+      keys.add(key);
+      if (keys.size() > maxKeysPerCache) {
+        pendingKeys.remove(cacheName);
+        pendingClears.add(cacheName);
+      }
+    }
+  }
+
+  /** Queue a full clear of a cache on every other node. */
+  public void publishClear(String cacheName) {
+    synchronized (pendingLock) {
+      pendingKeys.remove(cacheName);
+      pendingClears.add(cacheName);
+    }
+  }
+
+  /** Publish everything queued so far. */
+  public void flush() {
+    Map<String, Set<String>> keys;
+    Set<String> clears;
+    synchronized (pendingLock) {
+      if (pendingKeys.isEmpty() && pendingClears.isEmpty()) {
+        return;
+      }
+      keys = pendingKeys;
+      clears = pendingClears;
+      pendingKeys = new HashMap<>();
+      pendingClears = new LinkedHashSet<>();
+    }
+
+    Map<String, Object> caches = new HashMap<>();
+    for (String cacheName : clears) {
+      caches.put(cacheName, entry(cacheName, true, new ArrayList<>()));
+    }
+    keys.forEach(
+        (cacheName, cacheKeys) ->
+            caches.put(cacheName, entry(cacheName, false, new ArrayList<>(cacheKeys))));
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("origin", origin);
+    payload.put("caches", caches);
+    redisTemplate.convertAndSend(channel, payload);
+    log.debug("Published invalidations for caches {}", caches.keySet());
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+    if (!(body instanceof Map<?, ?> payload
+        && payload.get("caches") instanceof Map<?, ?> caches)) {
+      log.warn("Ignoring malformed cache invalidation message");
+      return;
+    }
+    boolean own = origin.equals(payload.get("origin"));
+    caches.forEach(
+        (cacheName, entry) -> {
+          if (entry instanceof Map<?, ?> fields) {
+            apply(
+                (String) cacheName,
+                ((Number) fields.get("epoch")).longValue(),
+                Boolean.TRUE.equals(fields.get("clear")),
+                (Collection<?>) fields.get("keys"),
+                own);
+          }
+        });
+  }
+
+  /** Compare tracked caches with the epochs in Redis and clear any that missed messages. */
+  public void checkEpochs() {
+    for (String cacheName : appliedEpochs.keySet()) {
+      long remote = readEpoch(cacheName);
+      Long previousPoll = polledEpochs.put(cacheName, remote);
+      if (previousPoll != null) {
+        apply(cacheName, previousPoll, true, List.of(), false);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    flushQuietly();
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Apply a batch stamped with {@code epoch}. Only the next consecutive epoch can be applied key
+   * by key; a gap clears the whole near-cache. The epoch poll passes a clear so that finding this
+   * node behind also clears.
+   */
+  private synchronized void apply(
+      String cacheName, long epoch, boolean clear, Collection<?> keys, boolean own) {
+    LocalInvalidation local = target;
+    Long applied = appliedEpochs.get(cacheName);
+    if (local == null || applied == null || epoch <= applied) {
+      return;
+    }
+    if (epoch != applied + 1) {
+      log.info(
+          "Cache {} missed invalidations up to epoch {}; clearing near-cache", cacheName, epoch);
+      local.clearLocal(cacheName);
+    } else if (clear && !own) {
+      local.clearLocal(cacheName);
+    } else if (!own) {
+      List<String> stringKeys = new ArrayList<>(keys.size());
+      keys.forEach(key -> stringKeys.add(String.valueOf(key)));
+      local.evictLocal(cacheName, stringKeys);
+    }
+    appliedEpochs.put(cacheName, epoch);
+  }
+
+  private Map<String, Object> entry(String cacheName, boolean clear, List<String> keys) {
+    Long epoch = redisTemplate.opsForValue().increment(EPOCH_KEY_PREFIX + cacheName);
+    Map<String, Object> entry = new HashMap<>();
+    entry.put("epoch", epoch != null ? epoch : 0L);
+    entry.put("clear", clear);
+    entry.put("keys", keys);
+    return entry;
+  }
+
+  private long readEpoch(String cacheName) {
+    Object value = redisTemplate.opsForValue().get(EPOCH_KEY_PREFIX + cacheName);
+    if (value instanceof Number number) {
+      return number.longValue();
+    }
+    return value != null ? Long.parseLong(value.toString()) : 0L;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Failed to publish cache invalidations; peers will catch up via epoch checks", e);
+    }
+  }
+
+  private void checkEpochsQuietly() {
+    try {
+      checkEpochs();
+    } catch (RuntimeException e) {
+      log.warn("Failed to check cache invalidation epochs", e);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package io.github.semanticsearch.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import io.github.semanticsearch.model.Embedding;
+import io.github.semanticsearch.model.SearchResult;
+
+/**
+ * Estimates the heap footprint of cached values so the in-process tier can be bounded in bytes
+ * rather than entries: one 1536-dimension embedding and one short search response differ by two
+ * orders of magnitude. The estimate counts payload bytes plus a flat per-object overhead; it does
+ * not need to be exact, only proportional.
+ */
+final class EntryWeigher implements Weigher<Object, Object> {
+
+  private static final int OBJECT_OVERHEAD = 16;
+  private static final int REFERENCE = 8;
+
+  @Override
+  public int weigh(Object key, Object value) {
+    long weight = estimate(key) + estimate(value);
+    return (int) Math.min(Integer.MAX_VALUE, weight);
+  }
+
+  static long estimate(Object value) {
+    if (value == null) {
+      return REFERENCE;
+    }
+    if (value instanceof Embedding embedding) {
+      return OBJECT_OVERHEAD * 2L + (long) embedding.dimensions() * Float.BYTES;
+    }
+    if (value instanceof CharSequence text) {
+      return OBJECT_OVERHEAD * 2L + text.length();
+    }
+    if (value instanceof SearchResult result) {
+      return OBJECT_OVERHEAD * 2L
+          + estimate(result.getTitle())
+          + estimate(result.getContent())
+          + estimate(result.getMetadata())
+          + estimate(result.getHighlights());
+    }
+    if (value instanceof Collection<?> items) {
+      long total = OBJECT_OVERHEAD + (long) items.size() * REFERENCE;
+      for (Object item : items) {
+        total += estimate(item);
+      }
+      return total;
+    }
+    if (value instanceof Map<?, ?> map) {
+      long total = OBJECT_OVERHEAD + (long) map.size() * OBJECT_OVERHEAD * 2;
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        total += estimate(entry.getKey()) + estimate(entry.getValue());
+      }
+      return total;
+    }
+    return OBJECT_OVERHEAD * 4L;
+  }
+}
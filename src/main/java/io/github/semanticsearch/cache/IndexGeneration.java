@@ -0,0 +1,130 @@
+package io.github.semanticsearch.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Monotonically increasing version of the searchable index. It is part of every search cache key,
+ * so advancing it makes all previously cached results unreachable without deleting them, and the
+ * cache TTL can stay long.
+ *
+ * <p>When the Redis cache is enabled the counter lives in Redis ({@code INCR} on write, {@code
+ * GET} on read) so every node sees the same generation. Reads are served from a local copy that is
+ * refreshed from Redis at most once per {@code cache.redis.generation-refresh}, so a search does
+ * not pay a Redis round trip; a node sees its own advances at once and its peers' within that
+ * interval. If Redis holds a lower value than this node has seen, the key was reset or flushed,
+ * and the node pushes it past its own value so that no generation is reused. If Redis is
+ * unreachable the node falls back to its local counter, which never moves backwards.
+ */
+@Component
+public class IndexGeneration {
+
+  private static final Logger log = LoggerFactory.getLogger(IndexGeneration.class);
+
+  static final String REDIS_KEY = "search:index-generation";
+
+  private final StringRedisTemplate redis;
+  private final long refreshNanos;
+  private final AtomicLong local = new AtomicLong();
+  private volatile long refreshedAt;
+  private volatile boolean refreshed;
+
+  public IndexGeneration(
+      ObjectProvider<StringRedisTemplate> redisTemplate,
+      @Value("${cache.redis.enabled:true}") boolean redisEnabled,
+      @Value("${cache.redis.generation-refresh:500ms}") Duration refreshInterval) {
+    this.redis = redisEnabled ? redisTemplate.getIfAvailable() : null;
+    this.refreshNanos = Math.max(0, refreshInterval.toNanos());
+  }
+
+  /** Current generation. */
+  public long current() {
+    if (redis == null) {
+      return local.get();
+    }
+    long now = System.nanoTime();
+    if (refreshed && now - refreshedAt < refreshNanos) {
+      return local.get();
+    }
+    try {
+      String value = redis.opsForValue().get(REDIS_KEY);
+      long generation = reconcile(value != null ? Long.parseLong(value) : 0L, false);
+      refreshedAt = now;
+      refreshed = true;
+      return generation;
+    } catch (RuntimeException e) {
+      log.warn("Could not read index generation from Redis; using local value", e);
+      return local.get();
+    }
+  }
+
+  /**
+   * Advance the generation after the index changed.
+   *
+   * @return The new generation
+   */
+  public long advance() {
+    if (redis == null) {
+      return local.incrementAndGet();
+    }
+    try {
+      Long value = redis.opsForValue().increment(REDIS_KEY);
+      if (value != null) {
+        return reconcile(value, true);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not advance index generation in Redis; advancing locally", e);
+    }
+    return local.incrementAndGet();
+  }
+
+  /**
+   * Advance the generation once the current transaction completes, or now if there is none.
+   * Advancing inside the transaction would let a concurrent search cache results read before the
+   * commit under the new generation. It also advances after a rollback, because the vector index
+   * write it follows is not transactional.
+   */
+  public void advanceAfterCommit() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      advance();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            advance();
+          }
+        });
+  }
+
+  /**
+   * Adopt a generation read from Redis. A value below one this node has already seen means the key
+   * was reset; it is pushed past the local value, since results cached under any generation up to
+   * that one may predate the writes counted since the reset.
+   *
+   * @param remote Value read from Redis
+   * @param incremented Whether {@code remote} came from this node's {@code INCR}, which must be
+   *     above every generation seen so far
+   */
+  private long reconcile(long remote, boolean incremented) {
+    long seen = local.get();
+    if (remote < seen || (incremented && remote == seen)) {
+      Long raised = redis.opsForValue().increment(REDIS_KEY, seen - remote + 1);
+      log.info("Index generation in Redis was reset to {}; raised it to {}", remote, raised);
+      if (raised != null) {
+        remote = raised;
+      }
+    }
+    return local.accumulateAndGet(remote, Math::max);
+  }
+}
@@ -0,0 +1,90 @@
+package io.github.semanticsearch.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import io.github.semanticsearch.model.SearchRequest;
+
+/**
+ * Canonical fingerprint of a search request. Two requests that must return the same results map
+ * to the same key: the query is Unicode-normalized with whitespace collapsed, filters and fields
+ * are sorted, and every parameter that shapes the response is included along with the scoring
+ * profile and index generation.
+ */
+public final class SearchCacheKey {
+
+  private static final String VERSION = "v1";
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private SearchCacheKey() {}
+
+  /**
+   * Build the cache key for a request.
+   *
+   * @param request Search request
+   * @param scoringProfile Active scoring profile label
+   * @param generation Current index generation
+   * @return Key of the form {@code v1:g<generation>:<profile>:<sha-256 of the canonical request>}
+   */
+  public static String of(SearchRequest request, String scoringProfile, long generation) {
+    return VERSION + ":g" + generation + ":" + scoringProfile + ":" + sha256(canonical(request));
+  }
+
+  /**
+   * Canonical text form of the request that the key hashes.
+   *
+   * @param request Search request
+   * @return Stable string representation
+   */
+  static String canonical(SearchRequest request) {
+    StringBuilder out = new StringBuilder(128);
+    out.append("q=").append(normalizeQuery(request.getQuery()));
+    out.append("|limit=").append(request.getLimit());
+    out.append("|minScore=").append(request.getMinScore());
+    out.append("|filters=");
+    Map<String, String> filters = request.getFilters();
+    if (filters != null) {
+      new TreeMap<>(filters).forEach((k, v) -> out.append(k).append('=').append(v).append(';'));
+    }
+    out.append("|fields=");
+    List<String> fields = request.getFields();
+    if (fields != null) {
+      fields.stream().sorted().distinct().forEach(f -> out.append(f).append(';'));
+    }
+    out.append("|content=").append(request.isIncludeContent());
+    out.append("|highlights=").append(request.isIncludeHighlights());
+    return out.toString();
+  }
+
+  /**
+   * Query text in the form the key uses: NFC-normalized, stripped, with whitespace runs collapsed
+   * to one space. Searches must run on this form too, or two queries sharing a key could embed and
+   * highlight differently.
+   *
+   * @param query Raw query text, may be null
+   * @return Normalized query, empty for null
+   */
+  public static String normalizeQuery(String query) {
+    if (query == null) {
+      return "";
+    }
+    String normalized = Normalizer.normalize(query, Normalizer.Form.NFC);
+    return WHITESPACE.matcher(normalized.strip()).replaceAll(" ");
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
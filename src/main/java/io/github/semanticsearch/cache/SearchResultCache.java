@@ -0,0 +1,98 @@
+package io.github.semanticsearch.cache;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import io.github.semanticsearch.config.SearchProperties;
+import io.github.semanticsearch.model.SearchRequest;
+import io.github.semanticsearch.model.SearchResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache of search responses keyed by {@link SearchCacheKey}. A hit skips the query embedding, the
+ * vector search and document hydration entirely. Hits and misses are exported as {@code
+ * search.cache.requests} tagged with {@code result=hit|miss}.
+ */
+@Component
+public class SearchResultCache {
+
+  /** Name of the backing cache in the {@link CacheManager}. */
+  public static final String CACHE_NAME = "searchResults";
+
+  private static final Logger log = LoggerFactory.getLogger(SearchResultCache.class);
+
+  private final CacheManager cacheManager;
+  private final SearchProperties searchProperties;
+  private final IndexGeneration indexGeneration;
+  private final Counter hits;
+  private final Counter misses;
+
+  public SearchResultCache(
+      CacheManager cacheManager,
+      SearchProperties searchProperties,
+      IndexGeneration indexGeneration,
+      MeterRegistry meterRegistry) {
+    this.cacheManager = cacheManager;
+    this.searchProperties = searchProperties;
+    this.indexGeneration = indexGeneration;
+    this.hits = requests(meterRegistry, "hit");
+    this.misses = requests(meterRegistry, "miss");
+  }
+
+  /**
+   * Return cached results for the request, or compute and cache them. Empty results are not
+   * cached.
+   *
+   * @param request Search request
+   * @param loader Runs the search on a miss
+   * @return Search results
+   */
+  @SuppressWarnings("unchecked")
+  public List<SearchResult> getOrCompute(
+      SearchRequest request, Supplier<List<SearchResult>> loader) {
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache == null) {
+      return loader.get();
+    }
+    String key = keyFor(request);
+    Cache.ValueWrapper cached = cache.get(key);
+    if (cached != null && cached.get() instanceof List<?> results) {
+      hits.increment();
+      log.debug("Search cache hit: {}", key);
+      return (List<SearchResult>) results;
+    }
+
+    misses.increment();
+    List<SearchResult> results = loader.get();
+    if (!results.isEmpty()) {
+      cache.put(key, results);
+    }
+    return results;
+  }
+
+  /**
+   * Cache key for a request under the current scoring profile and index generation.
+   *
+   * @param request Search request
+   * @return Cache key
+   */
+  public String keyFor(SearchRequest request) {
+    return SearchCacheKey.of(
+        request, searchProperties.getScoringProfile(), indexGeneration.current());
+  }
+
+  private static Counter requests(MeterRegistry registry, String result) {
+    return Counter.builder("search.cache.requests")
+        .description("Search result cache lookups")
+        .tag("result", result)
+        .register(registry);
+  }
+}
@@ -0,0 +1,189 @@
+package io.github.semanticsearch.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+
+import io.github.semanticsearch.model.SearchResult;
+
+/**
+ * Binary Redis encoding for cached search responses ({@code List<SearchResult>}).
+ *
+ * <p>Layout: a schema version byte and the result count, then per result the id as two longs, the
+ * title and content, the metadata map, the score as a double and the highlights. Strings are
+ * length-prefixed UTF-8 with -1 for {@code null}; maps and lists are count-prefixed the same way.
+ * A change to {@link SearchResult} must bump {@link #VERSION}. Values written under another version
+ * decode as {@code null}, which the cache treats as a miss, so old entries are recomputed instead
+ * of failing.
+ */
+public class SearchResultsRedisSerializer implements RedisSerializer<List<SearchResult>> {
+
+  static final byte VERSION = 1;
+
+  @Override
+  @Nullable
+  public byte[] serialize(@Nullable List<SearchResult> results) {
+    if (results == null) {
+      return null;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * Math.max(1, results.size()));
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeInt(results.size());
+      for (SearchResult result : results) {
+        writeUuid(out, result.getId());
+        writeString(out, result.getTitle());
+        writeString(out, result.getContent());
+        writeMap(out, result.getMetadata());
+        out.writeDouble(result.getScore());
+        writeList(out, result.getHighlights());
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Could not serialize search results", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Override
+  @Nullable
+  public List<SearchResult> deserialize(@Nullable byte[] bytes) {
+    if (bytes == null || bytes.length == 0 || bytes[0] != VERSION) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+      int count = readCount(in, bytes.length);
+      if (count < 0) {
+        throw new IOException("Negative result count " + count);
+      }
+      List<SearchResult> results = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        results.add(
+            SearchResult.builder()
+                .id(readUuid(in))
+                .title(readString(in))
+                .content(readString(in))
+                .metadata(readMap(in, bytes.length))
+                .score(in.readDouble())
+                .highlights(readList(in, bytes.length))
+                .build());
+      }
+      return results;
+    } catch (IOException e) {
+      throw new SerializationException("Could not deserialize search results", e);
+    }
+  }
+
+  @Override
+  public Class<?> getTargetType() {
+    return List.class;
+  }
+
+  private static void writeUuid(DataOutputStream out, @Nullable UUID id) throws IOException {
+    out.writeBoolean(id != null);
+    if (id != null) {
+      out.writeLong(id.getMostSignificantBits());
+      out.writeLong(id.getLeastSignificantBits());
+    }
+  }
+
+  @Nullable
+  private static UUID readUuid(DataInputStream in) throws IOException {
+    return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+  }
+
+  private static void writeString(DataOutputStream out, @Nullable String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  @Nullable
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    if (length > in.available()) {
+      throw new IOException("String length " + length + " exceeds remaining bytes");
+    }
+    return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+  }
+
+  private static void writeMap(DataOutputStream out, @Nullable Map<String, String> map)
+      throws IOException {
+    if (map == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  @Nullable
+  private static Map<String, String> readMap(DataInputStream in, int limit) throws IOException {
+    int size = readCount(in, limit);
+    if (size < 0) {
+      return null;
+    }
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readString(in));
+    }
+    return map;
+  }
+
+  private static void writeList(DataOutputStream out, @Nullable List<String> list)
+      throws IOException {
+    if (list == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(list.size());
+    for (String value : list) {
+      writeString(out, value);
+    }
+  }
+
+  @Nullable
+  private static List<String> readList(DataInputStream in, int limit) throws IOException {
+    int size = readCount(in, limit);
+    if (size < 0) {
+      return null;
+    }
+    List<String> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(readString(in));
+    }
+    return list;
+  }
+
+  /** Read a count, rejecting values that could not fit in the input (each element is >= 1 byte). */
+  private static int readCount(DataInputStream in, int limit) throws IOException {
+    int count = in.readInt();
+    if (count > limit) {
+      throw new IOException("Element count " + count + " exceeds input size");
+    }
+    return count;
+  }
+}
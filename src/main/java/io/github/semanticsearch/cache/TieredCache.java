@@ -0,0 +1,178 @@
+package io.github.semanticsearch.cache;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.Nullable;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A {@link Cache} that consults an in-process Caffeine tier (L1) before the shared Redis cache
+ * (L2). L2 hits are promoted into L1; writes and evictions go to both tiers. Lookups are counted
+ * per tier as {@code cache.tier.requests{cache, tier, result}}.
+ *
+ * <p>L1 entries are keyed by {@code String.valueOf(key)}, the same form Redis stores, so that
+ * evictions broadcast by other nodes through a {@link CacheInvalidationBus} hit the right entry.
+ */
+public class TieredCache implements Cache {
+
+  private final String name;
+  private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+  private final Cache remote;
+  @Nullable private final CacheInvalidationBus invalidationBus;
+  private final Counter localHits;
+  private final Counter localMisses;
+  private final Counter remoteHits;
+  private final Counter remoteMisses;
+
+  TieredCache(
+      String name,
+      com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+      Cache remote,
+      @Nullable CacheInvalidationBus invalidationBus,
+      MeterRegistry meterRegistry) {
+    this.name = name;
+    this.local = local;
+    this.remote = remote;
+    this.invalidationBus = invalidationBus;
+    this.localHits = requests(meterRegistry, name, "l1", "hit");
+    this.localMisses = requests(meterRegistry, name, "l1", "miss");
+    this.remoteHits = requests(meterRegistry, name, "l2", "hit");
+    this.remoteMisses = requests(meterRegistry, name, "l2", "miss");
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return remote.getNativeCache();
+  }
+
+  @Override
+  @Nullable
+  public ValueWrapper get(Object key) {
+    Object value = local.getIfPresent(localKey(key));
+    if (value != null) {
+      localHits.increment();
+      return new SimpleValueWrapper(fromStore(value));
+    }
+    localMisses.increment();
+
+    ValueWrapper wrapper = remote.get(key);
+    if (wrapper == null) {
+      remoteMisses.increment();
+      return null;
+    }
+    remoteHits.increment();
+    local.put(localKey(key), toStore(wrapper.get()));
+    return wrapper;
+  }
+
+  @Override
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, @Nullable Class<T> type) {
+    ValueWrapper wrapper = get(key);
+    Object value = wrapper != null ? wrapper.get() : null;
+    if (value != null && type != null && !type.isInstance(value)) {
+      throw new IllegalStateException(
+          "Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    ValueWrapper wrapper = get(key);
+    if (wrapper != null) {
+      return (T) wrapper.get();
+    }
+    T value;
+    try {
+      value = valueLoader.call();
+    } catch (Exception e) {
+      throw new ValueRetrievalException(key, valueLoader, e);
+    }
+    put(key, value);
+    return value;
+  }
+
+  /**
+   * Write to both tiers. Peers only hold values they read from or wrote to Redis, so a first fill
+   * cannot leave a stale copy anywhere and is not broadcast; only a put that replaces an existing
+   * Redis entry evicts the key from the other nodes' near-caches.
+   */
+  @Override
+  public void put(Object key, @Nullable Object value) {
+    String localKey = localKey(key);
+    if (invalidationBus == null) {
+      remote.put(key, value);
+    } else if (remote.putIfAbsent(key, value) != null) {
+      remote.put(key, value);
+      invalidationBus.publishEvict(name, localKey);
+    }
+    local.put(localKey, toStore(value));
+  }
+
+  @Override
+  public void evict(Object key) {
+    remote.evict(key);
+    String localKey = localKey(key);
+    local.invalidate(localKey);
+    if (invalidationBus != null) {
+      invalidationBus.publishEvict(name, localKey);
+    }
+  }
+
+  @Override
+  public void clear() {
+    remote.clear();
+    local.invalidateAll();
+    if (invalidationBus != null) {
+      invalidationBus.publishClear(name);
+    }
+  }
+
+  /** Drop keys from this node's L1 only, after another node changed them. */
+  void evictLocal(Collection<String> keys) {
+    local.invalidateAll(keys);
+  }
+
+  /** Drop this node's whole L1 only. */
+  void clearLocal() {
+    local.invalidateAll();
+  }
+
+  private static String localKey(Object key) {
+    return String.valueOf(key);
+  }
+
+  private static Object toStore(@Nullable Object value) {
+    return value != null ? value : NullValue.INSTANCE;
+  }
+
+  @Nullable
+  private static Object fromStore(Object value) {
+    return value == NullValue.INSTANCE ? null : value;
+  }
+
+  private static Counter requests(
+      MeterRegistry registry, String cache, String tier, String result) {
+    return Counter.builder("cache.tier.requests")
+        .description("Lookups per cache tier")
+        .tag("cache", cache)
+        .tag("tier", tier)
+        .tag("result", result)
+        .register(registry);
+  }
+}
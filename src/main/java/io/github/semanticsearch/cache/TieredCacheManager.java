@@ -0,0 +1,101 @@
+package io.github.semanticsearch.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.semanticsearch.config.NearCacheProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link CacheManager} that layers a bounded Caffeine near-cache over another manager, normally
+ * Redis. Each near-cache is weighed by estimated bytes and evicts with Caffeine's W-TinyLFU
+ * policy, so one-off queries do not push out the hot set. Size and TTL come from {@link
+ * NearCacheProperties} per cache name.
+ *
+ * <p>With a {@link CacheInvalidationBus}, local overwrites and evictions are broadcast to the other
+ * nodes. Their broadcasts are applied to this node's near-caches once the creator {@linkplain
+ * CacheInvalidationBus#bind binds} the manager to the bus.
+ */
+public class TieredCacheManager
+    implements CacheManager, CacheInvalidationBus.LocalInvalidation {
+
+  private final CacheManager remote;
+  private final NearCacheProperties properties;
+  private final MeterRegistry meterRegistry;
+  @Nullable private final CacheInvalidationBus invalidationBus;
+  private final ConcurrentMap<String, TieredCache> caches = new ConcurrentHashMap<>();
+
+  public TieredCacheManager(
+      CacheManager remote, NearCacheProperties properties, MeterRegistry meterRegistry) {
+    this(remote, properties, meterRegistry, null);
+  }
+
+  public TieredCacheManager(
+      CacheManager remote,
+      NearCacheProperties properties,
+      MeterRegistry meterRegistry,
+      @Nullable CacheInvalidationBus invalidationBus) {
+    this.remote = remote;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.invalidationBus = invalidationBus;
+  }
+
+  @Override
+  @Nullable
+  public Cache getCache(String name) {
+    TieredCache cache = caches.get(name);
+    if (cache != null) {
+      return cache;
+    }
+    Cache remoteCache = remote.getCache(name);
+    if (remoteCache == null) {
+      return null;
+    }
+    return caches.computeIfAbsent(name, n -> createCache(n, remoteCache));
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return Collections.unmodifiableSet(caches.keySet());
+  }
+
+  @Override
+  public void evictLocal(String cacheName, Collection<String> keys) {
+    TieredCache cache = caches.get(cacheName);
+    if (cache != null) {
+      cache.evictLocal(keys);
+    }
+  }
+
+  @Override
+  public void clearLocal(String cacheName) {
+    TieredCache cache = caches.get(cacheName);
+    if (cache != null) {
+      cache.clearLocal();
+    }
+  }
+
+  private TieredCache createCache(String name, Cache remoteCache) {
+    NearCacheProperties.Spec spec = properties.specFor(name);
+    com.github.benmanes.caffeine.cache.Cache<Object, Object> local =
+        Caffeine.newBuilder()
+            .maximumWeight(spec.getMaxBytes())
+            .weigher(new EntryWeigher())
+            .expireAfterWrite(spec.getTtl())
+            .build();
+    if (invalidationBus != null) {
+      invalidationBus.track(name);
+    }
+    return new TieredCache(name, local, remoteCache, invalidationBus, meterRegistry);
+  }
+}
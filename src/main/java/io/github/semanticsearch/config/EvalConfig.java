@@ -36,7 +36,12 @@ public class EvalConfig {
       Path out = Path.of("target/eval/report.json");
       Files.createDirectories(out.getParent());
       new ObjectMapper().writeValue(out.toFile(), result);
-      log.info("Eval completed: MRR={} NDCG={} Recall@5={}", result.mrr(), result.ndcg(), result.recallAtK());
+      log.info(
+          "Eval completed: MRR={} NDCG={} Recall@5={} QuantizedRecall@5={}",
+          result.mrr(),
+          result.ndcg(),
+          result.recallAtK(),
+          result.quantizedRecallAtK());
     };
   }
 }
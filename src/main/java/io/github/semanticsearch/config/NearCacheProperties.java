@@ -0,0 +1,143 @@
+package io.github.semanticsearch.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "cache.local")
+public class NearCacheProperties {
+
+  /** Size and lifetime of one in-process cache. */
+  public static class Spec {
+    /** Upper bound on the estimated heap footprint of the cache's entries, in bytes. */
+    private long maxBytes = 16 * 1024 * 1024;
+
+    /** Time an entry stays in process after it was written or promoted from Redis. */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    public long getMaxBytes() {
+      return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+  }
+
+  /** Cross-node invalidation of the in-process tier over Redis pub/sub. */
+  public static class Invalidation {
+    /** When true, local overwrites, evictions and clears are broadcast to the other nodes. */
+    private boolean enabled = true;
+
+    /** Redis pub/sub channel carrying invalidation batches. */
+    private String channel = "cache:invalidation";
+
+    /** How long evictions are coalesced before they are published as one message. */
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    /** How often per-cache epochs are compared with Redis to detect lost messages. */
+    private Duration epochCheckInterval = Duration.ofSeconds(10);
+
+    /** Pending keys per cache beyond which a batch is published as a full clear instead. */
+    private int maxKeysPerCache = 1000;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getChannel() {
+      return channel;
+    }
+
+    public void setChannel(String channel) {
+      this.channel = channel;
+    }
+
+    public Duration getFlushInterval() {
+      return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+      this.flushInterval = flushInterval;
+    }
+
+    public Duration getEpochCheckInterval() {
+      return epochCheckInterval;
+    }
+
+    public void setEpochCheckInterval(Duration epochCheckInterval) {
+      this.epochCheckInterval = epochCheckInterval;
+    }
+
+    public int getMaxKeysPerCache() {
+      return maxKeysPerCache;
+    }
+
+    public void setMaxKeysPerCache(int maxKeysPerCache) {
+      this.maxKeysPerCache = maxKeysPerCache;
+    }
+  }
+
+  /** When true, an in-process Caffeine tier sits in front of the Redis caches. */
+  private boolean enabled = true;
+
+  /** Settings for caches without an entry in {@link #caches}. */
+  private Spec defaults = new Spec();
+
+  /** Per-cache settings keyed by cache name. */
+  private Map<String, Spec> caches = new HashMap<>();
+
+  /** Broadcast of near-cache invalidations between nodes. */
+  private Invalidation invalidation = new Invalidation();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Spec getDefaults() {
+    return defaults;
+  }
+
+  public void setDefaults(Spec defaults) {
+    this.defaults = defaults != null ? defaults : new Spec();
+  }
+
+  public Map<String, Spec> getCaches() {
+    return caches;
+  }
+
+  public void setCaches(Map<String, Spec> caches) {
+    this.caches = caches != null ? caches : new HashMap<>();
+  }
+
+  public Invalidation getInvalidation() {
+    return invalidation;
+  }
+
+  public void setInvalidation(Invalidation invalidation) {
+    this.invalidation = invalidation != null ? invalidation : new Invalidation();
+  }
+
+  /** Settings for the named cache, falling back to {@link #getDefaults()}. */
+  public Spec specFor(String cacheName) {
+    return caches.getOrDefault(cacheName, defaults);
+  }
+}
@@ -2,7 +2,9 @@ package io.github.semanticsearch.config;
 
 import java.time.Duration;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -13,10 +15,21 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import io.github.semanticsearch.cache.CacheInvalidationBus;
+import io.github.semanticsearch.cache.EmbeddingRedisSerializer;
+import io.github.semanticsearch.cache.SearchResultCache;
+import io.github.semanticsearch.cache.SearchResultsRedisSerializer;
+import io.github.semanticsearch.cache.TieredCacheManager;
+import io.github.semanticsearch.service.EmbeddingService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 /** Configuration for Redis cache. Sets up Redis connection, template, and cache manager. */
 @Configuration
 @EnableCaching
@@ -35,6 +48,9 @@ public class RedisConfig {
   @Value("${spring.cache.redis.time-to-live:3600}")
   private long timeToLive;
 
+  @Value("${cache.redis.embedding-encoding:FLOAT32}")
+  private EmbeddingRedisSerializer.Encoding embeddingEncoding;
+
   /**
    * Creates Redis connection factory.
    *
@@ -68,13 +84,68 @@ public class RedisConfig {
   }
 
   /**
-   * Creates Redis cache manager.
+   * Creates the bus that broadcasts near-cache invalidations between nodes.
+   *
+   * @param redisTemplate Redis template used to publish and to track epochs
+   * @param nearCacheProperties Invalidation settings
+   * @return CacheInvalidationBus
+   */
+  @Bean
+  @ConditionalOnProperty(
+      name = {"cache.local.enabled", "cache.local.invalidation.enabled"},
+      havingValue = "true",
+      matchIfMissing = true)
+  public CacheInvalidationBus cacheInvalidationBus(
+      RedisTemplate<String, Object> redisTemplate, NearCacheProperties nearCacheProperties) {
+    NearCacheProperties.Invalidation invalidation = nearCacheProperties.getInvalidation();
+    CacheInvalidationBus bus =
+        new CacheInvalidationBus(
+            redisTemplate,
+            invalidation.getChannel(),
+            invalidation.getFlushInterval(),
+            invalidation.getEpochCheckInterval(),
+            invalidation.getMaxKeysPerCache());
+    bus.start();
+    return bus;
+  }
+
+  /**
+   * Subscribes the invalidation bus to its Redis channel.
    *
    * @param connectionFactory Redis connection factory
-   * @return RedisCacheManager
+   * @param invalidationBus Near-cache invalidation bus
+   * @return RedisMessageListenerContainer
    */
   @Bean
-  public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+  @ConditionalOnProperty(
+      name = {"cache.local.enabled", "cache.local.invalidation.enabled"},
+      havingValue = "true",
+      matchIfMissing = true)
+  public RedisMessageListenerContainer cacheInvalidationListener(
+      RedisConnectionFactory connectionFactory, CacheInvalidationBus invalidationBus) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(invalidationBus, new ChannelTopic(invalidationBus.getChannel()));
+    return container;
+  }
+
+  /**
+   * Creates the cache manager: Redis, fronted by an in-process Caffeine tier unless {@code
+   * cache.local.enabled} is false. Embeddings and search results are stored with compact binary
+   * serializers; other caches use typed JSON.
+   *
+   * @param connectionFactory Redis connection factory
+   * @param nearCacheProperties In-process tier sizing
+   * @param meterRegistry Registry for per-tier hit metrics
+   * @param invalidationBus Cross-node invalidation of the in-process tier, if enabled
+   * @return CacheManager
+   */
+  @Bean
+  public CacheManager cacheManager(
+      RedisConnectionFactory connectionFactory,
+      NearCacheProperties nearCacheProperties,
+      MeterRegistry meterRegistry,
+      ObjectProvider<CacheInvalidationBus> invalidationBus) {
     RedisCacheConfiguration config =
         RedisCacheConfiguration.defaultCacheConfig()
             .entryTtl(Duration.ofSeconds(timeToLive))
@@ -85,6 +156,30 @@ public class RedisConfig {
                 RedisSerializationContext.SerializationPair.fromSerializer(
                     new GenericJackson2JsonRedisSerializer()));
 
-    return RedisCacheManager.builder(connectionFactory).cacheDefaults(config).build();
+    RedisCacheManager redisCacheManager =
+        RedisCacheManager.builder(connectionFactory)
+            .cacheDefaults(config)
+            .withCacheConfiguration(
+                EmbeddingService.CACHE_NAME,
+                config.serializeValuesWith(
+                    RedisSerializationContext.SerializationPair.fromSerializer(
+                        new EmbeddingRedisSerializer(embeddingEncoding))))
+            .withCacheConfiguration(
+                SearchResultCache.CACHE_NAME,
+                config.serializeValuesWith(
+                    RedisSerializationContext.SerializationPair.fromSerializer(
+                        new SearchResultsRedisSerializer())))
+            .build();
+    if (!nearCacheProperties.isEnabled()) {
+      return redisCacheManager;
+    }
+    redisCacheManager.afterPropertiesSet();
+    CacheInvalidationBus bus = invalidationBus.getIfAvailable();
+    TieredCacheManager cacheManager =
+        new TieredCacheManager(redisCacheManager, nearCacheProperties, meterRegistry, bus);
+    if (bus != null) {
+      bus.bind(cacheManager);
+    }
+    return cacheManager;
   }
 }
@@ -31,6 +31,12 @@ public class SearchProperties {
   /** Optional metadata boosts. Key = metadata key, value = additive boost. */
   private Map<String, Double> metadataBoosts = new HashMap<>();
 
+  /**
+   * Where result documents are loaded from: "database" (full documents from the repository) or
+   * "index" (title, content snippet, metadata and timestamps stored with the vector hits).
+   */
+  private String hydration = "database";
+
   public boolean isHybridEnabled() {
     return hybridEnabled;
   }
@@ -102,4 +108,12 @@ public class SearchProperties {
   public void setMetadataBoosts(Map<String, Double> metadataBoosts) {
     this.metadataBoosts = metadataBoosts != null ? metadataBoosts : new HashMap<>();
   }
+
+  public String getHydration() {
+    return hydration;
+  }
+
+  public void setHydration(String hydration) {
+    this.hydration = hydration;
+  }
 }
@@ -0,0 +1,205 @@
+package io.github.semanticsearch.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import io.github.semanticsearch.vector.ScalarQuantizer;
+
+@ConfigurationProperties(prefix = "vector.local")
+public class VectorIndexProperties {
+
+  /** Local index backends available when Elasticsearch is stubbed out. */
+  public enum Backend {
+    /** Exact linear scan over the off-heap arena. */
+    FLAT,
+    /**
+     * Approximate HNSW graph. Snapshots do not hold the graph: after a restart it is relinked on
+     * one background thread, and until then every search is an exact scan like {@link #FLAT}.
+     */
+    HNSW,
+    /** Exact scan over immutable segments plus a mutable buffer, merged in the background. */
+    SEGMENTED,
+    /** Scan over int8 codes with the shortlist rescored against full-precision vectors. */
+    INT8,
+    /** Hamming-distance scan over 1-bit codes with the shortlist reranked at full precision. */
+    BINARY
+  }
+
+  /** Backend used by the in-process vector index. */
+  private Backend backend = Backend.FLAT;
+
+  /** Number of vectors per off-heap arena page. */
+  private int vectorsPerPage = 4096;
+
+  /** HNSW: neighbours per node on upper layers (the bottom layer keeps twice as many). */
+  private int hnswM = 16;
+
+  /** HNSW: candidate list size while inserting; higher builds a better graph more slowly. */
+  private int hnswEfConstruction = 200;
+
+  /** HNSW: default candidate list size per query; higher trades latency for recall. */
+  private int hnswEfSearch = 64;
+
+  /** Segmented: vectors the mutable buffer holds before it is sealed into a segment. */
+  private int segmentFlushSize = 8192;
+
+  /** Segmented: number of similarly sized segments merged at once. */
+  private int segmentMergeFactor = 4;
+
+  /** Int8: whether the quantization range is calibrated per dimension or globally. */
+  private ScalarQuantizer.Calibration quantizationCalibration =
+      ScalarQuantizer.Calibration.PER_DIMENSION;
+
+  /** Int8 and binary: vectors indexed before the quantization is calibrated to them. */
+  private int quantizationCalibrationSize = 10_000;
+
+  /** Int8: candidates rescored at full precision, as a multiple of the requested limit. */
+  private int quantizationOversample = 4;
+
+  /** Binary: candidates reranked at full precision, as a multiple of the requested limit. */
+  private int binaryOversample = 10;
+
+  /** Int8 and binary: directory for the memory-mapped full-precision vectors; blank uses temp. */
+  private String vectorFileDirectory = "";
+
+  /** Snapshot file the index is restored from at startup and saved to; blank disables it. */
+  private String snapshotPath = "";
+
+  /** How often a changed index is snapshotted; it is also saved on shutdown. */
+  private Duration snapshotInterval = Duration.ofMinutes(5);
+
+  /** Log every update to a write-ahead log next to the snapshot, replayed after a crash. */
+  private boolean walEnabled = true;
+
+  /** Write-ahead log size that triggers a checkpoint before the snapshot interval is up. */
+  private long walCheckpointBytes = 64L * 1024 * 1024;
+
+  public Backend getBackend() {
+    return backend;
+  }
+
+  public void setBackend(Backend backend) {
+    this.backend = backend != null ? backend : Backend.FLAT;
+  }
+
+  public int getVectorsPerPage() {
+    return vectorsPerPage;
+  }
+
+  public void setVectorsPerPage(int vectorsPerPage) {
+    this.vectorsPerPage = vectorsPerPage;
+  }
+
+  public int getHnswM() {
+    return hnswM;
+  }
+
+  public void setHnswM(int hnswM) {
+    this.hnswM = hnswM;
+  }
+
+  public int getHnswEfConstruction() {
+    return hnswEfConstruction;
+  }
+
+  public void setHnswEfConstruction(int hnswEfConstruction) {
+    this.hnswEfConstruction = hnswEfConstruction;
+  }
+
+  public int getHnswEfSearch() {
+    return hnswEfSearch;
+  }
+
+  public void setHnswEfSearch(int hnswEfSearch) {
+    this.hnswEfSearch = hnswEfSearch;
+  }
+
+  public int getSegmentFlushSize() {
+    return segmentFlushSize;
+  }
+
+  public void setSegmentFlushSize(int segmentFlushSize) {
+    this.segmentFlushSize = segmentFlushSize;
+  }
+
+  public int getSegmentMergeFactor() {
+    return segmentMergeFactor;
+  }
+
+  public void setSegmentMergeFactor(int segmentMergeFactor) {
+    this.segmentMergeFactor = segmentMergeFactor;
+  }
+
+  public ScalarQuantizer.Calibration getQuantizationCalibration() {
+    return quantizationCalibration;
+  }
+
+  public void setQuantizationCalibration(ScalarQuantizer.Calibration quantizationCalibration) {
+    this.quantizationCalibration = quantizationCalibration;
+  }
+
+  public int getQuantizationCalibrationSize() {
+    return quantizationCalibrationSize;
+  }
+
+  public void setQuantizationCalibrationSize(int quantizationCalibrationSize) {
+    this.quantizationCalibrationSize = quantizationCalibrationSize;
+  }
+
+  public int getQuantizationOversample() {
+    return quantizationOversample;
+  }
+
+  public void setQuantizationOversample(int quantizationOversample) {
+    this.quantizationOversample = quantizationOversample;
+  }
+
+  public int getBinaryOversample() {
+    return binaryOversample;
+  }
+
+  public void setBinaryOversample(int binaryOversample) {
+    this.binaryOversample = binaryOversample;
+  }
+
+  public String getVectorFileDirectory() {
+    return vectorFileDirectory;
+  }
+
+  public void setVectorFileDirectory(String vectorFileDirectory) {
+    this.vectorFileDirectory = vectorFileDirectory;
+  }
+
+  public String getSnapshotPath() {
+    return snapshotPath;
+  }
+
+  public void setSnapshotPath(String snapshotPath) {
+    this.snapshotPath = snapshotPath != null ? snapshotPath : "";
+  }
+
+  public Duration getSnapshotInterval() {
+    return snapshotInterval;
+  }
+
+  public void setSnapshotInterval(Duration snapshotInterval) {
+    this.snapshotInterval = snapshotInterval;
+  }
+
+  public boolean isWalEnabled() {
+    return walEnabled;
+  }
+
+  public void setWalEnabled(boolean walEnabled) {
+    this.walEnabled = walEnabled;
+  }
+
+  public long getWalCheckpointBytes() {
+    return walCheckpointBytes;
+  }
+
+  public void setWalCheckpointBytes(long walCheckpointBytes) {
+    this.walCheckpointBytes = walCheckpointBytes;
+  }
+}
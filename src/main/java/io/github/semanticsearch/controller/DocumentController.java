@@ -1,8 +1,5 @@
 package io.github.semanticsearch.controller;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -21,8 +18,10 @@ import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.github.semanticsearch.model.Document;
+import io.github.semanticsearch.model.DocumentPatch;
 import io.github.semanticsearch.repository.DocumentRepository;
 import io.github.semanticsearch.service.IndexService;
+import io.github.semanticsearch.util.ContentHasher;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -79,7 +78,7 @@ public class DocumentController {
     document.setMetadata(normalizeMetadata(document.getMetadata()));
 
     // Generate content hash
-    String contentHash = generateContentHash(document.getContent());
+    String contentHash = ContentHasher.sha256(document.getContent());
     document.setContentHash(contentHash);
 
     // Check if document with same content already exists
@@ -126,7 +125,8 @@ public class DocumentController {
   }
 
   /**
-   * Update document. Updates document content and re-indexes it for search.
+   * Update document. Re-indexes it for search only when the content changed; a title or metadata
+   * change is a database write.
    *
    * @param id Document ID
    * @param document Updated document data
@@ -135,7 +135,7 @@ public class DocumentController {
   @PutMapping("/{id}")
   @Operation(
       summary = "Update document",
-      description = "Update document content and re-index it for search",
+      description = "Replace document fields and re-index it for search if the content changed",
       responses = {
         @ApiResponse(
             responseCode = "200",
@@ -154,22 +154,58 @@ public class DocumentController {
         .findById(id)
         .map(
             existingDocument -> {
-              // Update fields
+              String previousHash = existingDocument.getContentHash();
               existingDocument.setTitle(document.getTitle());
               existingDocument.setContent(document.getContent());
               existingDocument.setMetadata(normalizeMetadata(document.getMetadata()));
+              existingDocument.setContentHash(ContentHasher.sha256(document.getContent()));
+              return ResponseEntity.ok(saveAndIndex(existingDocument, previousHash));
+            })
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
+  }
 
-              // Generate new content hash
-              String contentHash = generateContentHash(document.getContent());
-              existingDocument.setContentHash(contentHash);
-
-              // Save updated document
-              Document savedDocument = documentRepository.save(existingDocument);
+  /**
+   * Partially update document. Only the fields present in the request change; the document is
+   * re-indexed only when its content changed.
+   *
+   * @param id Document ID
+   * @param patch Fields to change
+   * @return Updated document
+   */
+  @PatchMapping("/{id}")
+  @Operation(
+      summary = "Patch document",
+      description = "Change selected document fields; re-index only if the content changed",
+      responses = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Document updated",
+            content = @Content(schema = @Schema(implementation = Document.class))),
+        @ApiResponse(responseCode = "404", description = "Document not found"),
+        @ApiResponse(responseCode = "400", description = "Invalid document data")
+      })
+  public ResponseEntity<Document> patchDocument(
+      @Parameter(description = "Document ID") @PathVariable UUID id,
+      @Valid @RequestBody DocumentPatch patch) {
 
-              // Re-index document for search
-              Document indexedDocument = indexService.updateDocumentIndex(savedDocument);
+    log.debug("Patching document: {}", id);
 
-              return ResponseEntity.ok(indexedDocument);
+    return documentRepository
+        .findById(id)
+        .map(
+            existingDocument -> {
+              String previousHash = existingDocument.getContentHash();
+              if (patch.getTitle() != null) {
+                existingDocument.setTitle(patch.getTitle());
+              }
+              if (patch.getMetadata() != null) {
+                existingDocument.setMetadata(patch.getMetadata());
+              }
+              if (patch.getContent() != null) {
+                existingDocument.setContent(patch.getContent());
+                existingDocument.setContentHash(ContentHasher.sha256(patch.getContent()));
+              }
+              return ResponseEntity.ok(saveAndIndex(existingDocument, previousHash));
             })
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
   }
@@ -281,24 +317,20 @@ public class DocumentController {
     return ResponseEntity.ok(documents);
   }
 
-  private Map<String, String> normalizeMetadata(Map<String, String> metadata) {
-    return metadata == null ? new HashMap<>() : metadata;
-  }
-
   /**
-   * Generate SHA-256 hash of document content. Used to detect duplicate documents.
-   *
-   * @param content Document content
-   * @return Base64-encoded hash
+   * Save an updated document and bring the search index in line. The vector is rebuilt only when
+   * the content hash changed or the document was never indexed.
    */
-  private String generateContentHash(String content) {
-    try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      byte[] hash = digest.digest(content.getBytes());
-      return Base64.getEncoder().encodeToString(hash);
-    } catch (NoSuchAlgorithmException e) {
-      log.error("Failed to generate content hash", e);
-      throw new RuntimeException("Failed to generate content hash", e);
+  private Document saveAndIndex(Document document, String previousHash) {
+    boolean contentChanged = !document.getContentHash().equals(previousHash);
+    Document savedDocument = documentRepository.save(document);
+    if (contentChanged || !savedDocument.isIndexed()) {
+      return indexService.updateDocumentIndex(savedDocument);
     }
+    return indexService.refreshDocumentAttributes(savedDocument);
+  }
+
+  private Map<String, String> normalizeMetadata(Map<String, String> metadata) {
+    return metadata == null ? new HashMap<>() : metadata;
   }
 }
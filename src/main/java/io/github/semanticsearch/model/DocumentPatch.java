@@ -0,0 +1,52 @@
+package io.github.semanticsearch.model;
+
+import java.util.Map;
+
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * Partial document update. Fields left {@code null} keep their current value; {@code metadata},
+ * when present, replaces the whole map.
+ */
+public class DocumentPatch {
+
+  @Pattern(regexp = "(?s).*\\S.*", message = "Title must not be blank")
+  private String title;
+
+  @Pattern(regexp = "(?s).*\\S.*", message = "Content must not be blank")
+  private String content;
+
+  private Map<String, String> metadata;
+
+  public DocumentPatch() {}
+
+  public DocumentPatch(String title, String content, Map<String, String> metadata) {
+    this.title = title;
+    this.content = content;
+    this.metadata = metadata;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public Map<String, String> getMetadata() {
+    return metadata;
+  }
+
+  public void setMetadata(Map<String, String> metadata) {
+    this.metadata = metadata;
+  }
+}
@@ -0,0 +1,158 @@
+package io.github.semanticsearch.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Immutable embedding vector backed by a primitive {@code float[]}. Used across the embedding,
+ * index and cache layers; conversion to boxed lists only happens at the Elasticsearch JSON
+ * boundary.
+ */
+public final class Embedding {
+
+  /** Empty embedding returned when no vector could be generated. */
+  public static final Embedding EMPTY = new Embedding(new float[0]);
+
+  private final float[] values;
+
+  private Embedding(float[] values) {
+    this.values = values;
+  }
+
+  /**
+   * Create an embedding from a primitive array. The array is copied.
+   *
+   * @param values Vector components
+   * @return Embedding wrapping a copy of the values
+   */
+  @JsonCreator
+  public static Embedding of(@JsonProperty("values") float[] values) {
+    if (values == null || values.length == 0) {
+      return EMPTY;
+    }
+    return new Embedding(values.clone());
+  }
+
+  /**
+   * Create an embedding from a double array, narrowing each component to float.
+   *
+   * @param values Vector components
+   * @return Embedding
+   */
+  public static Embedding of(double[] values) {
+    if (values == null || values.length == 0) {
+      return EMPTY;
+    }
+    float[] converted = new float[values.length];
+    for (int i = 0; i < values.length; i++) {
+      converted[i] = (float) values[i];
+    }
+    return new Embedding(converted);
+  }
+
+  /**
+   * Create an embedding from a boxed list as returned by the embedding provider client.
+   *
+   * @param values Vector components
+   * @return Embedding
+   */
+  public static Embedding of(List<Double> values) {
+    if (values == null || values.isEmpty()) {
+      return EMPTY;
+    }
+    float[] converted = new float[values.size()];
+    for (int i = 0; i < converted.length; i++) {
+      converted[i] = values.get(i).floatValue();
+    }
+    return new Embedding(converted);
+  }
+
+  /** Number of dimensions of this vector. */
+  @JsonIgnore
+  public int dimensions() {
+    return values.length;
+  }
+
+  @JsonIgnore
+  public boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  /** Component at the given dimension. */
+  public float get(int index) {
+    return values[index];
+  }
+
+  /**
+   * Copy of the underlying values.
+   *
+   * @return New float array with the vector components
+   */
+  @JsonProperty("values")
+  public float[] toArray() {
+    return values.clone();
+  }
+
+  /**
+   * Boxed view for the Elasticsearch JSON boundary.
+   *
+   * @return Unmodifiable list of components
+   */
+  public List<Float> toList() {
+    List<Float> list = new ArrayList<>(values.length);
+    for (float value : values) {
+      list.add(value);
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Cosine similarity between this embedding and another one.
+   *
+   * @param other Other embedding
+   * @return Cosine similarity, or 0 when dimensions differ or either vector has zero norm
+   */
+  public double cosineSimilarity(Embedding other) {
+    if (other == null || isEmpty() || other.isEmpty() || values.length != other.values.length) {
+      return 0.0;
+    }
+    float[] a = values;
+    float[] b = other.values;
+    float dot = 0f;
+    float normA = 0f;
+    float normB = 0f;
+    for (int i = 0; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    if (normA == 0f || normB == 0f) {
+      return 0.0;
+    }
+    return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof Embedding other && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return "Embedding[dimensions=" + values.length + "]";
+  }
+}
@@ -0,0 +1,111 @@
+package io.github.semanticsearch.model;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Objects;
+
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import jakarta.persistence.*;
+
+/**
+ * Durable embedding for a piece of text, keyed by the content hash, the model that produced it and
+ * its dimensions. The vector is stored as little-endian float32 bytes.
+ */
+@Entity
+@Table(name = "embeddings")
+@EntityListeners(AuditingEntityListener.class)
+public class StoredEmbedding {
+
+  /** Upper bound on the stored vector, in bytes (16384 float32 dimensions). */
+  private static final int MAX_VECTOR_BYTES = 16384 * Float.BYTES;
+
+  /** Composite primary key. */
+  @Embeddable
+  public static class Key implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "content_hash", nullable = false)
+    private String contentHash;
+
+    @Column(name = "model", nullable = false)
+    private String model;
+
+    @Column(name = "dimensions", nullable = false)
+    private int dimensions;
+
+    protected Key() {}
+
+    public Key(String contentHash, String model, int dimensions) {
+      this.contentHash = contentHash;
+      this.model = model;
+      this.dimensions = dimensions;
+    }
+
+    public String getContentHash() {
+      return contentHash;
+    }
+
+    public String getModel() {
+      return model;
+    }
+
+    public int getDimensions() {
+      return dimensions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      return o instanceof Key other
+          && dimensions == other.dimensions
+          && Objects.equals(contentHash, other.contentHash)
+          && Objects.equals(model, other.model);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(contentHash, model, dimensions);
+    }
+  }
+
+  @EmbeddedId private Key id;
+
+  @Column(name = "vector", nullable = false, length = MAX_VECTOR_BYTES)
+  private byte[] vector;
+
+  @CreatedDate
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private Instant createdAt;
+
+  protected StoredEmbedding() {}
+
+  public StoredEmbedding(Key id, Embedding embedding) {
+    this.id = id;
+    ByteBuffer buffer =
+        ByteBuffer.allocate(embedding.dimensions() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asFloatBuffer().put(embedding.toArray());
+    this.vector = buffer.array();
+  }
+
+  public Key getId() {
+    return id;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  /** Decode the stored vector. */
+  public Embedding toEmbedding() {
+    float[] values = new float[vector.length / Float.BYTES];
+    ByteBuffer.wrap(vector).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+    return Embedding.of(values);
+  }
+}
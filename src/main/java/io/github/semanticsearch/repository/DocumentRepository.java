@@ -1,5 +1,6 @@
 package io.github.semanticsearch.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -7,9 +8,11 @@ import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import io.github.semanticsearch.model.Document;
 
@@ -69,4 +72,40 @@ public interface DocumentRepository extends JpaRepository<Document, UUID> {
 
   /** Find by exact title. */
   Optional<Document> findByTitle(String title);
+
+  /**
+   * Find the vector IDs currently recorded for documents.
+   *
+   * @param ids Document IDs
+   * @return Non-null vector IDs of the documents that exist
+   */
+  @Query("SELECT d.vectorId FROM Document d WHERE d.id IN :ids AND d.vectorId IS NOT NULL")
+  List<String> findVectorIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+  /**
+   * Mark documents as indexed under their own ID, the vector ID {@code
+   * IndexService.vectorIdOf} assigns. Only the two index columns are written, so concurrent edits
+   * to the rest of the row are kept. Pending changes are flushed first and the persistence context
+   * is cleared after, so documents read later in the same transaction see the update.
+   *
+   * @param ids Document IDs
+   * @return Number of documents updated
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE Document d SET d.indexed = true, d.vectorId = CAST(d.id AS String)"
+          + " WHERE d.id IN :ids")
+  int markIndexed(@Param("ids") Collection<UUID> ids);
+
+  /**
+   * Mark documents as not indexed, leaving the rest of the row untouched.
+   *
+   * @param ids Document IDs
+   * @return Number of documents updated
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE Document d SET d.indexed = false WHERE d.id IN :ids")
+  int markNotIndexed(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,26 @@
+package io.github.semanticsearch.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import io.github.semanticsearch.model.StoredEmbedding;
+
+/** Repository for the persistent embedding store. */
+@Repository
+public interface StoredEmbeddingRepository
+    extends JpaRepository<StoredEmbedding, StoredEmbedding.Key> {
+
+  /**
+   * Stored embeddings of several texts under one model, whatever their dimensions. Looking up by
+   * the configured dimensions would miss every row if the model returns a different size.
+   *
+   * @param contentHashes SHA-256 hashes of the texts
+   * @param model Embedding model
+   * @return Matching rows; a text may have one per dimension count
+   */
+  List<StoredEmbedding> findByIdContentHashInAndIdModel(
+      Collection<String> contentHashes, String model);
+}
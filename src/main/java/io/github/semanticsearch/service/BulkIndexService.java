@@ -0,0 +1,251 @@
+package io.github.semanticsearch.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.github.semanticsearch.cache.IndexGeneration;
+import io.github.semanticsearch.model.Document;
+import io.github.semanticsearch.model.Embedding;
+import io.github.semanticsearch.repository.DocumentRepository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Indexes documents through the Elasticsearch _bulk API. Operations are buffered by a {@link
+ * BulkIngester} and flushed when the buffer reaches the configured operation count or byte size,
+ * or when the flush interval elapses. Once the configured number of bulk requests is in flight,
+ * {@link #submit(Document)} blocks, which throttles producers to what the cluster can absorb. The
+ * outcome of every item is written back to the document's {@code indexed} flag.
+ *
+ * <p>Like the single-document path in {@link IndexService}, each bulk request waits for the next
+ * refresh, so by the time its outcome is recorded and the index generation advances the documents
+ * are visible to search, and a result cached under the new generation includes them.
+ *
+ * <p>In stub mode there is no round trip to amortize, so documents go straight to {@link
+ * IndexService}.
+ */
+@Service
+public class BulkIndexService {
+
+  private static final Logger log = LoggerFactory.getLogger(BulkIndexService.class);
+
+  private static final int STATUS_CONFLICT = 409;
+
+  private final ElasticsearchClient elasticsearchClient;
+  private final EmbeddingService embeddingService;
+  private final DocumentRepository documentRepository;
+  private final IndexService indexService;
+  private final IndexGeneration indexGeneration;
+
+  @Value("${elasticsearch.index.name:semantic-search}")
+  private String indexName;
+
+  @Value("${elasticsearch.stub-enabled:false}")
+  private boolean stubEnabled;
+
+  @Value("${elasticsearch.bulk.max-operations:1000}")
+  private int maxOperations;
+
+  @Value("${elasticsearch.bulk.max-size-bytes:5242880}")
+  private long maxSizeBytes;
+
+  @Value("${elasticsearch.bulk.flush-interval-ms:1000}")
+  private long flushIntervalMs;
+
+  @Value("${elasticsearch.bulk.max-concurrent-requests:2}")
+  private int maxConcurrentRequests;
+
+  private BulkIngester<PendingVector> ingester;
+
+  public BulkIndexService(
+      ElasticsearchClient elasticsearchClient,
+      EmbeddingService embeddingService,
+      DocumentRepository documentRepository,
+      IndexService indexService,
+      IndexGeneration indexGeneration) {
+    this.elasticsearchClient = elasticsearchClient;
+    this.embeddingService = embeddingService;
+    this.documentRepository = documentRepository;
+    this.indexService = indexService;
+    this.indexGeneration = indexGeneration;
+  }
+
+  @PostConstruct
+  void start() {
+    if (stubEnabled) {
+      return;
+    }
+    ingester =
+        BulkIngester.of(
+            b ->
+                b.client(elasticsearchClient)
+                    .maxOperations(maxOperations)
+                    .maxSize(maxSizeBytes)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .flushInterval(flushIntervalMs, TimeUnit.MILLISECONDS)
+                    .globalSettings(r -> r.refresh(Refresh.WaitFor))
+                    .listener(new IndexingListener()));
+  }
+
+  /**
+   * Queue a saved document for indexing. The vector is written under the document's ID with an
+   * external version from {@code updatedAt}, so re-indexing overwrites it in place and a replayed
+   * older write is rejected.
+   *
+   * @param document Persisted document to index
+   */
+  public void submit(Document document) {
+    submitAll(List.of(document));
+  }
+
+  /**
+   * Queue several saved documents for indexing. Their embeddings are generated with one batched
+   * {@link EmbeddingService#embedAll(List)} call.
+   *
+   * @param documents Persisted documents to index
+   * @return Number of documents submitted
+   */
+  public int submitAll(List<Document> documents) {
+    if (stubEnabled) {
+      documents.forEach(indexService::indexDocument);
+      return documents.size();
+    }
+    List<Embedding> embeddings =
+        embeddingService.embedAll(documents.stream().map(Document::getContent).toList());
+    int submitted = 0;
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      Embedding embedding = embeddings.get(i);
+      if (embedding.isEmpty()) {
+        log.warn("Skipping bulk indexing of document {}: no embedding", document.getId());
+        continue;
+      }
+      enqueue(document, embedding);
+      submitted++;
+    }
+    return submitted;
+  }
+
+  /** Send buffered operations now instead of waiting for a size or time trigger. */
+  public void flush() {
+    if (ingester != null) {
+      ingester.flush();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    if (ingester != null) {
+      ingester.close();
+    }
+  }
+
+  private void enqueue(Document document, Embedding embedding) {
+    String vectorId = IndexService.vectorIdOf(document);
+    Long version = IndexService.externalVersionOf(document);
+    Map<String, Object> source = indexService.toVectorSource(document, embedding);
+    ingester.add(
+        op ->
+            op.index(
+                i ->
+                    i.index(indexName)
+                        .id(vectorId)
+                        .version(version)
+                        .versionType(version != null ? VersionType.ExternalGte : null)
+                        .document(source)),
+        new PendingVector(document.getId(), vectorId));
+  }
+
+  /**
+   * Write the bulk outcome back with targeted updates of the index columns only. Loading and
+   * saving whole entities here would overwrite edits made while the bulk request was in flight.
+   */
+  private void recordOutcome(Map<UUID, String> indexed, List<UUID> failed) {
+    if (!indexed.isEmpty()) {
+      Set<String> currentVectorIds = new HashSet<>(indexed.values());
+      List<String> staleVectorIds =
+          documentRepository.findVectorIdsByIdIn(indexed.keySet()).stream()
+              .filter(vectorId -> !currentVectorIds.contains(vectorId))
+              .toList();
+      documentRepository.markIndexed(indexed.keySet());
+      indexGeneration.advance();
+      // Vectors written under the former random IDs
+      staleVectorIds.forEach(indexService::deleteDocumentVector);
+    }
+    if (!failed.isEmpty()) {
+      documentRepository.markNotIndexed(failed);
+    }
+  }
+
+  /** Document and vector ID carried with each bulk operation back to the listener. */
+  record PendingVector(UUID documentId, String vectorId) {}
+
+  /** Records the outcome of each bulk request; package-private so tests can feed it responses. */
+  class IndexingListener implements BulkListener<PendingVector> {
+
+    @Override
+    public void beforeBulk(long executionId, BulkRequest request, List<PendingVector> contexts) {
+      log.debug("Sending bulk request {} with {} operations", executionId, contexts.size());
+    }
+
+    @Override
+    public void afterBulk(
+        long executionId,
+        BulkRequest request,
+        List<PendingVector> contexts,
+        BulkResponse response) {
+      Map<UUID, String> indexed = new HashMap<>();
+      List<UUID> failed = new ArrayList<>();
+      List<BulkResponseItem> items = response.items();
+      for (int i = 0; i < items.size(); i++) {
+        BulkResponseItem item = items.get(i);
+        PendingVector pending = contexts.get(i);
+        if (item.error() == null || item.status() == STATUS_CONFLICT) {
+          // A conflict means a newer version of the document is already indexed
+          indexed.put(pending.documentId(), pending.vectorId());
+        } else {
+          failed.add(pending.documentId());
+          log.warn(
+              "Bulk indexing failed for document {}: {}",
+              pending.documentId(),
+              item.error().reason());
+        }
+      }
+      log.info(
+          "Bulk request {} completed: {} indexed, {} failed",
+          executionId,
+          indexed.size(),
+          failed.size());
+      recordOutcome(indexed, failed);
+    }
+
+    @Override
+    public void afterBulk(
+        long executionId, BulkRequest request, List<PendingVector> contexts, Throwable failure) {
+      log.error(
+          "Bulk request {} with {} operations failed", executionId, contexts.size(), failure);
+      recordOutcome(Map.of(), contexts.stream().map(PendingVector::documentId).toList());
+    }
+  }
+}
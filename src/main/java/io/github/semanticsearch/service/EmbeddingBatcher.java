@@ -0,0 +1,188 @@
+package io.github.semanticsearch.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.semanticsearch.model.Embedding;
+
+/**
+ * Coalesces concurrent single-text embedding requests into multi-input provider calls. The first
+ * text to arrive opens a batch that is sent when the window elapses or the batch reaches {@code
+ * maxItems}, whichever comes first. Each caller gets its own future; a text that is already
+ * waiting or in flight shares the existing future instead of being sent again.
+ *
+ * <p>At most {@code maxConcurrentBatches} provider calls run at once; further full batches queue
+ * behind them. A failed call fails every caller in its batch with the same exception, so callers
+ * should not each count it as a separate provider failure.
+ */
+final class EmbeddingBatcher implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(EmbeddingBatcher.class);
+
+  private final Function<List<String>, List<Embedding>> provider;
+  private final long windowNanos;
+  private final int maxItems;
+  private final ScheduledExecutorService timer;
+  private final ExecutorService dispatcher;
+
+  private final Map<String, CompletableFuture<Embedding>> inFlight = new ConcurrentHashMap<>();
+  private final Object lock = new Object();
+  private Map<String, CompletableFuture<Embedding>> pending = new LinkedHashMap<>();
+  private ScheduledFuture<?> scheduledFlush;
+
+  /**
+   * @param provider Sends one batch to the provider and returns embeddings in input order
+   * @param window How long the first request of a batch waits for company
+   * @param maxItems Batch size that triggers an immediate send
+   * @param maxConcurrentBatches Provider calls allowed in flight at once
+   */
+  EmbeddingBatcher(
+      Function<List<String>, List<Embedding>> provider,
+      Duration window,
+      int maxItems,
+      int maxConcurrentBatches) {
+    this.provider = provider;
+    this.windowNanos = Math.max(0, window.toNanos());
+    this.maxItems = Math.max(1, maxItems);
+    this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("embedding-batch-timer"));
+    this.dispatcher =
+        Executors.newFixedThreadPool(
+            Math.max(1, maxConcurrentBatches), daemonThreads("embedding-batch"));
+  }
+
+  /**
+   * Embed one text as part of the next batch, blocking until its batch completes.
+   *
+   * @param text Text to embed
+   * @return Embedding for the text
+   */
+  Embedding embed(String text) {
+    try {
+      return submit(text).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Queue a text for the next batch.
+   *
+   * @param text Text to embed
+   * @return Future completed when the batch containing the text returns
+   */
+  CompletableFuture<Embedding> submit(String text) {
+    CompletableFuture<Embedding> existing = inFlight.get(text);
+    if (existing != null) {
+      return existing;
+    }
+    Map<String, CompletableFuture<Embedding>> full = null;
+    CompletableFuture<Embedding> future;
+    synchronized (lock) {
+      future = inFlight.get(text);
+      if (future != null) {
+        return future;
+      }
+      future = new CompletableFuture<>();
+      inFlight.put(text, future);
+      pending.put(text, future);
+      if (pending.size() >= maxItems) {
+        full = takePending();
+      } else if (pending.size() == 1) {
+        scheduledFlush = timer.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+    if (full != null) {
+      dispatch(full);
+    }
+    return future;
+  }
+
+  /** Send whatever is waiting without waiting for the window. */
+  void flush() {
+    Map<String, CompletableFuture<Embedding>> batch;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = takePending();
+    }
+    dispatch(batch);
+  }
+
+  @Override
+  public void close() {
+    flush();
+    timer.shutdownNow();
+    dispatcher.shutdown();
+  }
+
+  /** Detach the pending batch. Caller holds the lock. */
+  private Map<String, CompletableFuture<Embedding>> takePending() {
+    Map<String, CompletableFuture<Embedding>> batch = pending;
+    pending = new LinkedHashMap<>();
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    return batch;
+  }
+
+  private void dispatch(Map<String, CompletableFuture<Embedding>> batch) {
+    dispatcher.execute(() -> send(batch));
+  }
+
+  private void send(Map<String, CompletableFuture<Embedding>> batch) {
+    List<String> texts = new ArrayList<>(batch.keySet());
+    try {
+      List<Embedding> embeddings = provider.apply(texts);
+      log.debug("Embedded batch of {} coalesced requests", texts.size());
+      for (int i = 0; i < texts.size(); i++) {
+        Embedding embedding = i < embeddings.size() ? embeddings.get(i) : Embedding.EMPTY;
+        complete(texts.get(i), batch.get(texts.get(i)), embedding, null);
+      }
+    } catch (RuntimeException e) {
+      for (String text : texts) {
+        complete(text, batch.get(text), null, e);
+      }
+    }
+  }
+
+  private void complete(
+      String text, CompletableFuture<Embedding> future, Embedding embedding, Throwable failure) {
+    inFlight.remove(text, future);
+    if (failure != null) {
+      future.completeExceptionally(failure);
+    } else {
+      future.complete(embedding);
+    }
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
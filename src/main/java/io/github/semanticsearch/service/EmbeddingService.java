@@ -1,96 +1,401 @@
 package io.github.semanticsearch.service;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.stream.Collectors;
+import java.time.Duration;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.Nullable;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
-import com.theokanning.openai.embedding.Embedding;
 import com.theokanning.openai.embedding.EmbeddingRequest;
 import com.theokanning.openai.service.OpenAiService;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.semanticsearch.model.Embedding;
+import io.github.semanticsearch.model.StoredEmbedding;
+import io.github.semanticsearch.repository.StoredEmbeddingRepository;
+import io.github.semanticsearch.util.ContentHasher;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Service for generating text embeddings via the configured provider. Includes caching, retry, and
  * circuit breaker patterns.
+ *
+ * <p>Every generated vector is also written to the persistent embedding store, keyed by the text's
+ * SHA-256, the model and the dimensions, and looked up there before the provider is called. Cached
+ * and stored entries therefore survive Redis expiry, and re-indexing unchanged text makes no
+ * provider calls.
  */
 @Service
 public class EmbeddingService {
 
   private static final Logger log = LoggerFactory.getLogger(EmbeddingService.class);
 
+  /** Name of the embedding cache in the {@link CacheManager}. */
+  public static final String CACHE_NAME = "embeddings";
+
+  private static final String RESILIENCE_NAME = "embedding";
+
+  /** Rough characters-per-token ratio used to size batches without a tokenizer. */
+  private static final int CHARS_PER_TOKEN = 4;
+
   private final OpenAiService openAiService;
+  private final CacheManager cacheManager;
+  private final RetryRegistry retryRegistry;
+  private final CircuitBreakerRegistry circuitBreakerRegistry;
+  private final StoredEmbeddingRepository storedEmbeddingRepository;
 
   @Value("${embedding.model:text-embedding-3-small}")
   private String embeddingModel;
 
+  @Value("${embedding.dimensions:1536}")
+  private int embeddingDimensions;
+
   @Value("${embedding.stub-enabled:false}")
   private boolean stubEnabled;
 
   @Value("${embedding.stub-dimensions:64}")
   private int stubDimensions;
 
-  public EmbeddingService(@Nullable OpenAiService openAiService) {
+  @Value("${embedding.batch.max-items:100}")
+  private int batchMaxItems;
+
+  @Value("${embedding.batch.max-tokens:50000}")
+  private int batchMaxTokens;
+
+  @Value("${embedding.batcher.enabled:true}")
+  private boolean batcherEnabled;
+
+  @Value("${embedding.batcher.window-ms:5}")
+  private long batcherWindowMs;
+
+  @Value("${embedding.batcher.max-items:64}")
+  private int batcherMaxItems;
+
+  @Value("${embedding.batcher.max-concurrent-batches:4}")
+  private int batcherMaxConcurrentBatches;
+
+  private EmbeddingBatcher batcher;
+
+  public EmbeddingService(
+      @Nullable OpenAiService openAiService,
+      CacheManager cacheManager,
+      RetryRegistry retryRegistry,
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      StoredEmbeddingRepository storedEmbeddingRepository) {
     this.openAiService = openAiService;
+    this.cacheManager = cacheManager;
+    this.retryRegistry = retryRegistry;
+    this.circuitBreakerRegistry = circuitBreakerRegistry;
+    this.storedEmbeddingRepository = storedEmbeddingRepository;
+  }
+
+  @PostConstruct
+  void startBatcher() {
+    if (batcherEnabled && !stubEnabled && openAiService != null) {
+      batcher =
+          new EmbeddingBatcher(
+              this::embedBatch,
+              Duration.ofMillis(batcherWindowMs),
+              batcherMaxItems,
+              batcherMaxConcurrentBatches);
+    }
+  }
+
+  @PreDestroy
+  void stopBatcher() {
+    if (batcher != null) {
+      batcher.close();
+    }
+  }
+
+  /**
+   * Cache key for a text: the active model and the text's SHA-256, so different texts cannot share
+   * an entry and switching models does not serve stale vectors.
+   *
+   * @param text Text to embed
+   * @return Cache key
+   */
+  public String cacheKey(String text) {
+    return modelName() + ":" + ContentHasher.sha256(text);
   }
 
   /**
-   * Generate embedding vector for the given text. Uses caching to avoid redundant API calls for the
-   * same text.
+   * Generate embedding vector for the given text. Uses caching and the persistent embedding store
+   * to avoid redundant API calls for the same text. Misses from concurrent callers are coalesced
+   * into shared provider calls by the {@link EmbeddingBatcher} unless {@code
+   * embedding.batcher.enabled} is false. Retry and the circuit breaker guard each provider call,
+   * not each caller, so a failed batch counts once however many callers it served. A call that
+   * still fails falls back to a stub vector, which like an empty result is neither cached nor
+   * stored, so the real vector replaces it once the provider recovers.
    *
    * @param text Text to generate embedding for
-   * @return List of double values representing the embedding vector
+   * @return Embedding vector, or {@link Embedding#EMPTY} when the provider returned nothing
    */
-  @Cacheable(value = "embeddings", key = "#text.hashCode()")
-  @Retry(name = "embedding")
-  @CircuitBreaker(name = "embedding", fallbackMethod = "fallbackEmbed")
-  public List<Double> embed(String text) {
+  public Embedding embed(String text) {
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    String key = cacheKey(text);
+    Embedding cached = cache != null ? cache.get(key, Embedding.class) : null;
+    if (cached != null) {
+      return cached;
+    }
+
+    String contentHash = ContentHasher.sha256(text);
+    Embedding embedding = findStored(List.of(contentHash)).get(contentHash);
+    if (embedding == null) {
+      try {
+        embedding = generate(text);
+      } catch (RuntimeException e) {
+        return fallbackEmbed(text, e);
+      }
+      if (embedding.isEmpty()) {
+        return embedding;
+      }
+      store(Map.of(contentHash, embedding));
+    }
+    if (cache != null) {
+      cache.put(key, embedding);
+    }
+    return embedding;
+  }
+
+  private Embedding generate(String text) {
     if (stubEnabled || openAiService == null) {
       return generateStubVector(text);
     }
 
     log.debug("Generating embedding for text: {}", text.substring(0, Math.min(50, text.length())));
 
-    EmbeddingRequest request =
-        EmbeddingRequest.builder()
-            .model(embeddingModel)
-            .input(Collections.singletonList(text))
-            .build();
+    Embedding embedding =
+        batcher != null ? batcher.embed(text) : embedBatch(List.of(text)).get(0);
+    if (embedding.isEmpty()) {
+      log.warn("No embeddings returned from embedding provider");
+    } else {
+      log.debug("Successfully generated embedding with {} dimensions", embedding.dimensions());
+    }
+    return embedding;
+  }
 
-    List<Embedding> embeddings = openAiService.createEmbeddings(request).getData();
+  /**
+   * Generate embeddings for several texts. Texts already in the {@code embeddings} cache are served
+   * from it, then the rest are looked up in the persistent store in one query. Only the remaining
+   * distinct texts are sent to the provider, in batches bounded by {@code
+   * embedding.batch.max-items} and {@code embedding.batch.max-tokens}, each guarded by the same
+   * retry and circuit breaker as {@link #embed(String)}. A batch that still fails falls back to
+   * stub vectors, which are neither cached nor stored.
+   *
+   * @param texts Texts to embed
+   * @return Embeddings in the same order as the input
+   */
+  public List<Embedding> embedAll(List<String> texts) {
+    Embedding[] results = new Embedding[texts.size()];
+    Cache cache = cacheManager.getCache(CACHE_NAME);
 
-    if (embeddings.isEmpty()) {
-      log.warn("No embeddings returned from embedding provider");
-      return Collections.emptyList();
+    // Distinct cache misses, each with every input position that needs its embedding
+    Map<String, List<Integer>> misses = new LinkedHashMap<>();
+    for (int i = 0; i < texts.size(); i++) {
+      String text = texts.get(i);
+      Embedding cached = cache != null ? cache.get(cacheKey(text), Embedding.class) : null;
+      if (cached != null) {
+        results[i] = cached;
+      } else {
+        misses.computeIfAbsent(text, t -> new ArrayList<>()).add(i);
+      }
     }
 
+    Map<String, String> hashes = new HashMap<>();
+    misses.keySet().forEach(text -> hashes.put(text, ContentHasher.sha256(text)));
+    Map<String, Embedding> stored = findStored(hashes.values());
+    List<String> toGenerate = new ArrayList<>();
+    for (String text : misses.keySet()) {
+      Embedding embedding = stored.get(hashes.get(text));
+      if (embedding == null) {
+        toGenerate.add(text);
+        continue;
+      }
+      if (cache != null) {
+        cache.put(cacheKey(text), embedding);
+      }
+      for (int position : misses.get(text)) {
+        results[position] = embedding;
+      }
+    }
     log.debug(
-        "Successfully generated embedding with {} dimensions",
-        embeddings.get(0).getEmbedding().size());
-    return embeddings.get(0).getEmbedding();
+        "Embedding {} texts: {} distinct texts not cached, {} not stored",
+        texts.size(),
+        misses.size(),
+        toGenerate.size());
+
+    for (List<String> batch : partition(toGenerate)) {
+      List<Embedding> embedded;
+      boolean cacheable = true;
+      try {
+        embedded = embedBatch(batch);
+      } catch (RuntimeException e) {
+        log.warn(
+            "Embedding provider unavailable; using deterministic stub vectors for {} texts",
+            batch.size(),
+            e);
+        embedded = batch.stream().map(this::generateStubVector).toList();
+        cacheable = false;
+      }
+      Map<String, Embedding> generated = new HashMap<>();
+      for (int j = 0; j < batch.size(); j++) {
+        String text = batch.get(j);
+        Embedding embedding = embedded.get(j);
+        if (cacheable && !embedding.isEmpty()) {
+          generated.put(hashes.get(text), embedding);
+          if (cache != null) {
+            cache.put(cacheKey(text), embedding);
+          }
+        }
+        for (int position : misses.get(text)) {
+          results[position] = embedding;
+        }
+      }
+      store(generated);
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Stored embeddings for the given content hashes under the active model, keyed by hash. Rows are
+   * matched on hash and model only, since {@code embedding.dimensions} may not be what the model
+   * actually returns; a row with the configured dimensions wins when a text has several. A store
+   * failure is treated as all misses rather than failing the embedding request.
+   */
+  private Map<String, Embedding> findStored(Collection<String> contentHashes) {
+    if (contentHashes.isEmpty()) {
+      return Map.of();
+    }
+    Map<String, Embedding> found = new HashMap<>();
+    try {
+      for (StoredEmbedding stored :
+          storedEmbeddingRepository.findByIdContentHashInAndIdModel(contentHashes, modelName())) {
+        String contentHash = stored.getId().getContentHash();
+        if (!found.containsKey(contentHash)
+            || stored.getId().getDimensions() == expectedDimensions()) {
+          found.put(contentHash, stored.toEmbedding());
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn(
+          "Embedding store lookup failed; treating {} texts as misses", contentHashes.size(), e);
+    }
+    return found;
+  }
+
+  /** Persist freshly generated embeddings keyed by content hash. Empty vectors are skipped. */
+  private void store(Map<String, Embedding> embeddings) {
+    List<StoredEmbedding> rows = new ArrayList<>(embeddings.size());
+    embeddings.forEach(
+        (contentHash, embedding) -> {
+          if (!embedding.isEmpty()) {
+            rows.add(
+                new StoredEmbedding(
+                    new StoredEmbedding.Key(contentHash, modelName(), embedding.dimensions()),
+                    embedding));
+          }
+        });
+    if (rows.isEmpty()) {
+      return;
+    }
+    try {
+      storedEmbeddingRepository.saveAll(rows);
+    } catch (RuntimeException e) {
+      log.warn("Failed to persist {} embeddings; a later miss regenerates them", rows.size(), e);
+    }
+  }
+
+  /** Model behind the vectors in the current mode; stub vectors are kept apart from real ones. */
+  private String modelName() {
+    return stubEnabled || openAiService == null ? "stub" : embeddingModel;
+  }
+
+  private int expectedDimensions() {
+    return stubEnabled || openAiService == null ? Math.max(4, stubDimensions) : embeddingDimensions;
+  }
+
+  private List<Embedding> embedBatch(List<String> batch) {
+    if (stubEnabled || openAiService == null) {
+      return batch.stream().map(this::generateStubVector).toList();
+    }
+    return retryRegistry
+        .retry(RESILIENCE_NAME)
+        .executeSupplier(
+            () ->
+                circuitBreakerRegistry
+                    .circuitBreaker(RESILIENCE_NAME)
+                    .executeSupplier(() -> requestBatch(batch)));
+  }
+
+  private List<Embedding> requestBatch(List<String> batch) {
+    log.debug("Requesting {} embeddings in one provider call", batch.size());
+    EmbeddingRequest request =
+        EmbeddingRequest.builder().model(embeddingModel).input(batch).build();
+    List<com.theokanning.openai.embedding.Embedding> data =
+        openAiService.createEmbeddings(request).getData();
+
+    // The provider tags each vector with the position of its input
+    Embedding[] ordered = new Embedding[batch.size()];
+    Arrays.fill(ordered, Embedding.EMPTY);
+    for (com.theokanning.openai.embedding.Embedding item : data) {
+      Integer index = item.getIndex();
+      if (index != null && index >= 0 && index < ordered.length) {
+        ordered[index] = Embedding.of(item.getEmbedding());
+      }
+    }
+    return Arrays.asList(ordered);
+  }
+
+  /** Split texts into provider requests that respect the item and token limits. */
+  private List<List<String>> partition(List<String> texts) {
+    List<List<String>> batches = new ArrayList<>();
+    List<String> current = new ArrayList<>();
+    long tokens = 0;
+    for (String text : texts) {
+      long estimate = text.length() / CHARS_PER_TOKEN + 1;
+      if (!current.isEmpty()
+          && (current.size() >= batchMaxItems || tokens + estimate > batchMaxTokens)) {
+        batches.add(current);
+        current = new ArrayList<>();
+        tokens = 0;
+      }
+      current.add(text);
+      tokens += estimate;
+    }
+    if (!current.isEmpty()) {
+      batches.add(current);
+    }
+    return batches;
   }
 
   /**
-   * Fallback method for embedding generation when the provider fails. Returns an empty list as
-   * fallback.
+   * Fallback for embedding generation when the provider fails or the circuit is open. Returns a
+   * deterministic stub vector as fallback.
    *
    * @param text Text that was being embedded
    * @param e Exception that triggered the fallback
-   * @return Empty list as fallback
+   * @return Stub embedding as fallback
    */
-  private List<Double> fallbackEmbed(String text, Exception e) {
+  private Embedding fallbackEmbed(String text, Exception e) {
     log.warn(
         "Embedding provider unavailable; using deterministic stub vector for text: {}",
         text.substring(0, Math.min(50, text.length())),
@@ -98,29 +403,29 @@ public class EmbeddingService {
     return generateStubVector(text);
   }
 
-  private List<Double> generateStubVector(String text) {
+  private Embedding generateStubVector(String text) {
     try {
       MessageDigest digest = MessageDigest.getInstance("SHA-256");
       byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
       double[] vector = new double[Math.max(4, stubDimensions)];
 
+      double sumSquares = 0.0;
       for (int i = 0; i < vector.length; i++) {
         int b = hash[i % hash.length] & 0xFF;
         vector[i] = (b / 255.0) * 2.0 - 1.0; // normalize to [-1,1]
+        sumSquares += vector[i] * vector[i];
       }
 
-      double norm =
-          Math.sqrt(
-              java.util.Arrays.stream(vector).map(v -> v * v).sum());
+      double norm = Math.sqrt(sumSquares);
       if (norm > 0) {
         for (int i = 0; i < vector.length; i++) {
           vector[i] = vector[i] / norm;
         }
       }
-      return java.util.Arrays.stream(vector).boxed().collect(Collectors.toList());
+      return Embedding.of(vector);
     } catch (NoSuchAlgorithmException ex) {
       log.error("Failed to create stub embedding vector", ex);
-      return Collections.emptyList();
+      return Embedding.EMPTY;
     }
   }
 }
@@ -5,39 +5,52 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
+import io.github.semanticsearch.model.Embedding;
 import io.github.semanticsearch.model.SearchRequest;
 import io.github.semanticsearch.model.SearchResult;
 import io.github.semanticsearch.repository.DocumentRepository;
 
 /**
  * Simple evaluation harness for semantic search. Computes MRR and NDCG@k for a small gold set
- * seeded in the database.
+ * seeded in the database. With the int8 or binary local backend it also reports how many of the
+ * exact top-k the quantized search returns for each query.
  */
 @Service
 public class EvalService {
 
   private final SearchService searchService;
   private final DocumentRepository documentRepository;
-
-  public EvalService(SearchService searchService, DocumentRepository documentRepository) {
+  private final EmbeddingService embeddingService;
+  private final LocalIndexService localIndexService;
+
+  public EvalService(
+      SearchService searchService,
+      DocumentRepository documentRepository,
+      EmbeddingService embeddingService,
+      LocalIndexService localIndexService) {
     this.searchService = searchService;
     this.documentRepository = documentRepository;
+    this.embeddingService = embeddingService;
+    this.localIndexService = localIndexService;
   }
 
   public EvalResult runEval(List<EvalQuery> queries, int k) {
     if (queries == null || queries.isEmpty()) {
-      return new EvalResult(0, 0.0, 0.0, 0.0, Collections.emptyList());
+      return new EvalResult(0, 0.0, 0.0, 0.0, null, Collections.emptyList());
     }
 
     List<QueryEval> perQuery = new ArrayList<>();
     double mrrSum = 0.0;
     double ndcgSum = 0.0;
     double recallSum = 0.0;
+    double quantizedRecallSum = 0.0;
+    int quantizedQueries = 0;
 
     for (EvalQuery q : queries) {
       SearchRequest request =
@@ -58,14 +71,27 @@ public class EvalService {
       mrrSum += rr;
       ndcgSum += ndcg;
       recallSum += recall;
+      OptionalDouble quantizedRecall = quantizedRecall(q.query(), k);
+      if (quantizedRecall.isPresent()) {
+        quantizedRecallSum += quantizedRecall.getAsDouble();
+        quantizedQueries++;
+      }
 
-      perQuery.add(new QueryEval(q.query(), rr, ndcg, recall));
+      perQuery.add(
+          new QueryEval(
+              q.query(),
+              rr,
+              ndcg,
+              recall,
+              quantizedRecall.isPresent() ? quantizedRecall.getAsDouble() : null));
     }
 
     double mrr = mrrSum / queries.size();
     double ndcg = ndcgSum / queries.size();
     double recall = recallSum / queries.size();
-    return new EvalResult(queries.size(), mrr, ndcg, recall, perQuery);
+    Double quantizedRecall =
+        quantizedQueries > 0 ? quantizedRecallSum / quantizedQueries : null;
+    return new EvalResult(queries.size(), mrr, ndcg, recall, quantizedRecall, perQuery);
   }
 
   public EvalResult runCuratedEval(int k) {
@@ -109,6 +135,14 @@ public class EvalService {
     return dcg / idcg;
   }
 
+  /** Recall of the quantized local index against its exact top-k, when int8 or binary is used. */
+  private OptionalDouble quantizedRecall(String query, int k) {
+    Embedding queryVector = embeddingService.embed(query);
+    return queryVector != null
+        ? localIndexService.quantizedRecall(queryVector, k)
+        : OptionalDouble.empty();
+  }
+
   private double recall(List<UUID> hits, List<UUID> gold, int k) {
     if (gold == null || gold.isEmpty()) {
       return 0.0;
@@ -119,9 +153,18 @@ public class EvalService {
 
   public record EvalQuery(String query, List<UUID> relevantDocumentIds) {}
 
-  public record QueryEval(String query, double rr, double ndcg, double recall) {}
-
-  public record EvalResult(int totalQueries, double mrr, double ndcg, double recallAtK, List<QueryEval> details) {}
+  /** Per-query metrics; {@code quantizedRecall} is null unless a quantized backend is used. */
+  public record QueryEval(
+      String query, double rr, double ndcg, double recall, Double quantizedRecall) {}
+
+  /** Aggregate metrics; {@code quantizedRecallAtK} is null unless a quantized backend is used. */
+  public record EvalResult(
+      int totalQueries,
+      double mrr,
+      double ndcg,
+      double recallAtK,
+      Double quantizedRecallAtK,
+      List<QueryEval> details) {}
 
   private List<UUID> lookup(String title) {
     return documentRepository
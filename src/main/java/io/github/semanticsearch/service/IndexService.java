@@ -1,28 +1,41 @@
 package io.github.semanticsearch.service;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.DoubleUnaryOperator;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.github.semanticsearch.cache.IndexGeneration;
 import io.github.semanticsearch.model.Document;
+import io.github.semanticsearch.model.Embedding;
 import io.github.semanticsearch.repository.DocumentRepository;
+import io.github.semanticsearch.vector.VectorFilter;
+import io.github.semanticsearch.vector.VectorMatch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
 import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.json.JsonData;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.util.ObjectBuilder;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 /**
  * Service for indexing and managing document vectors in Elasticsearch. Handles document indexing,
  * updating, and deletion.
@@ -32,9 +45,62 @@ public class IndexService {
 
   private static final Logger log = LoggerFactory.getLogger(IndexService.class);
 
+  private static final String SEARCH_MODE_SCRIPT = "script";
+
+  /** Upper bound Elasticsearch enforces on {@code num_candidates}. */
+  private static final int MAX_NUM_CANDIDATES = 10_000;
+
+  private static final int STATUS_CONFLICT = 409;
+
+  private static final String DOCUMENT_ID_FIELD = "document_id";
+
+  /** Keyword field holding the document's {@link VectorFilter} tags. */
+  private static final String FILTER_TAGS_FIELD = "filter_tags";
+
+  /** {@code _source} fields read back when hits are hydrated from the index. */
+  private static final List<String> SNAPSHOT_FIELDS =
+      List.of(DOCUMENT_ID_FIELD, "title", "snippet", "metadata", "created_at", "updated_at");
+
+  /** A vector search match, with the denormalized document when it was requested and stored. */
+  public record SimilarDocument(UUID documentId, double score, @Nullable Document snapshot) {}
+
+  /** Typed view of a search hit's filtered {@code _source}. */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record VectorHit(
+      @JsonProperty(DOCUMENT_ID_FIELD) String documentId,
+      @JsonProperty("title") String title,
+      @JsonProperty("snippet") String snippet,
+      @JsonProperty("metadata") Map<String, String> metadata,
+      @JsonProperty("created_at") Long createdAt,
+      @JsonProperty("updated_at") Long updatedAt) {
+
+    /**
+     * Read-only document rebuilt from the denormalized fields, with the snippet as its content.
+     * Null when the hit carries no denormalized fields, e.g. it was indexed before they existed.
+     */
+    @Nullable
+    Document toSnapshot() {
+      if (title == null) {
+        return null;
+      }
+      return new Document(
+          UUID.fromString(documentId),
+          title,
+          snippet,
+          null,
+          metadata,
+          documentId,
+          true,
+          createdAt != null ? Instant.ofEpochMilli(createdAt) : null,
+          updatedAt != null ? Instant.ofEpochMilli(updatedAt) : null);
+    }
+  }
+
   private final ElasticsearchClient elasticsearchClient;
   private final EmbeddingService embeddingService;
   private final DocumentRepository documentRepository;
+  private final LocalIndexService localIndexService;
+  private final IndexGeneration indexGeneration;
 
   @Value("${elasticsearch.index.name:semantic-search}")
   private String indexName;
@@ -45,20 +111,33 @@ public class IndexService {
   @Value("${elasticsearch.stub-enabled:false}")
   private boolean stubEnabled;
 
-  private final ConcurrentMap<String, List<Double>> stubVectors = new ConcurrentHashMap<>();
-  private final ConcurrentMap<UUID, String> stubDocToVector = new ConcurrentHashMap<>();
+  @Value("${elasticsearch.search.mode:knn}")
+  private String searchMode;
+
+  @Value("${elasticsearch.search.num-candidates:100}")
+  private int numCandidates;
+
+  @Value("${elasticsearch.index.snippet-length:500}")
+  private int snippetLength;
 
   public IndexService(
       ElasticsearchClient elasticsearchClient,
       EmbeddingService embeddingService,
-      DocumentRepository documentRepository) {
+      DocumentRepository documentRepository,
+      LocalIndexService localIndexService,
+      IndexGeneration indexGeneration) {
     this.elasticsearchClient = elasticsearchClient;
     this.embeddingService = embeddingService;
     this.documentRepository = documentRepository;
+    this.localIndexService = localIndexService;
+    this.indexGeneration = indexGeneration;
   }
 
   /**
    * Initialize the Elasticsearch index if it doesn't exist. Sets up the vector search capabilities.
+   * The vector is indexed for kNN but left out of {@code _source}, so hits never carry it back.
+   * Title, a content snippet, metadata and timestamps are stored unindexed so search results can
+   * be built from the hits alone; metadata is searchable only through the filter tags.
    */
   public void initializeIndex() {
     if (stubEnabled) {
@@ -84,7 +163,8 @@ public class IndexService {
                                         s -> s.numberOfShards("3").numberOfReplicas("1")))
                                 .mappings(
                                     m ->
-                                        m.properties(
+                                        m.source(src -> src.excludes("vector"))
+                                            .properties(
                                                 "vector",
                                                 p ->
                                                     p.denseVector(
@@ -93,7 +173,20 @@ public class IndexService {
                                                                 .index(true)
                                                                 .similarity("cosine")))
                                             .properties("document_id", p -> p.keyword(k -> k))
-                                            .properties("content_hash", p -> p.keyword(k -> k)))));
+                                            .properties("content_hash", p -> p.keyword(k -> k))
+                                            .properties(
+                                                FILTER_TAGS_FIELD, p -> p.keyword(k -> k))
+                                            .properties("title", p -> p.text(t -> t.index(false)))
+                                            .properties(
+                                                "snippet", p -> p.text(t -> t.index(false)))
+                                            .properties(
+                                                "metadata", p -> p.object(o -> o.enabled(false)))
+                                            .properties(
+                                                "created_at",
+                                                p -> p.date(d -> d.format("epoch_millis")))
+                                            .properties(
+                                                "updated_at",
+                                                p -> p.date(d -> d.format("epoch_millis"))))));
 
         log.info("Index created: {}, acknowledged: {}", indexName, createResponse.acknowledged());
       } else {
@@ -106,7 +199,67 @@ public class IndexService {
   }
 
   /**
-   * Index a document in Elasticsearch. Generates embedding vector and stores it in Elasticsearch.
+   * Elasticsearch {@code _id} of a document's vector: the document UUID, so indexing the same
+   * document again overwrites its vector in place.
+   *
+   * @param document Persisted document
+   * @return Vector ID
+   */
+  public static String vectorIdOf(Document document) {
+    return document.getId().toString();
+  }
+
+  /**
+   * External version for a document's vector, taken from {@code updatedAt}. Writes use {@code
+   * external_gte}, so a retry of the same write succeeds and a late write of older content is
+   * rejected instead of overwriting newer content.
+   *
+   * @param document Persisted document
+   * @return Epoch milliseconds of the last update, or null when the document has none yet
+   */
+  @Nullable
+  public static Long externalVersionOf(Document document) {
+    return document.getUpdatedAt() != null ? document.getUpdatedAt().toEpochMilli() : null;
+  }
+
+  /**
+   * Elasticsearch {@code _source} for a document's vector: the vector itself, the keys used for
+   * lookups and filtering (including the metadata filter tags), and the denormalized fields search
+   * results can be hydrated from.
+   *
+   * @param document Persisted document
+   * @param embedding Embedding of the document content
+   * @return Source map
+   */
+  public Map<String, Object> toVectorSource(Document document, Embedding embedding) {
+    String content = document.getContent();
+    Map<String, Object> source = new HashMap<>();
+    source.put("vector", JsonData.of(embedding.toArray()));
+    source.put(DOCUMENT_ID_FIELD, document.getId().toString());
+    source.put("content_hash", document.getContentHash());
+    source.put(FILTER_TAGS_FIELD, List.of(VectorFilter.tags(document.getMetadata())));
+    source.put("title", document.getTitle());
+    source.put(
+        "snippet",
+        content != null && content.length() > snippetLength
+            ? content.substring(0, snippetLength)
+            : content);
+    source.put("metadata", document.getMetadata());
+    if (document.getCreatedAt() != null) {
+      source.put("created_at", document.getCreatedAt().toEpochMilli());
+    }
+    if (document.getUpdatedAt() != null) {
+      source.put("updated_at", document.getUpdatedAt().toEpochMilli());
+    }
+    return source;
+  }
+
+  /**
+   * Index a document in Elasticsearch. Generates embedding vector and upserts it under the
+   * document's ID. The write waits for the next refresh, and the index generation advances only
+   * after the transaction commits, so it never moves before the document is searchable and saved.
+   * If a newer version of the document is already indexed, the given copy is stale: only its index
+   * columns are updated, and the stored document is returned.
    *
    * @param document Document to index
    * @return Updated document with vector ID
@@ -118,31 +271,41 @@ public class IndexService {
     }
     try {
       // Generate embedding for document content
-      List<Double> embedding = embeddingService.embed(document.getContent());
+      Embedding embedding = embeddingService.embed(document.getContent());
       if (embedding.isEmpty()) {
         log.error("Failed to generate embedding for document: {}", document.getId());
         return document;
       }
 
-      // Create vector document in Elasticsearch
-      String vectorId = UUID.randomUUID().toString();
-      IndexResponse response =
-          elasticsearchClient.index(
-              i ->
-                  i.index(indexName)
-                      .id(vectorId)
-                      .document(
-                          Map.of(
-                              "vector", co.elastic.clients.json.JsonData.of(embedding),
-                              "document_id", document.getId().toString(),
-                              "content_hash", document.getContentHash())));
-
-      log.info("Document indexed in Elasticsearch: {}, result: {}", vectorId, response.result());
+      // Upsert the vector document in Elasticsearch
+      String vectorId = vectorIdOf(document);
+      Long version = externalVersionOf(document);
+      try {
+        IndexResponse response =
+            elasticsearchClient.index(
+                i ->
+                    i.index(indexName)
+                        .id(vectorId)
+                        .version(version)
+                        .versionType(version != null ? VersionType.ExternalGte : null)
+                        .refresh(Refresh.WaitFor)
+                        .document(toVectorSource(document, embedding)));
+        log.info("Document indexed in Elasticsearch: {}, result: {}", vectorId, response.result());
+      } catch (ElasticsearchException e) {
+        if (e.status() != STATUS_CONFLICT) {
+          throw e;
+        }
+        log.info("Newer version of document {} already indexed; keeping it", vectorId);
+        documentRepository.markIndexed(List.of(document.getId()));
+        return documentRepository.findById(document.getId()).orElse(document);
+      }
 
       // Update document with vector ID and indexed status
       document.setVectorId(vectorId);
       document.setIndexed(true);
-      return documentRepository.save(document);
+      Document saved = documentRepository.save(document);
+      indexGeneration.advanceAfterCommit();
+      return saved;
     } catch (IOException e) {
       log.error("Failed to index document: {}", document.getId(), e);
       throw new RuntimeException("Failed to index document", e);
@@ -150,34 +313,41 @@ public class IndexService {
   }
 
   /**
-   * Update document index in Elasticsearch. Deletes old vector and creates new one with updated
-   * content.
+   * Update document index in Elasticsearch. The vector is overwritten in place under the document's
+   * ID; a vector stored under an older random ID is deleted afterwards.
    *
    * @param document Document to update
    * @return Updated document
    */
   @Transactional
   public Document updateDocumentIndex(Document document) {
-    if (stubEnabled) {
-      if (document.getVectorId() != null) {
-        deleteDocumentVector(document.getVectorId());
-      }
-      return indexDocumentInStub(document);
-    }
+    String previousVectorId = document.getVectorId();
     try {
-      // Delete old vector if exists
-      if (document.getVectorId() != null) {
-        deleteDocumentVector(document.getVectorId());
+      Document indexed = indexDocument(document);
+      if (previousVectorId != null && !previousVectorId.equals(indexed.getVectorId())) {
+        deleteDocumentVector(previousVectorId);
       }
-
-      // Create new vector
-      return indexDocument(document);
+      return indexed;
     } catch (Exception e) {
       log.error("Failed to update document index: {}", document.getId(), e);
       throw new RuntimeException("Failed to update document index", e);
     }
   }
 
+  /**
+   * Record a change to a document's title or metadata when its content, and therefore its vector,
+   * is unchanged. The vector is re-indexed so its denormalized fields and filter tags follow, with
+   * the embedding served from the cache or store rather than the provider; in Elasticsearch the
+   * vector is excluded from {@code _source}, so a partial update would drop it.
+   *
+   * @param document Saved document whose content hash matches its indexed vector
+   * @return The saved document
+   */
+  public Document refreshDocumentAttributes(Document document) {
+    log.debug("Re-indexing document attributes without re-embedding: {}", document.getId());
+    return indexDocument(document);
+  }
+
   /**
    * Delete document vector from Elasticsearch.
    *
@@ -186,16 +356,24 @@ public class IndexService {
    */
   public boolean deleteDocumentVector(String vectorId) {
     if (stubEnabled) {
-      stubVectors.remove(vectorId);
-      stubDocToVector.entrySet().removeIf(e -> e.getValue().equals(vectorId));
-      log.info("Stub document vector deleted: {}", vectorId);
-      return true;
+      boolean removed = localIndexService.remove(vectorId);
+      log.info("Stub document vector deleted: {}, removed: {}", vectorId, removed);
+      if (removed) {
+        indexGeneration.advanceAfterCommit();
+      }
+      return removed;
     }
     try {
-      DeleteResponse response = elasticsearchClient.delete(d -> d.index(indexName).id(vectorId));
+      DeleteResponse response =
+          elasticsearchClient.delete(
+              d -> d.index(indexName).id(vectorId).refresh(Refresh.WaitFor));
 
       log.info("Document vector deleted: {}, result: {}", vectorId, response.result());
-      return response.result() != co.elastic.clients.elasticsearch._types.Result.NotFound;
+      boolean removed = response.result() != Result.NotFound;
+      if (removed) {
+        indexGeneration.advanceAfterCommit();
+      }
+      return removed;
     } catch (IOException e) {
       log.error("Failed to delete document vector: {}", vectorId, e);
       return false;
@@ -211,107 +389,239 @@ public class IndexService {
    * @return List of document IDs with similarity scores
    */
   public List<Map.Entry<UUID, Double>> findSimilarDocuments(
-      List<Double> queryVector, int limit, double minScore) {
+      Embedding queryVector, int limit, double minScore) {
+    return findSimilarDocuments(queryVector, limit, minScore, null);
+  }
+
+  /**
+   * Find similar documents based on a query vector, leaving one document out of the results.
+   * Scores are cosine similarities regardless of the Elasticsearch search mode.
+   *
+   * @param queryVector Query vector to find similar documents
+   * @param limit Maximum number of results to return
+   * @param minScore Minimum similarity score threshold
+   * @param excludedDocumentId Document to exclude, or null to return every match
+   * @return List of document IDs with similarity scores
+   */
+  public List<Map.Entry<UUID, Double>> findSimilarDocuments(
+      Embedding queryVector, int limit, double minScore, UUID excludedDocumentId) {
+    return findSimilarDocuments(queryVector, limit, minScore, excludedDocumentId, Map.of());
+  }
+
+  /**
+   * Find similar documents among those whose metadata has every filter entry (values compared
+   * ignoring case). The filter is applied inside the vector search, so the results are the true
+   * top {@code limit} matching documents.
+   *
+   * @param queryVector Query vector to find similar documents
+   * @param limit Maximum number of results to return
+   * @param minScore Minimum similarity score threshold
+   * @param excludedDocumentId Document to exclude, or null to return every match
+   * @param filters Metadata key/value pairs a match must have
+   * @return List of document IDs with similarity scores
+   */
+  public List<Map.Entry<UUID, Double>> findSimilarDocuments(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      Map<String, String> filters) {
+    List<Map.Entry<UUID, Double>> results = new ArrayList<>();
+    for (SimilarDocument match :
+        findSimilar(queryVector, limit, minScore, excludedDocumentId, filters, false)) {
+      results.add(new AbstractMap.SimpleEntry<>(match.documentId(), match.score()));
+    }
+    return results;
+  }
+
+  /**
+   * Find similar documents and return the denormalized title, snippet, metadata and timestamps
+   * stored with each hit, so callers can skip the database. A match without them (stub mode, or a
+   * vector indexed before they were stored) has a null snapshot.
+   *
+   * @param queryVector Query vector to find similar documents
+   * @param limit Maximum number of results to return
+   * @param minScore Minimum similarity score threshold
+   * @param excludedDocumentId Document to exclude, or null to return every match
+   * @param filters Metadata key/value pairs a match must have
+   * @return Matches in descending score order
+   */
+  public List<SimilarDocument> findSimilarDocumentSnapshots(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      Map<String, String> filters) {
+    return findSimilar(queryVector, limit, minScore, excludedDocumentId, filters, true);
+  }
+
+  private List<SimilarDocument> findSimilar(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      Map<String, String> filters,
+      boolean withSnapshots) {
     if (stubEnabled) {
-      return findSimilarInStub(queryVector, limit, minScore);
+      return findSimilarInStub(queryVector, limit, minScore, excludedDocumentId, filters);
     }
+    List<String> sourceFields = withSnapshots ? SNAPSHOT_FIELDS : List.of(DOCUMENT_ID_FIELD);
+    VectorFilter filter = VectorFilter.of(filters);
     try {
-      SearchResponse<Map> response =
-          elasticsearchClient.search(
-              s ->
-                  s.index(indexName)
-                      .query(
-                          q ->
-                              q.scriptScore(
-                                  ss ->
-                                      ss.query(sq -> sq.matchAll(m -> m))
-                                          .script(
-                                              sc ->
-                                                  sc.inline(
-                                                      i ->
-                                                          i.source(
-                                                                  "cosineSimilarity(params.query_vector, 'vector') + 1.0")
-                                                              .params(
-                                                                  Map.of(
-                                                                      "query_vector",
-                                                                      co.elastic.clients.json
-                                                                          .JsonData.of(
-                                                                          queryVector)))))))
-                      .size(limit)
-                      .minScore(minScore),
-              Map.class);
-
-      List<Map.Entry<UUID, Double>> results = new ArrayList<>();
-      for (Hit<Map> hit : response.hits().hits()) {
-        Map<String, Object> source = hit.source();
-        if (source != null && source.containsKey("document_id")) {
-          String documentId = (String) source.get("document_id");
-          results.add(new AbstractMap.SimpleEntry<>(UUID.fromString(documentId), hit.score()));
-        }
+      if (SEARCH_MODE_SCRIPT.equalsIgnoreCase(searchMode)) {
+        return scriptScoreSearch(
+            queryVector, limit, minScore, excludedDocumentId, filter, sourceFields);
       }
-
-      return results;
+      return knnSearch(queryVector, limit, minScore, excludedDocumentId, filter, sourceFields);
     } catch (IOException e) {
       log.error("Failed to find similar documents", e);
       return Collections.emptyList();
     }
   }
 
+  /**
+   * Approximate search through the HNSW graph Elasticsearch builds for the indexed dense_vector.
+   * For cosine similarity the kNN score is {@code (1 + cosine) / 2}, so it is mapped back to a
+   * cosine before the threshold is applied.
+   */
+  private List<SimilarDocument> knnSearch(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      VectorFilter filter,
+      List<String> sourceFields)
+      throws IOException {
+    int k = Math.max(1, limit);
+    int candidates = Math.min(MAX_NUM_CANDIDATES, Math.max(k, numCandidates));
+    SearchResponse<VectorHit> response =
+        elasticsearchClient.search(
+            s ->
+                s.index(indexName)
+                    .source(src -> src.filter(f -> f.includes(sourceFields)))
+                    .knn(
+                        knn -> {
+                          knn.field("vector")
+                              .queryVector(queryVector.toList())
+                              .k(k)
+                              .numCandidates(candidates);
+                          if (excludedDocumentId != null || !filter.isEmpty()) {
+                            knn.filter(f -> retrievalFilter(f, excludedDocumentId, filter));
+                          }
+                          return knn;
+                        })
+                    .size(k),
+            VectorHit.class);
+    return toResults(response, score -> 2.0 * score - 1.0, minScore);
+  }
+
+  /**
+   * Exact brute-force scoring of every document with a Painless script. The script adds 1.0 to
+   * keep scores non-negative, so the threshold is shifted by the same amount.
+   */
+  private List<SimilarDocument> scriptScoreSearch(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      VectorFilter filter,
+      List<String> sourceFields)
+      throws IOException {
+    SearchResponse<VectorHit> response =
+        elasticsearchClient.search(
+            s ->
+                s.index(indexName)
+                    .source(src -> src.filter(f -> f.includes(sourceFields)))
+                    .query(
+                        q ->
+                            q.scriptScore(
+                                ss ->
+                                    ss.query(
+                                            sq ->
+                                                excludedDocumentId == null && filter.isEmpty()
+                                                    ? sq.matchAll(m -> m)
+                                                    : retrievalFilter(
+                                                        sq, excludedDocumentId, filter))
+                                        .script(
+                                            sc ->
+                                                sc.inline(
+                                                    i ->
+                                                        i.source(
+                                                                "cosineSimilarity(params.query_vector, 'vector') + 1.0")
+                                                            .params(
+                                                                Map.of(
+                                                                    "query_vector",
+                                                                    JsonData.of(
+                                                                        queryVector.toArray())))))))
+                    .size(limit)
+                    .minScore(minScore + 1.0),
+            VectorHit.class);
+    return toResults(response, score -> score - 1.0, minScore);
+  }
+
+  /** Non-scoring restriction to documents carrying every filter tag, minus the excluded one. */
+  private ObjectBuilder<Query> retrievalFilter(
+      Query.Builder query, UUID excludedDocumentId, VectorFilter filter) {
+    return query.bool(
+        b -> {
+          for (String tag : filter.requiredTags()) {
+            b.filter(f -> f.term(t -> t.field(FILTER_TAGS_FIELD).value(tag)));
+          }
+          if (excludedDocumentId != null) {
+            b.mustNot(
+                mn ->
+                    mn.term(
+                        t -> t.field(DOCUMENT_ID_FIELD).value(excludedDocumentId.toString())));
+          }
+          return b;
+        });
+  }
+
+  private List<SimilarDocument> toResults(
+      SearchResponse<VectorHit> response, DoubleUnaryOperator toCosine, double minScore) {
+    List<SimilarDocument> results = new ArrayList<>();
+    for (Hit<VectorHit> hit : response.hits().hits()) {
+      VectorHit source = hit.source();
+      if (hit.score() == null || source == null || source.documentId() == null) {
+        continue;
+      }
+      double score = toCosine.applyAsDouble(hit.score());
+      if (score >= minScore) {
+        results.add(
+            new SimilarDocument(UUID.fromString(source.documentId()), score, source.toSnapshot()));
+      }
+    }
+    return results;
+  }
+
   private Document indexDocumentInStub(Document document) {
-    List<Double> embedding = embeddingService.embed(document.getContent());
+    Embedding embedding = embeddingService.embed(document.getContent());
     if (embedding.isEmpty()) {
       log.error("Failed to generate embedding for document: {}", document.getId());
       return document;
     }
 
-    String vectorId = UUID.randomUUID().toString();
-    stubVectors.put(vectorId, embedding);
-    stubDocToVector.put(document.getId(), vectorId);
+    String vectorId = vectorIdOf(document);
+    localIndexService.add(vectorId, document.getId(), embedding, document.getMetadata());
 
     document.setVectorId(vectorId);
     document.setIndexed(true);
-    return documentRepository.save(document);
+    Document saved = documentRepository.save(document);
+    indexGeneration.advanceAfterCommit();
+    return saved;
   }
 
-  private List<Map.Entry<UUID, Double>> findSimilarInStub(
-      List<Double> queryVector, int limit, double minScore) {
-    List<Map.Entry<UUID, Double>> results = new ArrayList<>();
-    stubVectors.forEach(
-        (vectorId, stored) -> {
-          double score = cosineSimilarity(queryVector, stored);
-          if (score >= minScore) {
-            Optional<UUID> docId =
-                stubDocToVector.entrySet().stream()
-                    .filter(e -> e.getValue().equals(vectorId))
-                    .map(Map.Entry::getKey)
-                    .findFirst();
-            docId.ifPresent(id -> results.add(new AbstractMap.SimpleEntry<>(id, score)));
-          }
-        });
-
-    return results.stream()
-        .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-        .limit(Math.max(1, limit))
-        .toList();
-  }
-
-  private double cosineSimilarity(List<Double> a, List<Double> b) {
-    if (a == null || b == null || a.isEmpty() || b.isEmpty() || a.size() != b.size()) {
-      return 0.0;
-    }
-    double dot = 0.0;
-    double normA = 0.0;
-    double normB = 0.0;
-    for (int i = 0; i < a.size(); i++) {
-      double av = a.get(i);
-      double bv = b.get(i);
-      dot += av * bv;
-      normA += av * av;
-      normB += bv * bv;
-    }
-    if (normA == 0 || normB == 0) {
-      return 0.0;
+  private List<SimilarDocument> findSimilarInStub(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      Map<String, String> filters) {
+    List<SimilarDocument> results = new ArrayList<>();
+    for (VectorMatch match :
+        localIndexService.search(queryVector, limit, minScore, excludedDocumentId, filters)) {
+      results.add(new SimilarDocument(match.documentId(), match.score(), null));
     }
-    return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    return results;
   }
 }
@@ -0,0 +1,495 @@
+package io.github.semanticsearch.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import io.github.semanticsearch.config.VectorIndexProperties;
+import io.github.semanticsearch.model.Embedding;
+import io.github.semanticsearch.vector.BinaryQuantizedVectorIndex;
+import io.github.semanticsearch.vector.FlatVectorIndex;
+import io.github.semanticsearch.vector.HnswVectorIndex;
+import io.github.semanticsearch.vector.QuantizedVectorIndex;
+import io.github.semanticsearch.vector.RescoringVectorIndex;
+import io.github.semanticsearch.vector.SegmentedVectorIndex;
+import io.github.semanticsearch.vector.VectorArena;
+import io.github.semanticsearch.vector.VectorFilter;
+import io.github.semanticsearch.vector.VectorIndex;
+import io.github.semanticsearch.vector.VectorMatch;
+import io.github.semanticsearch.vector.VectorSnapshot;
+import io.github.semanticsearch.vector.VectorWal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Owns the in-process vector index used when Elasticsearch is stubbed out. The index is created
+ * on the first write, sized to the dimensions of the first embedding it receives, using the
+ * backend selected by {@code vector.local.backend}.
+ *
+ * <p>With {@code vector.local.snapshot-path} set, the index is restored from its {@link
+ * VectorSnapshot} at startup and saved periodically when it changed, and again on shutdown, so a
+ * restart does not re-embed or re-index anything. Unless {@code vector.local.wal-enabled} is off,
+ * every update is also logged to a {@link VectorWal} and made durable before the call returns;
+ * the log is replayed on top of the snapshot at startup and truncated by each snapshot
+ * (checkpoint). Updates become visible to searches once applied, slightly before they are
+ * durable.
+ */
+@Service
+public class LocalIndexService {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalIndexService.class);
+
+  private static final int WRITE_STRIPES = 64;
+
+  private final VectorIndexProperties properties;
+  private final AtomicLong changes = new AtomicLong();
+  private final AtomicBoolean checkpointRequested = new AtomicBoolean();
+
+  // Updates hold the read lock from logging to applying; a checkpoint's log rotation takes the
+  // write lock so every record in the rotated-out segments is in the index it snapshots. The
+  // stripes keep the log and index order of updates to the same vector ID identical.
+  private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+  private final Object[] writeStripes = new Object[WRITE_STRIPES];
+
+  private volatile VectorIndex index;
+  private volatile VectorWal wal;
+  private long savedChanges;
+  private ScheduledExecutorService snapshotScheduler;
+
+  public LocalIndexService(VectorIndexProperties properties) {
+    this.properties = properties;
+    for (int i = 0; i < WRITE_STRIPES; i++) {
+      writeStripes[i] = new Object();
+    }
+  }
+
+  /**
+   * Restore the snapshot, if configured and present, replay the write-ahead log on top of it and
+   * schedule periodic snapshots. A snapshot or log that cannot be read fails startup and is left
+   * untouched.
+   *
+   * @throws IllegalStateException If the snapshot or the write-ahead log cannot be read
+   */
+  @PostConstruct
+  public void restore() {
+    Path path = snapshotPath();
+    if (path == null) {
+      return;
+    }
+    if (Files.exists(path)) {
+      long started = System.nanoTime();
+      try {
+        index = openIndex(VectorSnapshot.open(path, properties.getVectorsPerPage()));
+        log.info(
+            "Restored {} local vector index with {} vectors from {} in {} ms",
+            properties.getBackend(),
+            index.size(),
+            path,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      } catch (IOException | RuntimeException e) {
+        // Starting empty would overwrite the snapshot and truncate the log with the next
+        // checkpoint, losing every vector either held
+        throw new IllegalStateException(
+            "Failed to restore local vector index from "
+                + path
+                + "; move the file aside to start empty and rebuild the index",
+            e);
+      }
+    }
+    if (properties.isWalEnabled()) {
+      openWal(path);
+    }
+    long interval = properties.getSnapshotInterval().toMillis();
+    snapshotScheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "vector-snapshot");
+              thread.setDaemon(true);
+              return thread;
+            });
+    snapshotScheduler.scheduleWithFixedDelay(
+        this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Write the index to the configured snapshot file if it changed since the last snapshot, then
+   * drop the write-ahead log segments the snapshot covers.
+   *
+   * @return True if a snapshot was written
+   * @throws IOException If the snapshot cannot be written
+   */
+  public synchronized boolean snapshot() throws IOException {
+    checkpointRequested.set(false);
+    Path path = snapshotPath();
+    VectorIndex current = index;
+    long observed = changes.get();
+    if (path == null || current == null || observed == savedChanges) {
+      return false;
+    }
+    long started = System.nanoTime();
+    VectorWal currentWal = wal;
+    long firstKeptSegment = 0;
+    if (currentWal != null) {
+      checkpointLock.writeLock().lock();
+      try {
+        firstKeptSegment = currentWal.rotate();
+      } finally {
+        checkpointLock.writeLock().unlock();
+      }
+    }
+    current.writeSnapshot(path);
+    savedChanges = observed;
+    if (currentWal != null) {
+      currentWal.deleteSegmentsBefore(firstKeptSegment);
+    }
+    log.info(
+        "Wrote local vector index snapshot with {} vectors to {} in {} ms",
+        current.size(),
+        path,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    return true;
+  }
+
+  /**
+   * Add or replace the vector for a document.
+   *
+   * @param vectorId Vector ID stored on the document
+   * @param documentId Document ID
+   * @param embedding Document embedding
+   * @param metadata Document metadata searches can filter on
+   */
+  public void add(
+      String vectorId, UUID documentId, Embedding embedding, Map<String, String> metadata) {
+    VectorIndex target = indexFor(embedding.dimensions());
+    float[] vector = embedding.toArray();
+    logAndApply(
+        new VectorWal.Add(vectorId, documentId, vector, metadata),
+        () -> {
+          target.add(vectorId, documentId, vector, metadata);
+          return true;
+        });
+  }
+
+  /**
+   * Remove a vector from the local index.
+   *
+   * @param vectorId Vector ID to remove
+   * @return True if the vector was present
+   */
+  public boolean remove(String vectorId) {
+    VectorIndex current = index;
+    return current != null
+        && logAndApply(new VectorWal.Remove(vectorId), () -> current.remove(vectorId));
+  }
+
+  /**
+   * Search the local index.
+   *
+   * @param query Query embedding
+   * @param limit Maximum number of matches
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @return Matches ordered by descending score
+   */
+  public List<VectorMatch> search(
+      Embedding query, int limit, double minScore, UUID excludedDocumentId) {
+    return search(query, limit, minScore, excludedDocumentId, Map.of());
+  }
+
+  /**
+   * Search the local index among documents whose metadata matches every filter entry.
+   *
+   * @param query Query embedding
+   * @param limit Maximum number of matches
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @param filters Metadata key/value pairs a match must have, ignoring value case
+   * @return Matches ordered by descending score
+   */
+  public List<VectorMatch> search(
+      Embedding query,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      Map<String, String> filters) {
+    return search(
+        query,
+        limit,
+        minScore,
+        excludedDocumentId,
+        VectorFilter.of(filters),
+        properties.getHnswEfSearch());
+  }
+
+  /**
+   * Search the local index with an explicit HNSW candidate list size. Ignored by exact backends.
+   *
+   * @param query Query embedding
+   * @param limit Maximum number of matches
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @param efSearch HNSW candidate list size for this query
+   * @return Matches ordered by descending score
+   */
+  public List<VectorMatch> search(
+      Embedding query, int limit, double minScore, UUID excludedDocumentId, int efSearch) {
+    return search(query, limit, minScore, excludedDocumentId, VectorFilter.NONE, efSearch);
+  }
+
+  /**
+   * Recall of the int8 or binary backend for a query: the fraction of the exact top results that
+   * the quantized search also returns.
+   *
+   * @param query Query embedding
+   * @param limit Number of results compared
+   * @return Recall, or empty if no quantized backend is in use or it has no matching index
+   */
+  public OptionalDouble quantizedRecall(Embedding query, int limit) {
+    VectorIndex current = index;
+    if (current == null || query.dimensions() != current.dimensions()) {
+      return OptionalDouble.empty();
+    }
+    return current instanceof RescoringVectorIndex<?> rescoring
+        ? OptionalDouble.of(rescoring.recall(query.toArray(), limit))
+        : OptionalDouble.empty();
+  }
+
+  private List<VectorMatch> search(
+      Embedding query,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      VectorFilter filter,
+      int efSearch) {
+    VectorIndex current = index;
+    if (current == null || query.dimensions() != current.dimensions()) {
+      return List.of();
+    }
+    if (current instanceof HnswVectorIndex hnsw) {
+      return hnsw.search(
+          query.toArray(), limit, (float) minScore, excludedDocumentId, filter, efSearch);
+    }
+    return current.search(query.toArray(), limit, (float) minScore, excludedDocumentId, filter);
+  }
+
+  @PreDestroy
+  public void close() {
+    if (snapshotScheduler != null) {
+      snapshotScheduler.shutdownNow();
+    }
+    snapshotQuietly();
+    VectorWal currentWal = wal;
+    if (currentWal != null) {
+      try {
+        currentWal.close();
+      } catch (IOException e) {
+        log.error("Failed to close the vector write-ahead log", e);
+      }
+    }
+    VectorIndex current = index;
+    if (current != null) {
+      current.close();
+    }
+  }
+
+  /**
+   * Apply an update, logging it first when the write-ahead log is enabled and waiting until the
+   * record is durable.
+   */
+  private boolean logAndApply(VectorWal.Operation operation, BooleanSupplier apply) {
+    VectorWal currentWal = wal;
+    if (currentWal == null) {
+      return countChange(apply.getAsBoolean());
+    }
+    long position;
+    boolean applied;
+    checkpointLock.readLock().lock();
+    try {
+      synchronized (writeStripes[Math.floorMod(operation.vectorId().hashCode(), WRITE_STRIPES)]) {
+        position = currentWal.append(operation);
+        applied = apply.getAsBoolean();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to log vector update", e);
+    } finally {
+      checkpointLock.readLock().unlock();
+    }
+    try {
+      currentWal.sync(position);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to sync the vector write-ahead log", e);
+    }
+    if (currentWal.bytesSinceRotation() >= properties.getWalCheckpointBytes()
+        && checkpointRequested.compareAndSet(false, true)) {
+      snapshotScheduler.execute(this::snapshotQuietly);
+    }
+    return countChange(applied);
+  }
+
+  private boolean countChange(boolean applied) {
+    if (applied) {
+      changes.incrementAndGet();
+    }
+    return applied;
+  }
+
+  private void openWal(Path snapshotPath) {
+    Path directory = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".wal");
+    long started = System.nanoTime();
+    AtomicLong replayed = new AtomicLong();
+    try {
+      wal =
+          VectorWal.open(
+              directory,
+              operation -> {
+                replay(operation);
+                replayed.incrementAndGet();
+              });
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalStateException("Failed to replay vector write-ahead log " + directory, e);
+    }
+    changes.addAndGet(replayed.get());
+    log.info(
+        "Replayed {} vector write-ahead log records from {} in {} ms",
+        replayed.get(),
+        directory,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  private void replay(VectorWal.Operation operation) {
+    switch (operation) {
+      case VectorWal.Add add ->
+          indexFor(add.vector().length)
+              .add(add.vectorId(), add.documentId(), add.vector(), add.metadata());
+      case VectorWal.Remove remove -> {
+        VectorIndex current = index;
+        if (current != null) {
+          current.remove(remove.vectorId());
+        }
+      }
+    }
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      log.error("Failed to write local vector index snapshot", e);
+    }
+  }
+
+  private Path snapshotPath() {
+    String configured = properties.getSnapshotPath();
+    return configured.isBlank() ? null : Path.of(configured);
+  }
+
+  private Path vectorFileDirectory() {
+    String configured = properties.getVectorFileDirectory();
+    return configured.isBlank() ? null : Path.of(configured);
+  }
+
+  private VectorIndex openIndex(VectorSnapshot snapshot) {
+    return switch (properties.getBackend()) {
+      case HNSW ->
+          HnswVectorIndex.restore(
+              snapshot,
+              properties.getHnswM(),
+              properties.getHnswEfConstruction(),
+              properties.getHnswEfSearch());
+      case SEGMENTED ->
+          SegmentedVectorIndex.restore(
+              snapshot, properties.getSegmentFlushSize(), properties.getSegmentMergeFactor());
+      case INT8 ->
+          QuantizedVectorIndex.restore(
+              snapshot,
+              vectorFileDirectory(),
+              properties.getQuantizationCalibration(),
+              properties.getQuantizationCalibrationSize(),
+              properties.getQuantizationOversample());
+      case BINARY ->
+          BinaryQuantizedVectorIndex.restore(
+              snapshot,
+              vectorFileDirectory(),
+              properties.getQuantizationCalibrationSize(),
+              properties.getBinaryOversample());
+      case FLAT -> new FlatVectorIndex(snapshot);
+    };
+  }
+
+  private VectorIndex indexFor(int dimensions) {
+    VectorIndex current = index;
+    if (current == null) {
+      synchronized (this) {
+        current = index;
+        if (current == null) {
+          current = createIndex(dimensions);
+          index = current;
+          log.info(
+              "Created {} local vector index with {} dimensions",
+              properties.getBackend(),
+              dimensions);
+        }
+      }
+    }
+    if (current.dimensions() != dimensions) {
+      throw new IllegalArgumentException(
+          "Local vector index expects "
+              + current.dimensions()
+              + " dimensions but embedding has "
+              + dimensions);
+    }
+    return current;
+  }
+
+  private VectorIndex createIndex(int dimensions) {
+    VectorArena arena = new VectorArena(dimensions, properties.getVectorsPerPage());
+    return switch (properties.getBackend()) {
+      case HNSW ->
+          new HnswVectorIndex(
+              arena,
+              properties.getHnswM(),
+              properties.getHnswEfConstruction(),
+              properties.getHnswEfSearch());
+      case SEGMENTED ->
+          new SegmentedVectorIndex(
+              dimensions,
+              properties.getVectorsPerPage(),
+              properties.getSegmentFlushSize(),
+              properties.getSegmentMergeFactor());
+      case INT8 ->
+          new QuantizedVectorIndex(
+              dimensions,
+              properties.getVectorsPerPage(),
+              vectorFileDirectory(),
+              properties.getQuantizationCalibration(),
+              properties.getQuantizationCalibrationSize(),
+              properties.getQuantizationOversample());
+      case BINARY ->
+          new BinaryQuantizedVectorIndex(
+              dimensions,
+              properties.getVectorsPerPage(),
+              vectorFileDirectory(),
+              properties.getQuantizationCalibrationSize(),
+              properties.getBinaryOversample());
+      case FLAT -> new FlatVectorIndex(arena);
+    };
+  }
+}
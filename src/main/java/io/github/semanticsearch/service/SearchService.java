@@ -5,14 +5,17 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import io.github.semanticsearch.cache.SearchCacheKey;
+import io.github.semanticsearch.cache.SearchResultCache;
 import io.github.semanticsearch.config.SearchProperties;
 import io.github.semanticsearch.model.Document;
+import io.github.semanticsearch.model.Embedding;
 import io.github.semanticsearch.model.SearchRequest;
 import io.github.semanticsearch.model.SearchResult;
 import io.github.semanticsearch.repository.DocumentRepository;
+import io.github.semanticsearch.service.IndexService.SimilarDocument;
 import io.github.semanticsearch.util.ScoreCalculator;
 
 /**
@@ -24,35 +27,56 @@ public class SearchService {
 
   private static final Logger log = LoggerFactory.getLogger(SearchService.class);
 
+  /** {@link SearchProperties#getHydration()} value that builds results from the index hits. */
+  static final String HYDRATION_INDEX = "index";
+
   private final EmbeddingService embeddingService;
   private final IndexService indexService;
   private final DocumentRepository documentRepository;
   private final SearchProperties searchProperties;
+  private final SearchResultCache searchResultCache;
 
   public SearchService(
       EmbeddingService embeddingService,
       IndexService indexService,
       DocumentRepository documentRepository,
-      SearchProperties searchProperties) {
+      SearchProperties searchProperties,
+      SearchResultCache searchResultCache) {
     this.embeddingService = embeddingService;
     this.indexService = indexService;
     this.documentRepository = documentRepository;
     this.searchProperties = searchProperties;
+    this.searchResultCache = searchResultCache;
   }
 
   /**
-   * Perform semantic search based on query text. Caches results for frequent queries to improve
-   * performance.
+   * Perform semantic search based on query text. Results are cached under a canonical fingerprint
+   * of the request, so repeated queries skip embedding, vector search and hydration. The search
+   * runs on the same normalized query text the fingerprint uses. With {@code
+   * search.hydration=index} the returned content, highlights and lexical scores come from the
+   * snippet stored in the index rather than the full document.
    *
    * @param request Search request containing query and parameters
    * @return List of search results
    */
-  @Cacheable(value = "searchResults", key = "#request.toString()", unless = "#result.isEmpty()")
   public List<SearchResult> search(SearchRequest request) {
+    SearchRequest normalized =
+        new SearchRequest(
+            SearchCacheKey.normalizeQuery(request.getQuery()),
+            request.getLimit(),
+            request.getMinScore(),
+            request.getFilters(),
+            request.getFields(),
+            request.isIncludeContent(),
+            request.isIncludeHighlights());
+    return searchResultCache.getOrCompute(normalized, () -> executeSearch(normalized));
+  }
+
+  private List<SearchResult> executeSearch(SearchRequest request) {
     log.debug("Performing semantic search for query: {}", request.getQuery());
 
     // Generate embedding for query
-    List<Double> queryVector = embeddingService.embed(request.getQuery());
+    Embedding queryVector = embeddingService.embed(request.getQuery());
     if (queryVector.isEmpty()) {
       log.warn("Failed to generate embedding for query: {}", request.getQuery());
       return Collections.emptyList();
@@ -61,8 +85,8 @@ public class SearchService {
     // Find similar documents
     int limit = Math.max(1, request.getLimit());
     double minScore = Math.max(0.0, request.getMinScore());
-    List<Map.Entry<UUID, Double>> similarDocuments =
-        indexService.findSimilarDocuments(queryVector, limit, minScore);
+    List<SimilarDocument> similarDocuments =
+        findMatches(queryVector, limit, minScore, null, request.getFilters());
 
     if (similarDocuments.isEmpty()) {
       log.debug("No similar documents found for query: {}", request.getQuery());
@@ -70,12 +94,7 @@ public class SearchService {
     }
 
     // Retrieve document details
-    List<UUID> documentIds =
-        similarDocuments.stream().map(Map.Entry::getKey).collect(Collectors.toList());
-
-    Map<UUID, Document> documentsMap =
-        documentRepository.findAllById(documentIds).stream()
-            .collect(Collectors.toMap(Document::getId, doc -> doc));
+    Map<UUID, Document> documentsMap = hydrate(similarDocuments);
 
     Map<UUID, Double> lexicalScores = Collections.emptyMap();
     if (searchProperties.isHybridEnabled()) {
@@ -84,16 +103,17 @@ public class SearchService {
 
     // Build search results with optional hybrid/metadata boosts
     List<SearchResult> results = new ArrayList<>();
-    for (Map.Entry<UUID, Double> entry : similarDocuments) {
-      UUID documentId = entry.getKey();
+    for (SimilarDocument match : similarDocuments) {
+      UUID documentId = match.documentId();
       Document document = documentsMap.get(documentId);
 
       if (document != null) {
+        // Filters were applied in the index; this only catches metadata edited since indexing.
         if (!matchesFilters(document, request.getFilters())) {
           continue;
         }
 
-        double vectorScore = ScoreCalculator.clamp(entry.getValue());
+        double vectorScore = ScoreCalculator.clamp(match.score());
         double lexicalScore = lexicalScores.getOrDefault(documentId, vectorScore);
         double blended = ScoreCalculator.blendScores(vectorScore, lexicalScore, searchProperties);
         double boosted =
@@ -143,39 +163,27 @@ public class SearchService {
     }
 
     Document document = documentOpt.get();
-    List<Double> documentVector = embeddingService.embed(document.getContent());
+    Embedding documentVector = embeddingService.embed(document.getContent());
     if (documentVector.isEmpty()) {
       log.warn("Failed to generate embedding for document: {}", documentId);
       return Collections.emptyList();
     }
 
-    // Find similar documents
-    List<Map.Entry<UUID, Double>> similarDocuments =
-        indexService.findSimilarDocuments(documentVector, limit + 1, minScore);
-
-    // Remove the original document from results
-    similarDocuments =
-        similarDocuments.stream()
-            .filter(entry -> !entry.getKey().equals(documentId))
-            .limit(limit)
-            .collect(Collectors.toList());
+    // Find similar documents, leaving out the source document itself
+    List<SimilarDocument> similarDocuments =
+        findMatches(documentVector, limit, minScore, documentId, Map.of());
 
     if (similarDocuments.isEmpty()) {
       return Collections.emptyList();
     }
 
     // Retrieve document details
-    List<UUID> documentIds =
-        similarDocuments.stream().map(Map.Entry::getKey).collect(Collectors.toList());
-
-    Map<UUID, Document> documentsMap =
-        documentRepository.findAllById(documentIds).stream()
-            .collect(Collectors.toMap(Document::getId, doc -> doc));
+    Map<UUID, Document> documentsMap = hydrate(similarDocuments);
 
     // Build search results
     List<SearchResult> results = new ArrayList<>();
-    for (Map.Entry<UUID, Double> entry : similarDocuments) {
-      Document similarDoc = documentsMap.get(entry.getKey());
+    for (SimilarDocument match : similarDocuments) {
+      Document similarDoc = documentsMap.get(match.documentId());
       if (similarDoc != null) {
         if (!matchesFilters(similarDoc, Collections.emptyMap())) {
           continue;
@@ -187,7 +195,7 @@ public class SearchService {
                 .title(similarDoc.getTitle())
                 .content(similarDoc.getContent())
                 .metadata(similarDoc.getMetadata())
-                .score(entry.getValue()) // Use double directly without conversion
+                .score(match.score()) // Use double directly without conversion
                 .build();
 
         results.add(result);
@@ -197,6 +205,48 @@ public class SearchService {
     return results;
   }
 
+  /**
+   * Vector search with the metadata filters pushed down, requesting the denormalized document
+   * fields when results are hydrated from the index.
+   */
+  private List<SimilarDocument> findMatches(
+      Embedding queryVector,
+      int limit,
+      double minScore,
+      UUID excludedDocumentId,
+      Map<String, String> filters) {
+    if (HYDRATION_INDEX.equalsIgnoreCase(searchProperties.getHydration())) {
+      return indexService.findSimilarDocumentSnapshots(
+          queryVector, limit, minScore, excludedDocumentId, filters);
+    }
+    return indexService
+        .findSimilarDocuments(queryVector, limit, minScore, excludedDocumentId, filters)
+        .stream()
+        .map(entry -> new SimilarDocument(entry.getKey(), entry.getValue(), null))
+        .toList();
+  }
+
+  /**
+   * Documents for the matches, taken from their index snapshots where present. Only matches without
+   * one (database hydration, stub mode, or vectors indexed before snapshots were stored) are loaded
+   * from the repository, which stays the source of truth.
+   */
+  private Map<UUID, Document> hydrate(List<SimilarDocument> matches) {
+    Map<UUID, Document> documents = new HashMap<>();
+    List<UUID> missing = new ArrayList<>();
+    for (SimilarDocument match : matches) {
+      if (match.snapshot() != null) {
+        documents.put(match.documentId(), match.snapshot());
+      } else {
+        missing.add(match.documentId());
+      }
+    }
+    if (!missing.isEmpty()) {
+      documentRepository.findAllById(missing).forEach(doc -> documents.put(doc.getId(), doc));
+    }
+    return documents;
+  }
+
   /**
    * Generate text highlights for search results. Extracts relevant snippets from content that match
    * the query.
@@ -1,18 +1,16 @@
 package io.github.semanticsearch.service;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import io.github.semanticsearch.model.Document;
 import io.github.semanticsearch.repository.DocumentRepository;
+import io.github.semanticsearch.util.ContentHasher;
 
 /** Seeds a small set of demo documents for evaluation and smoke tests. */
 @Service
@@ -21,14 +19,17 @@ public class SeedService {
   private static final Logger log = LoggerFactory.getLogger(SeedService.class);
 
   private final DocumentRepository documentRepository;
-  private final IndexService indexService;
+  private final BulkIndexService bulkIndexService;
 
-  public SeedService(DocumentRepository documentRepository, IndexService indexService) {
+  public SeedService(DocumentRepository documentRepository, BulkIndexService bulkIndexService) {
     this.documentRepository = documentRepository;
-    this.indexService = indexService;
+    this.bulkIndexService = bulkIndexService;
   }
 
-  @Transactional
+  /**
+   * Save any missing demo documents and queue them for bulk indexing. Not transactional: the
+   * documents must be committed before the bulk listener marks them as indexed.
+   */
   public void seedDemoDocuments() {
     List<Document> docs =
         List.of(
@@ -45,17 +46,22 @@ public class SeedService {
                 "Latency budgets keep search responses under target p95 milliseconds.",
                 Map.of("topic", "performance")));
 
+    List<Document> missing = new ArrayList<>();
     for (Document d : docs) {
       documentRepository
           .findByContentHash(d.getContentHash())
           .ifPresentOrElse(
               existing -> log.info("Seed document already present: {}", existing.getTitle()),
-              () -> {
-                Document saved = documentRepository.save(d);
-                indexService.indexDocument(saved);
-                log.info("Seeded {}", saved.getTitle());
-              });
+              () -> missing.add(d));
     }
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    List<Document> saved = documentRepository.saveAll(missing);
+    bulkIndexService.submitAll(saved);
+    bulkIndexService.flush();
+    saved.forEach(d -> log.info("Seeded {}", d.getTitle()));
   }
 
   private Document doc(String title, String content, Map<String, String> metadata) {
@@ -63,17 +69,7 @@ public class SeedService {
     d.setTitle(title);
     d.setContent(content);
     d.setMetadata(metadata);
-    d.setContentHash(hash(content));
+    d.setContentHash(ContentHasher.sha256(content));
     return d;
   }
-
-  private String hash(String content) {
-    try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      byte[] hash = digest.digest(content.getBytes());
-      return Base64.getEncoder().encodeToString(hash);
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalStateException("Unable to hash content", e);
-    }
-  }
 }
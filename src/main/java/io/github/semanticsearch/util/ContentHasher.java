@@ -0,0 +1,32 @@
+package io.github.semanticsearch.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 digests of document text. The same value is stored as {@code documents.content_hash}
+ * for duplicate detection and keys the persistent embedding store, so an unchanged text can be
+ * matched to its existing vector.
+ */
+public final class ContentHasher {
+
+  private ContentHasher() {}
+
+  /**
+   * Base64-encoded SHA-256 of the UTF-8 bytes of {@code content}.
+   *
+   * @param content Text to hash
+   * @return Base64-encoded hash
+   */
+  public static String sha256(String content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder()
+          .encodeToString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package io.github.semanticsearch.vector;
+
+import java.nio.file.Path;
+
+/**
+ * Rescoring index that prefilters by Hamming distance between 1-bit codes: one bit per dimension
+ * packed into {@code long} words, quantized by a {@link BinaryQuantizer}. The codes are a
+ * thirty-second of the float vectors, so the first pass streams a fraction of the memory an exact
+ * scan would, with one XOR and popcount per 64 dimensions.
+ *
+ * <p>One bit per dimension is a much coarser ranking than int8 codes, so the shortlist needs a
+ * larger oversample than {@link QuantizedVectorIndex} for the same recall. Until {@code
+ * calibrationSize} vectors are indexed the bits are component signs; then the thresholds are
+ * calibrated to the stored vectors.
+ */
+public class BinaryQuantizedVectorIndex extends RescoringVectorIndex<long[]> {
+
+  /** Default shortlist size as a multiple of {@code k}. */
+  public static final int DEFAULT_OVERSAMPLE = 10;
+
+  /**
+   * Create an empty index.
+   *
+   * @param dimensions Vector dimensions
+   * @param vectorsPerPage Vectors per page of codes and of the float file
+   * @param directory Directory for the full-precision float file, or null for a temporary one
+   * @param calibrationSize Vectors indexed before the thresholds are calibrated
+   * @param oversample Shortlist size as a multiple of {@code k}
+   */
+  public BinaryQuantizedVectorIndex(
+      int dimensions, int vectorsPerPage, Path directory, int calibrationSize, int oversample) {
+    this(
+        dimensions,
+        vectorsPerPage,
+        directory,
+        calibrationSize,
+        oversample,
+        new DocumentIdRegistry());
+  }
+
+  private BinaryQuantizedVectorIndex(
+      int dimensions,
+      int vectorsPerPage,
+      Path directory,
+      int calibrationSize,
+      int oversample,
+      DocumentIdRegistry registry) {
+    super(
+        dimensions,
+        vectorsPerPage,
+        directory,
+        "vector-binary",
+        new BinaryCoder(BinaryQuantizer.signs(dimensions)),
+        calibrationSize,
+        oversample,
+        registry);
+  }
+
+  /**
+   * Index over a restored snapshot. The snapshot's vectors are copied into a new float file and
+   * encoded.
+   *
+   * @param snapshot Snapshot opened with {@link VectorSnapshot#open}
+   * @param directory Directory for the full-precision float file, or null for a temporary one
+   * @param calibrationSize Vectors indexed before the thresholds are calibrated
+   * @param oversample Shortlist size as a multiple of {@code k}
+   * @return Restored index
+   */
+  public static BinaryQuantizedVectorIndex restore(
+      VectorSnapshot snapshot, Path directory, int calibrationSize, int oversample) {
+    VectorArena source = snapshot.arena();
+    BinaryQuantizedVectorIndex index =
+        new BinaryQuantizedVectorIndex(
+            source.dimensions(),
+            source.vectorsPerPage(),
+            directory,
+            calibrationSize,
+            oversample,
+            snapshot.registry());
+    index.load(source);
+    return index;
+  }
+
+  /** Bit codes scored by negated Hamming distance, so fewer differing bits rank higher. */
+  private record BinaryCoder(BinaryQuantizer quantizer) implements Coder<long[]> {
+
+    @Override
+    public int codeLength() {
+      return BinaryQuantizer.words(quantizer.dimensions());
+    }
+
+    @Override
+    public long[] newPage(int length) {
+      return new long[length];
+    }
+
+    @Override
+    public void encode(float[] unit, long[] page, int start) {
+      quantizer.encode(unit, page, start);
+    }
+
+    @Override
+    public Scorer<long[]> prepare(float[] unitQuery) {
+      long[] code = quantizer.encode(unitQuery);
+      return (page, start) -> -BinaryQuantizer.distance(code, page, start);
+    }
+
+    @Override
+    public Coder<long[]> calibrate(VectorArena arena) {
+      return new BinaryCoder(BinaryQuantizer.calibrate(arena));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package io.github.semanticsearch.vector;
+
+/**
+ * Maps normalized vectors to one bit per dimension, set when the component is above that
+ * dimension's threshold, packed 64 dimensions to a {@code long}. The Hamming distance between two
+ * codes, {@code Long.bitCount} of their XOR word by word, counts the dimensions on which the
+ * vectors fall on opposite sides of the thresholds and so ranks candidates roughly by angle.
+ *
+ * <p>Thresholds start at zero, the sign of each component. Calibrating them to the per-dimension
+ * mean of the stored vectors splits every dimension near its middle instead, which keeps the bits
+ * informative when embeddings are not centred on the origin.
+ */
+public final class BinaryQuantizer {
+
+  private final float[] thresholds;
+
+  private BinaryQuantizer(float[] thresholds) {
+    this.thresholds = thresholds;
+  }
+
+  /**
+   * Quantizer thresholding every component at zero. Used until enough vectors have been seen to
+   * calibrate.
+   *
+   * @param dimensions Vector dimensions
+   * @return Uncalibrated quantizer
+   */
+  public static BinaryQuantizer signs(int dimensions) {
+    return new BinaryQuantizer(new float[dimensions]);
+  }
+
+  /**
+   * Calibrate the thresholds to the mean of the live vectors of an arena.
+   *
+   * @param arena Arena holding normalized vectors
+   * @return Quantizer centred on the live vectors, or {@link #signs} if there are none
+   */
+  public static BinaryQuantizer calibrate(VectorArena arena) {
+    int dimensions = arena.dimensions();
+    double[] sums = new double[dimensions];
+    float[] vector = new float[dimensions];
+    int count = 0;
+    for (int ordinal = 0; ordinal < arena.size(); ordinal++) {
+      if (arena.isDeleted(ordinal)) {
+        continue;
+      }
+      arena.copy(ordinal, vector);
+      for (int i = 0; i < dimensions; i++) {
+        sums[i] += vector[i];
+      }
+      count++;
+    }
+    float[] thresholds = new float[dimensions];
+    for (int i = 0; count > 0 && i < dimensions; i++) {
+      thresholds[i] = (float) (sums[i] / count);
+    }
+    return new BinaryQuantizer(thresholds);
+  }
+
+  /**
+   * Number of {@code long} words in one code.
+   *
+   * @param dimensions Vector dimensions
+   * @return Words per code
+   */
+  public static int words(int dimensions) {
+    return (dimensions + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  public int dimensions() {
+    return thresholds.length;
+  }
+
+  /**
+   * Encode a normalized vector.
+   *
+   * @param vector Vector with {@link #dimensions()} components
+   * @param codes Destination array
+   * @param start Index the first word is written to
+   */
+  public void encode(float[] vector, long[] codes, int start) {
+    int words = words(thresholds.length);
+    for (int word = 0; word < words; word++) {
+      long bits = 0L;
+      int base = word * Long.SIZE;
+      int end = Math.min(Long.SIZE, thresholds.length - base);
+      for (int bit = 0; bit < end; bit++) {
+        if (vector[base + bit] > thresholds[base + bit]) {
+          bits |= 1L << bit;
+        }
+      }
+      codes[start + word] = bits;
+    }
+  }
+
+  /**
+   * Encode a normalized query into a new array.
+   *
+   * @param unitQuery Normalized query
+   * @return Query code
+   */
+  public long[] encode(float[] unitQuery) {
+    long[] code = new long[words(thresholds.length)];
+    encode(unitQuery, code, 0);
+    return code;
+  }
+
+  /**
+   * Number of differing bits between a query code and a stored one.
+   *
+   * @param query Code from {@link #encode(float[])}
+   * @param codes Array holding stored codes
+   * @param start Index of the stored code's first word
+   * @return Hamming distance
+   */
+  public static int distance(long[] query, long[] codes, int start) {
+    int distance = 0;
+    for (int word = 0; word < query.length; word++) {
+      distance += Long.bitCount(query[word] ^ codes[start + word]);
+    }
+    return distance;
+  }
+}
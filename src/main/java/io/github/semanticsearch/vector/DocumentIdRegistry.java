@@ -0,0 +1,179 @@
+package io.github.semanticsearch.vector;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bidirectional mapping between document IDs, vector IDs and the dense ordinals of a {@link
+ * VectorArena}. Every direction is a constant-time lookup: vector and document IDs resolve through
+ * hash maps, and ordinals index flat arrays. Document IDs are stored as two longs per ordinal in a
+ * single {@code long[]}, so mapping a search hit back to its document allocates nothing but the
+ * returned {@link UUID}. Each ordinal also carries the {@link VectorFilter} tags of its document.
+ *
+ * <p>Mutations and ID lookups must be serialized by the owning index. {@link #documentId(int)} may
+ * be called without locking for any ordinal that was safely published to the reading thread after
+ * {@link #put}, and the same holds for {@link #tags(int)}; removing a vector leaves its document
+ * and tag slots intact (the arena tombstone is what hides it) so such readers never observe a torn
+ * ID.
+ */
+public final class DocumentIdRegistry {
+
+  /** Returned by lookups when the ID is not registered. */
+  public static final int ABSENT = -1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final String[] NO_TAGS = new String[0];
+
+  private final Map<String, Integer> ordinalsByVectorId = new HashMap<>();
+  private final Map<UUID, Integer> ordinalsByDocumentId = new HashMap<>();
+  private volatile long[] documentBits = new long[2 * INITIAL_CAPACITY];
+  private volatile String[][] tags = new String[INITIAL_CAPACITY][];
+  private String[] vectorIds = new String[INITIAL_CAPACITY];
+
+  /** Number of registered vector IDs. */
+  public int size() {
+    return ordinalsByVectorId.size();
+  }
+
+  /**
+   * Register a vector under a freshly allocated ordinal. A document maps to its most recently
+   * registered vector.
+   *
+   * @param ordinal Arena ordinal holding the vector
+   * @param vectorId Vector ID referenced by the document
+   * @param documentId Document the vector belongs to
+   * @return Ordinal previously registered for the vector ID, or {@link #ABSENT}
+   */
+  public int put(int ordinal, String vectorId, UUID documentId) {
+    return put(ordinal, vectorId, documentId, NO_TAGS);
+  }
+
+  /**
+   * Register a vector with the filter tags of its document.
+   *
+   * @param ordinal Arena ordinal holding the vector
+   * @param vectorId Vector ID referenced by the document
+   * @param documentId Document the vector belongs to
+   * @param documentTags Sorted tags from {@link VectorFilter#tags(Map)}
+   * @return Ordinal previously registered for the vector ID, or {@link #ABSENT}
+   */
+  public int put(int ordinal, String vectorId, UUID documentId, String[] documentTags) {
+    ensureCapacity(ordinal + 1);
+    String[][] tagSlots = tags;
+    tagSlots[ordinal] = documentTags;
+    tags = tagSlots;
+    long[] bits = documentBits;
+    bits[2 * ordinal] = documentId.getMostSignificantBits();
+    bits[2 * ordinal + 1] = documentId.getLeastSignificantBits();
+    // Volatile write publishes the slot to lock-free readers.
+    documentBits = bits;
+    vectorIds[ordinal] = vectorId;
+
+    Integer previous = ordinalsByVectorId.put(vectorId, ordinal);
+    if (previous != null) {
+      vectorIds[previous] = null;
+    }
+    ordinalsByDocumentId.put(documentId, ordinal);
+    return previous != null ? previous : ABSENT;
+  }
+
+  /**
+   * Unregister a vector ID.
+   *
+   * @param vectorId Vector ID to remove
+   * @return Ordinal the vector ID was registered under, or {@link #ABSENT}
+   */
+  public int remove(String vectorId) {
+    Integer ordinal = ordinalsByVectorId.remove(vectorId);
+    if (ordinal == null) {
+      return ABSENT;
+    }
+    vectorIds[ordinal] = null;
+    ordinalsByDocumentId.remove(documentId(ordinal), ordinal);
+    return ordinal;
+  }
+
+  /** Ordinal registered for the vector ID, or {@link #ABSENT}. */
+  public int ordinalOf(String vectorId) {
+    Integer ordinal = ordinalsByVectorId.get(vectorId);
+    return ordinal != null ? ordinal : ABSENT;
+  }
+
+  /** Ordinal of the document's current vector, or {@link #ABSENT}. */
+  public int ordinalOfDocument(UUID documentId) {
+    Integer ordinal = ordinalsByDocumentId.get(documentId);
+    return ordinal != null ? ordinal : ABSENT;
+  }
+
+  /** Document that owns the vector at the ordinal. */
+  public UUID documentId(int ordinal) {
+    long[] bits = documentBits;
+    return new UUID(bits[2 * ordinal], bits[2 * ordinal + 1]);
+  }
+
+  /** Filter tags of the document that owns the vector at the ordinal. */
+  public String[] tags(int ordinal) {
+    String[] documentTags = tags[ordinal];
+    return documentTags != null ? documentTags : NO_TAGS;
+  }
+
+  /** Vector ID registered at the ordinal, or null if it was removed. */
+  public String vectorId(int ordinal) {
+    return ordinal < vectorIds.length ? vectorIds[ordinal] : null;
+  }
+
+  /**
+   * Move live entries to their new ordinals after {@link VectorArena#compact()}. Requires the same
+   * exclusive access as the compaction itself.
+   *
+   * @param remap New ordinal for every old ordinal, or -1 where the vector was purged
+   */
+  public void remap(int[] remap) {
+    long[] oldBits = documentBits;
+    String[][] oldTags = tags;
+    String[] oldVectorIds = vectorIds;
+    int capacity = Math.max(INITIAL_CAPACITY, remap.length);
+    long[] bits = new long[2 * capacity];
+    String[][] tagSlots = new String[capacity][];
+    String[] ids = new String[capacity];
+    for (int old = 0; old < remap.length; old++) {
+      int ordinal = remap[old];
+      if (ordinal < 0) {
+        continue;
+      }
+      bits[2 * ordinal] = oldBits[2 * old];
+      bits[2 * ordinal + 1] = oldBits[2 * old + 1];
+      tagSlots[ordinal] = oldTags[old];
+      ids[ordinal] = oldVectorIds[old];
+      if (ids[ordinal] != null) {
+        ordinalsByVectorId.put(ids[ordinal], ordinal);
+      }
+    }
+    ordinalsByDocumentId.replaceAll((documentId, old) -> remap[old]);
+    ordinalsByDocumentId.values().removeIf(ordinal -> ordinal < 0);
+    vectorIds = ids;
+    tags = tagSlots;
+    documentBits = bits;
+  }
+
+  public void clear() {
+    ordinalsByVectorId.clear();
+    ordinalsByDocumentId.clear();
+    vectorIds = new String[INITIAL_CAPACITY];
+    tags = new String[INITIAL_CAPACITY][];
+    documentBits = new long[2 * INITIAL_CAPACITY];
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= vectorIds.length) {
+      return;
+    }
+    int grown = Math.max(capacity, vectorIds.length * 2);
+    vectorIds = Arrays.copyOf(vectorIds, grown);
+    tags = Arrays.copyOf(tags, grown);
+    documentBits = Arrays.copyOf(documentBits, 2 * grown);
+  }
+}
@@ -0,0 +1,155 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact (brute-force) vector index over a {@link VectorArena}. Every query is a linear scan over
+ * the packed off-heap vectors. Deleted vectors are tombstoned and purged by compaction once they
+ * make up a quarter of the arena.
+ */
+public class FlatVectorIndex implements VectorIndex {
+
+  private static final double COMPACTION_RATIO = 0.25;
+  private static final int MIN_DELETES_FOR_COMPACTION = 64;
+
+  private final VectorArena arena;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final DocumentIdRegistry registry;
+
+  public FlatVectorIndex(int dimensions) {
+    this(new VectorArena(dimensions));
+  }
+
+  public FlatVectorIndex(VectorArena arena) {
+    this(arena, new DocumentIdRegistry());
+  }
+
+  /**
+   * Index over a restored snapshot.
+   *
+   * @param snapshot Snapshot opened with {@link VectorSnapshot#open}
+   */
+  public FlatVectorIndex(VectorSnapshot snapshot) {
+    this(snapshot.arena(), snapshot.registry());
+  }
+
+  private FlatVectorIndex(VectorArena arena, DocumentIdRegistry registry) {
+    this.arena = arena;
+    this.registry = registry;
+  }
+
+  @Override
+  public int dimensions() {
+    return arena.dimensions();
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return arena.liveCount();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void add(
+      String vectorId, UUID documentId, float[] vector, Map<String, String> metadata) {
+    String[] tags = VectorFilter.tags(metadata);
+    lock.writeLock().lock();
+    try {
+      int ordinal = arena.append(vector);
+      int previous = registry.put(ordinal, vectorId, documentId, tags);
+      if (previous != DocumentIdRegistry.ABSENT) {
+        arena.delete(previous);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(String vectorId) {
+    lock.writeLock().lock();
+    try {
+      int ordinal = registry.remove(vectorId);
+      if (ordinal == DocumentIdRegistry.ABSENT) {
+        return false;
+      }
+      arena.delete(ordinal);
+      if (arena.deletedCount() >= MIN_DELETES_FOR_COMPACTION
+          && arena.deletedCount() >= arena.size() * COMPACTION_RATIO) {
+        compact();
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId, VectorFilter filter) {
+    if (query.length != arena.dimensions()) {
+      return List.of();
+    }
+    float[] unitQuery = VectorMath.normalize(query);
+    TopK top = new TopK(Math.max(1, k));
+    List<VectorMatch> matches = new ArrayList<>(Math.max(1, k));
+    lock.readLock().lock();
+    try {
+      int size = arena.size();
+      for (int ordinal = 0; ordinal < size; ordinal++) {
+        if (arena.isDeleted(ordinal)) {
+          continue;
+        }
+        float score = arena.dot(ordinal, unitQuery);
+        if (score >= minScore
+            && top.accepts(score)
+            && (filter.isEmpty() || filter.matches(registry.tags(ordinal)))
+            && (excludedDocumentId == null
+                || !excludedDocumentId.equals(registry.documentId(ordinal)))) {
+          top.offer(ordinal, score);
+        }
+      }
+      top.drainDescending(
+          (ordinal, score) -> matches.add(new VectorMatch(registry.documentId(ordinal), score)));
+    } finally {
+      lock.readLock().unlock();
+    }
+    return matches;
+  }
+
+  @Override
+  public void writeSnapshot(Path path) throws IOException {
+    lock.readLock().lock();
+    try {
+      VectorSnapshot.write(path, arena, registry);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      registry.clear();
+      arena.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void compact() {
+    registry.remap(arena.compact());
+  }
+}
@@ -0,0 +1,603 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Approximate nearest-neighbour index based on Hierarchical Navigable Small World graphs (Malkov
+ * &amp; Yashunin). Vectors live in a {@link VectorArena}; the graph keeps up to {@code m}
+ * neighbours per node on upper layers and {@code 2 * m} on the bottom layer.
+ *
+ * <p>Inserts run concurrently: only the arena append is serialized, and linking locks one node at
+ * a time. Deletes are soft: the node stays in the graph for navigation but is never returned.
+ *
+ * <p>Searches apply deletes, the excluded document and {@link VectorFilter}s during the bottom
+ * layer traversal: rejected nodes are still expanded as stepping stones but never fill a result
+ * slot, so the beam keeps going until it holds {@code ef} acceptable nodes. A selective filter
+ * would make that beam expand most of the graph, so when few vectors match, the matching ones are
+ * scored exactly instead; see {@link #FILTERED_SCAN_FACTOR}.
+ *
+ * <p>Snapshots hold the vectors and IDs but not the graph. {@link #restore} returns as soon as the
+ * vectors are mapped and relinks them on a background thread, which costs CPU but no embedding
+ * calls; until the graph is complete, searches score every vector exactly, so they are correct but
+ * take time linear in the index size.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+  /**
+   * A filtered search scores the matching vectors exactly when there are at most this many per
+   * slot of the candidate list. The beam expands about {@code ef / selectivity} nodes, so below
+   * this cutoff a linear pass over the tags plus one dot product per match is cheaper, and exact.
+   */
+  static final int FILTERED_SCAN_FACTOR = 16;
+
+  private final VectorArena arena;
+  private final int m;
+  private final int maxNeighborsLayer0;
+  private final int efConstruction;
+  private final int efSearch;
+  private final double levelMultiplier;
+
+  private final Object writeLock = new Object();
+  private final DocumentIdRegistry registry;
+  private final AtomicInteger liveCount = new AtomicInteger();
+  private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+  private final CountDownLatch relinked = new CountDownLatch(1);
+
+  // Set only on restored indexes, while the graph is being relinked
+  private volatile ExecutorService relinker;
+
+  private volatile Node[] nodes = new Node[16];
+  private volatile EntryPoint entryPoint;
+
+  public HnswVectorIndex(int dimensions, int m, int efConstruction, int efSearch) {
+    this(new VectorArena(dimensions), m, efConstruction, efSearch);
+  }
+
+  public HnswVectorIndex(VectorArena arena, int m, int efConstruction, int efSearch) {
+    this(arena, new DocumentIdRegistry(), m, efConstruction, efSearch, true);
+  }
+
+  private HnswVectorIndex(
+      VectorArena arena,
+      DocumentIdRegistry registry,
+      int m,
+      int efConstruction,
+      int efSearch,
+      boolean linked) {
+    if (m < 2) {
+      throw new IllegalArgumentException("HNSW m must be at least 2");
+    }
+    this.arena = arena;
+    this.registry = registry;
+    this.m = m;
+    this.maxNeighborsLayer0 = 2 * m;
+    this.efConstruction = Math.max(efConstruction, m);
+    this.efSearch = Math.max(1, efSearch);
+    this.levelMultiplier = 1.0 / Math.log(m);
+    if (linked) {
+      relinked.countDown();
+    }
+  }
+
+  /**
+   * Index over a restored snapshot. The snapshot's vectors are searchable and writable at once; the
+   * graph is rebuilt over them on a background thread, and searches are exact until it is done.
+   *
+   * @param snapshot Snapshot opened with {@link VectorSnapshot#open}
+   * @param m Neighbours per node on upper layers
+   * @param efConstruction Candidate list size while linking
+   * @param efSearch Default candidate list size per query
+   * @return Index holding the snapshot's live vectors
+   */
+  public static HnswVectorIndex restore(
+      VectorSnapshot snapshot, int m, int efConstruction, int efSearch) {
+    VectorArena arena = snapshot.arena();
+    HnswVectorIndex index =
+        new HnswVectorIndex(arena, snapshot.registry(), m, efConstruction, efSearch, false);
+    int size = arena.size();
+    Node[] restored = new Node[Math.max(16, size)];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      Node node = new Node(arena.isDeleted(ordinal) ? 0 : index.randomLevel());
+      node.deleted = arena.isDeleted(ordinal);
+      restored[ordinal] = node;
+      if (!node.deleted) {
+        index.liveCount.incrementAndGet();
+      }
+    }
+    index.nodes = restored;
+    index.relinker =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "vector-relink");
+              thread.setDaemon(true);
+              return thread;
+            });
+    index.relinker.execute(() -> index.relink(size));
+    index.relinker.shutdown();
+    return index;
+  }
+
+  /**
+   * Wait until a restored index has rebuilt its graph. Searches are exact, and slower, until then.
+   *
+   * @param timeout Maximum time to wait
+   * @param unit Unit of {@code timeout}
+   * @return True if the graph is complete
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public boolean awaitRelinked(long timeout, TimeUnit unit) throws InterruptedException {
+    return relinked.await(timeout, unit);
+  }
+
+  /**
+   * Link the first {@code size} restored nodes. Vectors added meanwhile link themselves, as
+   * concurrent inserts do; the graph serves searches once every restored node is linked.
+   */
+  private void relink(int size) {
+    float[] unit = new float[arena.dimensions()];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      Node node = nodes[ordinal];
+      if (!node.deleted) {
+        arena.copy(ordinal, unit);
+        connect(ordinal, unit, node.neighbors.length - 1, node);
+      }
+    }
+    relinked.countDown();
+  }
+
+  @Override
+  public int dimensions() {
+    return arena.dimensions();
+  }
+
+  @Override
+  public int size() {
+    return liveCount.get();
+  }
+
+  @Override
+  public void add(
+      String vectorId, UUID documentId, float[] vector, Map<String, String> metadata) {
+    float[] unit = VectorMath.normalize(vector);
+    String[] tags = VectorFilter.tags(metadata);
+    int level = randomLevel();
+    int ordinal;
+    Node node;
+    synchronized (writeLock) {
+      ordinal = arena.append(unit);
+      int previous = registry.put(ordinal, vectorId, documentId, tags);
+      if (previous != DocumentIdRegistry.ABSENT) {
+        markDeleted(previous);
+      }
+      node = new Node(level);
+      Node[] current = nodes;
+      if (ordinal >= current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+      }
+      current[ordinal] = node;
+      nodes = current;
+      liveCount.incrementAndGet();
+    }
+    connect(ordinal, unit, level, node);
+  }
+
+  /** Link a published node into the graph, promoting it to entry point if it is the highest. */
+  private void connect(int ordinal, float[] unit, int level, Node node) {
+    EntryPoint entry = entryPoint;
+    if (entry == null) {
+      synchronized (writeLock) {
+        if (entryPoint == null) {
+          entryPoint = new EntryPoint(ordinal, level);
+          return;
+        }
+        entry = entryPoint;
+      }
+    }
+
+    int current = entry.ordinal();
+    float currentScore = arena.dot(current, unit);
+    for (int layer = entry.level(); layer > level; layer--) {
+      current = greedyClosest(unit, current, currentScore, layer);
+      currentScore = arena.dot(current, unit);
+    }
+
+    Neighborhood entryPoints = Neighborhood.of(current, currentScore);
+    for (int layer = Math.min(level, entry.level()); layer >= 0; layer--) {
+      Neighborhood found =
+          Neighborhood.drain(searchLayer(unit, entryPoints, efConstruction, layer));
+      int[] selected = selectNeighbors(found, m);
+      node.setNeighbors(layer, selected);
+      for (int neighbor : selected) {
+        link(neighbor, ordinal, layer);
+      }
+      entryPoints = found;
+    }
+
+    if (level > entry.level()) {
+      synchronized (writeLock) {
+        if (level > entryPoint.level()) {
+          entryPoint = new EntryPoint(ordinal, level);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(String vectorId) {
+    synchronized (writeLock) {
+      int ordinal = registry.remove(vectorId);
+      if (ordinal == DocumentIdRegistry.ABSENT) {
+        return false;
+      }
+      markDeleted(ordinal);
+      return true;
+    }
+  }
+
+  @Override
+  public List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId, VectorFilter filter) {
+    return search(query, k, minScore, excludedDocumentId, filter, efSearch);
+  }
+
+  /**
+   * Find the vectors most similar to the query with an explicit search breadth.
+   *
+   * @param query Query vector
+   * @param k Maximum number of matches to return
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @param ef Size of the dynamic candidate list; larger values trade latency for recall
+   * @return Matches ordered by descending score
+   */
+  public List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId, int ef) {
+    return search(query, k, minScore, excludedDocumentId, VectorFilter.NONE, ef);
+  }
+
+  /**
+   * Find the vectors most similar to the query among those matching the filter, with an explicit
+   * search breadth.
+   *
+   * @param query Query vector
+   * @param k Maximum number of matches to return
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @param filter Metadata filter
+   * @param ef Size of the dynamic candidate list; larger values trade latency for recall
+   * @return Matches ordered by descending score
+   */
+  public List<VectorMatch> search(
+      float[] query,
+      int k,
+      float minScore,
+      UUID excludedDocumentId,
+      VectorFilter filter,
+      int ef) {
+    EntryPoint entry = entryPoint;
+    boolean linked = relinked.getCount() == 0;
+    if ((linked && entry == null) || query.length != arena.dimensions()) {
+      return List.of();
+    }
+    float[] unit = VectorMath.normalize(query);
+    int limit = Math.max(1, k);
+
+    IntPredicate accept =
+        ordinal ->
+            !nodes[ordinal].deleted
+                && (filter.isEmpty() || filter.matches(registry.tags(ordinal)))
+                && (excludedDocumentId == null
+                    || !excludedDocumentId.equals(registry.documentId(ordinal)));
+    int beam = Math.max(ef, limit);
+    int[] matching;
+    if (!linked) {
+      // The graph does not reach every vector yet
+      matching = matchingOrdinals(accept, Integer.MAX_VALUE);
+    } else {
+      matching = filter.isEmpty() ? null : matchingOrdinals(accept, beam * FILTERED_SCAN_FACTOR);
+    }
+    TopK found;
+    if (matching != null) {
+      found = new TopK(limit);
+      for (int ordinal : matching) {
+        found.offer(ordinal, arena.dot(ordinal, unit));
+      }
+    } else {
+      int current = entry.ordinal();
+      float currentScore = arena.dot(current, unit);
+      for (int layer = entry.level(); layer > 0; layer--) {
+        current = greedyClosest(unit, current, currentScore, layer);
+        currentScore = arena.dot(current, unit);
+      }
+      found = searchLayer(unit, Neighborhood.of(current, currentScore), beam, 0, accept);
+    }
+
+    List<VectorMatch> matches = new ArrayList<>(limit);
+    found.drainDescending(
+        (ordinal, score) -> {
+          if (matches.size() < limit && score >= minScore) {
+            matches.add(new VectorMatch(registry.documentId(ordinal), score));
+          }
+        });
+    return matches;
+  }
+
+  @Override
+  public void writeSnapshot(Path path) throws IOException {
+    synchronized (writeLock) {
+      VectorSnapshot.write(path, arena, registry);
+    }
+  }
+
+  @Override
+  public void close() {
+    ExecutorService currentRelinker = relinker;
+    if (currentRelinker != null) {
+      currentRelinker.shutdownNow();
+      try {
+        // The relink thread reads the arena, which is about to be closed
+        currentRelinker.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (writeLock) {
+      entryPoint = null;
+      nodes = new Node[16];
+      registry.clear();
+      liveCount.set(0);
+      arena.close();
+    }
+  }
+
+  private void markDeleted(int ordinal) {
+    Node node = nodes[ordinal];
+    if (!node.deleted) {
+      node.deleted = true;
+      arena.delete(ordinal);
+      liveCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Ordinals of the published nodes the predicate accepts, or null as soon as there are more than
+   * {@code cutoff}, in which case the graph search is the cheaper way to find the best of them.
+   */
+  private int[] matchingOrdinals(IntPredicate accept, int cutoff) {
+    Node[] current = nodes;
+    int[] matching = new int[Math.min(cutoff, 64)];
+    int count = 0;
+    for (int ordinal = 0; ordinal < current.length; ordinal++) {
+      if (current[ordinal] == null || !accept.test(ordinal)) {
+        continue;
+      }
+      if (count == cutoff) {
+        return null;
+      }
+      if (count == matching.length) {
+        matching = Arrays.copyOf(matching, Math.min(cutoff, count * 2));
+      }
+      matching[count++] = ordinal;
+    }
+    return Arrays.copyOf(matching, count);
+  }
+
+  private int greedyClosest(float[] query, int start, float startScore, int layer) {
+    int current = start;
+    float currentScore = startScore;
+    boolean improved = true;
+    while (improved) {
+      improved = false;
+      for (int neighbor : nodes[current].neighbors(layer)) {
+        float score = arena.dot(neighbor, query);
+        if (score > currentScore) {
+          current = neighbor;
+          currentScore = score;
+          improved = true;
+        }
+      }
+    }
+    return current;
+  }
+
+  /** Beam search on one layer; returns a min-heap holding the best {@code ef} candidates. */
+  private TopK searchLayer(float[] query, Neighborhood entryPoints, int ef, int layer) {
+    return searchLayer(query, entryPoints, ef, layer, null);
+  }
+
+  /**
+   * Beam search on one layer that only admits accepted nodes to the results. Rejected nodes are
+   * still queued as candidates while they score within the current results, so the search can
+   * route through them to accepted nodes elsewhere in the graph.
+   */
+  private TopK searchLayer(
+      float[] query, Neighborhood entryPoints, int ef, int layer, IntPredicate accept) {
+    VisitedSet seen = visited.get();
+    seen.reset(nodes.length);
+
+    // Candidates are kept with negated scores so the min-heap pops the closest one first.
+    TopK candidates = TopK.unbounded();
+    TopK results = new TopK(ef);
+    for (int i = 0; i < entryPoints.size; i++) {
+      int ordinal = entryPoints.ordinals[i];
+      if (seen.visit(ordinal)) {
+        candidates.offer(ordinal, -entryPoints.scores[i]);
+        if (accept == null || accept.test(ordinal)) {
+          results.offer(ordinal, entryPoints.scores[i]);
+        }
+      }
+    }
+
+    while (!candidates.isEmpty()) {
+      float closestScore = -candidates.peekScore();
+      int closest = candidates.poll();
+      if (results.isFull() && closestScore < results.peekScore()) {
+        break;
+      }
+      for (int neighbor : nodes[closest].neighbors(layer)) {
+        if (!seen.visit(neighbor)) {
+          continue;
+        }
+        float score = arena.dot(neighbor, query);
+        if (results.accepts(score)) {
+          candidates.offer(neighbor, -score);
+          if (accept == null || accept.test(neighbor)) {
+            results.offer(neighbor, score);
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Neighbour selection heuristic: keep a candidate only if it is closer to the base than to any
+   * neighbour already selected, which spreads links across clusters.
+   */
+  private int[] selectNeighbors(Neighborhood sortedDesc, int max) {
+    int[] selected = new int[Math.min(max, sortedDesc.size)];
+    int count = 0;
+    for (int i = 0; i < sortedDesc.size && count < selected.length; i++) {
+      int candidate = sortedDesc.ordinals[i];
+      float score = sortedDesc.scores[i];
+      boolean diverse = true;
+      for (int j = 0; j < count; j++) {
+        if (arena.dot(candidate, selected[j]) > score) {
+          diverse = false;
+          break;
+        }
+      }
+      if (diverse) {
+        selected[count++] = candidate;
+      }
+    }
+    return Arrays.copyOf(selected, count);
+  }
+
+  private void link(int from, int to, int layer) {
+    Node node = nodes[from];
+    int max = layer == 0 ? maxNeighborsLayer0 : m;
+    synchronized (node) {
+      int[] existing = node.neighbors(layer);
+      for (int neighbor : existing) {
+        if (neighbor == to) {
+          return;
+        }
+      }
+      if (existing.length < max) {
+        int[] grown = Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = to;
+        node.setNeighbors(layer, grown);
+        return;
+      }
+      TopK candidates = new TopK(existing.length + 1);
+      for (int neighbor : existing) {
+        candidates.offer(neighbor, arena.dot(from, neighbor));
+      }
+      candidates.offer(to, arena.dot(from, to));
+      node.setNeighbors(layer, selectNeighbors(Neighborhood.drain(candidates), max));
+    }
+  }
+
+  private int randomLevel() {
+    double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+    return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+  }
+
+  private record EntryPoint(int ordinal, int level) {}
+
+  private static final class Node {
+    final int[][] neighbors;
+    volatile boolean deleted;
+
+    Node(int level) {
+      this.neighbors = new int[level + 1][];
+      for (int layer = 0; layer <= level; layer++) {
+        neighbors[layer] = new int[0];
+      }
+    }
+
+    synchronized int[] neighbors(int layer) {
+      return layer < neighbors.length ? neighbors[layer] : new int[0];
+    }
+
+    synchronized void setNeighbors(int layer, int[] values) {
+      neighbors[layer] = values;
+    }
+  }
+
+  /** Ordinals with scores, sorted from the highest score to the lowest. */
+  private static final class Neighborhood {
+    final int[] ordinals;
+    final float[] scores;
+    int size;
+
+    private Neighborhood(int capacity) {
+      ordinals = new int[capacity];
+      scores = new float[capacity];
+    }
+
+    static Neighborhood of(int ordinal, float score) {
+      Neighborhood single = new Neighborhood(1);
+      single.ordinals[0] = ordinal;
+      single.scores[0] = score;
+      single.size = 1;
+      return single;
+    }
+
+    static Neighborhood drain(TopK heap) {
+      Neighborhood sorted = new Neighborhood(heap.size());
+      heap.drainDescending(
+          (ordinal, score) -> {
+            sorted.ordinals[sorted.size] = ordinal;
+            sorted.scores[sorted.size++] = score;
+          });
+      return sorted;
+    }
+  }
+
+  /** Generation-stamped visited marks, reused per thread to avoid allocating per query. */
+  private static final class VisitedSet {
+    private int[] marks = new int[0];
+    private int generation;
+
+    void reset(int capacity) {
+      if (marks.length < capacity) {
+        marks = new int[capacity];
+        generation = 0;
+      }
+      generation++;
+      if (generation == Integer.MAX_VALUE) {
+        Arrays.fill(marks, 0);
+        generation = 1;
+      }
+    }
+
+    boolean visit(int ordinal) {
+      if (ordinal >= marks.length) {
+        marks = Arrays.copyOf(marks, Math.max(ordinal + 1, marks.length * 2));
+      }
+      if (marks[ordinal] == generation) {
+        return false;
+      }
+      marks[ordinal] = generation;
+      return true;
+    }
+  }
+}
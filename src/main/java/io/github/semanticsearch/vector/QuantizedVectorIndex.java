@@ -0,0 +1,127 @@
+package io.github.semanticsearch.vector;
+
+import java.nio.file.Path;
+
+/**
+ * Rescoring index over int8 codes: one byte per dimension, quantized by a {@link
+ * ScalarQuantizer}. The codes are a quarter of the float vectors and score with an integer
+ * multiply-add per dimension, close enough to the exact order that a small shortlist suffices.
+ *
+ * <p>Until {@code calibrationSize} vectors are indexed the codes cover the full {@code [-1, 1]}
+ * range; then the range is calibrated to the stored vectors.
+ */
+public class QuantizedVectorIndex extends RescoringVectorIndex<byte[]> {
+
+  /** Default shortlist size as a multiple of {@code k}. */
+  public static final int DEFAULT_OVERSAMPLE = 4;
+
+  /** Default number of vectors indexed before the quantization range is calibrated. */
+  public static final int DEFAULT_CALIBRATION_SIZE = 10_000;
+
+  /**
+   * Create an empty index.
+   *
+   * @param dimensions Vector dimensions
+   * @param vectorsPerPage Vectors per page of codes and of the float file
+   * @param directory Directory for the full-precision float file, or null for a temporary one
+   * @param calibration Per-dimension or global quantization range
+   * @param calibrationSize Vectors indexed before the range is calibrated
+   * @param oversample Shortlist size as a multiple of {@code k}
+   */
+  public QuantizedVectorIndex(
+      int dimensions,
+      int vectorsPerPage,
+      Path directory,
+      ScalarQuantizer.Calibration calibration,
+      int calibrationSize,
+      int oversample) {
+    this(
+        dimensions,
+        vectorsPerPage,
+        directory,
+        calibration,
+        calibrationSize,
+        oversample,
+        new DocumentIdRegistry());
+  }
+
+  private QuantizedVectorIndex(
+      int dimensions,
+      int vectorsPerPage,
+      Path directory,
+      ScalarQuantizer.Calibration calibration,
+      int calibrationSize,
+      int oversample,
+      DocumentIdRegistry registry) {
+    super(
+        dimensions,
+        vectorsPerPage,
+        directory,
+        "vector-int8",
+        new Int8Coder(ScalarQuantizer.unitRange(dimensions), calibration),
+        calibrationSize,
+        oversample,
+        registry);
+  }
+
+  /**
+   * Index over a restored snapshot. The snapshot's vectors are copied into a new float file and
+   * quantized.
+   *
+   * @param snapshot Snapshot opened with {@link VectorSnapshot#open}
+   * @param directory Directory for the full-precision float file, or null for a temporary one
+   * @param calibration Per-dimension or global quantization range
+   * @param calibrationSize Vectors indexed before the range is calibrated
+   * @param oversample Shortlist size as a multiple of {@code k}
+   * @return Restored index
+   */
+  public static QuantizedVectorIndex restore(
+      VectorSnapshot snapshot,
+      Path directory,
+      ScalarQuantizer.Calibration calibration,
+      int calibrationSize,
+      int oversample) {
+    VectorArena source = snapshot.arena();
+    QuantizedVectorIndex index =
+        new QuantizedVectorIndex(
+            source.dimensions(),
+            source.vectorsPerPage(),
+            directory,
+            calibration,
+            calibrationSize,
+            oversample,
+            snapshot.registry());
+    index.load(source);
+    return index;
+  }
+
+  /** Int8 codes scored by the approximate dot product of a prepared query. */
+  private record Int8Coder(ScalarQuantizer quantizer, ScalarQuantizer.Calibration calibration)
+      implements Coder<byte[]> {
+
+    @Override
+    public int codeLength() {
+      return quantizer.dimensions();
+    }
+
+    @Override
+    public byte[] newPage(int length) {
+      return new byte[length];
+    }
+
+    @Override
+    public void encode(float[] unit, byte[] page, int start) {
+      quantizer.encode(unit, page, start);
+    }
+
+    @Override
+    public Scorer<byte[]> prepare(float[] unitQuery) {
+      return quantizer.prepare(unitQuery)::score;
+    }
+
+    @Override
+    public Coder<byte[]> calibrate(VectorArena arena) {
+      return new Int8Coder(ScalarQuantizer.calibrate(arena, calibration), calibration);
+    }
+  }
+}
@@ -0,0 +1,531 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Vector index that scans compact codes and rescores a shortlist at full precision. Every vector
+ * is kept twice: as a code on the heap, written by a pluggable {@link Coder}, and as normalized
+ * floats in a {@link VectorArena#mapped mapped} file. A query scores every code approximately,
+ * keeps the best {@code k * oversample} candidates, then ranks only those by their exact cosine
+ * similarity, so just the shortlist's pages of the float file have to be read from the page cache.
+ *
+ * <p>Until {@code calibrationSize} vectors are indexed the codes use the coder's uncalibrated
+ * form. Then the coder is calibrated to the stored vectors and every code is re-encoded, and each
+ * later compaction recalibrates. Deleted vectors are tombstoned and purged by compaction once they
+ * make up a quarter of the index. A background thread copies the live vectors into a new float
+ * file, recalibrates and encodes them without blocking searches or writes, then swaps the copy in
+ * under the write lock after replaying the adds and deletes made while it was copying.
+ *
+ * @param <P> Array type of one page of codes
+ */
+public abstract class RescoringVectorIndex<P> implements VectorIndex {
+
+  /**
+   * Quantizer behind the first stage: how codes are stored, written and scored.
+   *
+   * @param <P> Array type of one page of codes
+   */
+  protected interface Coder<P> {
+
+    /** Array elements taken by one code. */
+    int codeLength();
+
+    /**
+     * Allocate a page of codes.
+     *
+     * @param length Array elements in the page
+     * @return Zeroed page
+     */
+    P newPage(int length);
+
+    /**
+     * Encode a normalized vector.
+     *
+     * @param unit Normalized vector
+     * @param page Destination page
+     * @param start Index of the code's first element
+     */
+    void encode(float[] unit, P page, int start);
+
+    /**
+     * Approximate score function for a normalized query.
+     *
+     * @param unitQuery Normalized query
+     * @return Function scoring stored codes, higher for closer vectors
+     */
+    Scorer<P> prepare(float[] unitQuery);
+
+    /**
+     * Coder calibrated to the live vectors of an arena.
+     *
+     * @param arena Arena holding normalized vectors
+     * @return Calibrated coder with the same code length
+     */
+    Coder<P> calibrate(VectorArena arena);
+  }
+
+  /**
+   * Approximate score of a stored code against a prepared query.
+   *
+   * @param <P> Array type of one page of codes
+   */
+  @FunctionalInterface
+  protected interface Scorer<P> {
+
+    /**
+     * Score one code.
+     *
+     * @param page Page holding the code
+     * @param start Index of the code's first element
+     * @return Approximate score; only its order matters
+     */
+    float score(P page, int start);
+  }
+
+  private static final double COMPACTION_RATIO = 0.25;
+  private static final int MIN_DELETES_FOR_COMPACTION = 64;
+
+  private final int dimensions;
+  private final int vectorsPerPage;
+  private final int codeLength;
+  private final Path directory;
+  private final boolean ownsDirectory;
+  private final int calibrationSize;
+  private final int oversample;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Serializes compactions, and close with a running compaction.
+  private final Object compactionMonitor = new Object();
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+  private final ExecutorService compactor;
+  private final DocumentIdRegistry registry;
+  // Scratch buffer for writers, guarded by the write lock.
+  private final float[] vectorScratch;
+
+  private VectorArena vectors;
+  private Path vectorFile;
+  // Guarded by compactionMonitor once constructed.
+  private int generation;
+  private List<P> codePages = new ArrayList<>();
+  private Coder<P> coder;
+  private boolean calibrated;
+
+  /**
+   * Create an empty index.
+   *
+   * @param dimensions Vector dimensions
+   * @param vectorsPerPage Vectors per page of codes and of the float file
+   * @param directory Directory for the full-precision float file, or null for a temporary one
+   * @param temporaryPrefix Name prefix of the temporary directory
+   * @param coder Uncalibrated coder
+   * @param calibrationSize Vectors indexed before the coder is calibrated
+   * @param oversample Shortlist size as a multiple of {@code k}
+   * @param registry Registry to use, possibly restored from a snapshot
+   */
+  protected RescoringVectorIndex(
+      int dimensions,
+      int vectorsPerPage,
+      Path directory,
+      String temporaryPrefix,
+      Coder<P> coder,
+      int calibrationSize,
+      int oversample,
+      DocumentIdRegistry registry) {
+    if (oversample < 1) {
+      throw new IllegalArgumentException("Oversample must be at least 1: " + oversample);
+    }
+    this.dimensions = dimensions;
+    this.vectorsPerPage = vectorsPerPage;
+    this.codeLength = coder.codeLength();
+    this.coder = coder;
+    this.calibrationSize = calibrationSize;
+    this.oversample = oversample;
+    this.registry = registry;
+    this.vectorScratch = new float[dimensions];
+    try {
+      this.ownsDirectory = directory == null;
+      this.directory =
+          ownsDirectory
+              ? Files.createTempDirectory(temporaryPrefix)
+              : Files.createDirectories(directory);
+      this.vectorFile = nextVectorFile();
+      this.vectors = VectorArena.mapped(dimensions, vectorsPerPage, vectorFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create full-precision vector file", e);
+    }
+    this.compactor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "vector-compact");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Copy a restored snapshot's vectors into the float file and encode them. Tombstoned ordinals
+   * are copied too so the restored registry's ordinals stay valid.
+   *
+   * @param source Arena of the snapshot whose registry this index was created with; closed after
+   */
+  protected final void load(VectorArena source) {
+    float[] vector = new float[source.dimensions()];
+    for (int ordinal = 0; ordinal < source.size(); ordinal++) {
+      source.copy(ordinal, vector);
+      vectors.appendNormalized(vector);
+      if (source.isDeleted(ordinal)) {
+        vectors.delete(ordinal);
+      }
+    }
+    source.close();
+    requantize();
+    if (needsCompaction()) {
+      scheduleCompaction();
+    }
+  }
+
+  @Override
+  public int dimensions() {
+    return dimensions;
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return vectors.liveCount();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void add(
+      String vectorId, UUID documentId, float[] vector, Map<String, String> metadata) {
+    String[] tags = VectorFilter.tags(metadata);
+    lock.writeLock().lock();
+    try {
+      int ordinal = vectors.append(vector);
+      encode(ordinal);
+      int previous = registry.put(ordinal, vectorId, documentId, tags);
+      if (previous != DocumentIdRegistry.ABSENT) {
+        vectors.delete(previous);
+      }
+      if (!calibrated && vectors.liveCount() >= calibrationSize) {
+        requantize();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(String vectorId) {
+    lock.writeLock().lock();
+    try {
+      int ordinal = registry.remove(vectorId);
+      if (ordinal == DocumentIdRegistry.ABSENT) {
+        return false;
+      }
+      vectors.delete(ordinal);
+      if (needsCompaction()) {
+        scheduleCompaction();
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId, VectorFilter filter) {
+    if (query.length != dimensions) {
+      return List.of();
+    }
+    float[] unitQuery = VectorMath.normalize(query);
+    int limit = Math.max(1, k);
+    TopK shortlist = new TopK((int) Math.min(Integer.MAX_VALUE, (long) limit * oversample));
+    TopK top = new TopK(limit);
+    List<VectorMatch> matches = new ArrayList<>(limit);
+    lock.readLock().lock();
+    try {
+      Scorer<P> scorer = coder.prepare(unitQuery);
+      int size = vectors.size();
+      for (int ordinal = 0; ordinal < size; ordinal++) {
+        if (vectors.isDeleted(ordinal)) {
+          continue;
+        }
+        float approximate =
+            scorer.score(codePages.get(ordinal / vectorsPerPage), codeOffset(ordinal));
+        // minScore is only checked on the exact score, which the approximation may under- or
+        // overestimate.
+        if (shortlist.accepts(approximate)
+            && (filter.isEmpty() || filter.matches(registry.tags(ordinal)))
+            && (excludedDocumentId == null
+                || !excludedDocumentId.equals(registry.documentId(ordinal)))) {
+          shortlist.offer(ordinal, approximate);
+        }
+      }
+      shortlist.drainDescending(
+          (ordinal, approximate) -> {
+            float score = vectors.dot(ordinal, unitQuery);
+            if (score >= minScore) {
+              top.offer(ordinal, score);
+            }
+          });
+      top.drainDescending(
+          (ordinal, score) -> matches.add(new VectorMatch(registry.documentId(ordinal), score)));
+    } finally {
+      lock.readLock().unlock();
+    }
+    return matches;
+  }
+
+  /**
+   * Exact search over the full-precision vectors, skipping the codes. Used to measure how much
+   * recall quantization costs.
+   *
+   * @param query Query vector
+   * @param k Maximum number of matches to return
+   * @param minScore Minimum cosine similarity
+   * @return Matches ordered by descending score
+   */
+  public List<VectorMatch> searchExact(float[] query, int k, float minScore) {
+    if (query.length != dimensions) {
+      return List.of();
+    }
+    float[] unitQuery = VectorMath.normalize(query);
+    TopK top = new TopK(Math.max(1, k));
+    List<VectorMatch> matches = new ArrayList<>(Math.max(1, k));
+    lock.readLock().lock();
+    try {
+      int size = vectors.size();
+      for (int ordinal = 0; ordinal < size; ordinal++) {
+        if (!vectors.isDeleted(ordinal)) {
+          float score = vectors.dot(ordinal, unitQuery);
+          if (score >= minScore) {
+            top.offer(ordinal, score);
+          }
+        }
+      }
+      top.drainDescending(
+          (ordinal, score) -> matches.add(new VectorMatch(registry.documentId(ordinal), score)));
+    } finally {
+      lock.readLock().unlock();
+    }
+    return matches;
+  }
+
+  /**
+   * Fraction of the exact top-k for the query that the two-stage search also returns.
+   *
+   * @param query Query vector
+   * @param k Number of results compared
+   * @return Recall in {@code [0, 1]}, or 1 if the index is empty
+   */
+  public double recall(float[] query, int k) {
+    Set<UUID> exact = new HashSet<>();
+    for (VectorMatch match : searchExact(query, k, -1f)) {
+      exact.add(match.documentId());
+    }
+    if (exact.isEmpty()) {
+      return 1.0;
+    }
+    long found =
+        search(query, k, -1f).stream().map(VectorMatch::documentId).filter(exact::contains).count();
+    return (double) found / exact.size();
+  }
+
+  @Override
+  public void writeSnapshot(Path path) throws IOException {
+    lock.readLock().lock();
+    try {
+      VectorSnapshot.write(path, vectors, registry);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    compactor.shutdownNow();
+    synchronized (compactionMonitor) {
+      lock.writeLock().lock();
+      try {
+        registry.clear();
+        vectors.close();
+        codePages = new ArrayList<>();
+        delete(vectorFile);
+        if (ownsDirectory) {
+          delete(directory);
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Compact if enough vectors are deleted. The background thread calls this until it returns
+   * false; it is exposed for tests.
+   *
+   * @return True if the index was compacted
+   */
+  boolean maybeCompact() {
+    synchronized (compactionMonitor) {
+      VectorArena source;
+      Path sourceFile;
+      int copied;
+      Coder<P> compactedCoder;
+      boolean calibrate;
+      lock.readLock().lock();
+      try {
+        if (compactor.isShutdown() || !needsCompaction()) {
+          return false;
+        }
+        source = vectors;
+        sourceFile = vectorFile;
+        copied = source.size();
+        compactedCoder = coder;
+        calibrate = calibrated || source.liveCount() >= calibrationSize;
+      } finally {
+        lock.readLock().unlock();
+      }
+
+      // Copy, calibrate and encode without the lock; ordinals below copied are never rewritten.
+      Path file;
+      VectorArena compacted;
+      try {
+        file = nextVectorFile();
+        compacted = VectorArena.mapped(dimensions, vectorsPerPage, file);
+      } catch (IOException e) {
+        // Keep serving from the current file; compaction is retried on the next delete.
+        return false;
+      }
+      float[] scratch = new float[dimensions];
+      int[] remap = new int[copied];
+      for (int ordinal = 0; ordinal < copied; ordinal++) {
+        if (source.isDeleted(ordinal)) {
+          remap[ordinal] = -1;
+        } else {
+          source.copy(ordinal, scratch);
+          remap[ordinal] = compacted.appendNormalized(scratch);
+        }
+      }
+      if (calibrate) {
+        compactedCoder = compactedCoder.calibrate(compacted);
+      }
+      List<P> pages = new ArrayList<>();
+      for (int ordinal = 0; ordinal < compacted.size(); ordinal++) {
+        encode(compacted, compactedCoder, pages, ordinal, scratch);
+      }
+
+      lock.writeLock().lock();
+      try {
+        // Replay the writes made while copying: later appends are copied over, and vectors
+        // deleted or replaced since are deleted from the copy too.
+        remap = Arrays.copyOf(remap, source.size());
+        for (int ordinal = 0; ordinal < remap.length; ordinal++) {
+          if (ordinal >= copied) {
+            source.copy(ordinal, vectorScratch);
+            remap[ordinal] = compacted.appendNormalized(vectorScratch);
+            encode(compacted, compactedCoder, pages, remap[ordinal], vectorScratch);
+          }
+          if (remap[ordinal] >= 0 && source.isDeleted(ordinal)) {
+            compacted.delete(remap[ordinal]);
+            remap[ordinal] = -1;
+          }
+        }
+        registry.remap(remap);
+        vectors = compacted;
+        vectorFile = file;
+        codePages = pages;
+        coder = compactedCoder;
+        if (calibrated && !calibrate) {
+          // Calibrated by an add while copying, from the old codes.
+          requantize();
+        }
+        calibrated |= calibrate;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      source.close();
+      delete(sourceFile);
+      return true;
+    }
+  }
+
+  /** Calibrate the coder to the stored vectors once there are enough, and re-encode every code. */
+  private void requantize() {
+    if (calibrated || vectors.liveCount() >= calibrationSize) {
+      coder = coder.calibrate(vectors);
+      calibrated = true;
+    }
+    for (int ordinal = 0; ordinal < vectors.size(); ordinal++) {
+      encode(ordinal);
+    }
+  }
+
+  private void encode(int ordinal) {
+    encode(vectors, coder, codePages, ordinal, vectorScratch);
+  }
+
+  private void encode(
+      VectorArena arena, Coder<P> coder, List<P> pages, int ordinal, float[] scratch) {
+    int page = ordinal / vectorsPerPage;
+    if (page == pages.size()) {
+      pages.add(coder.newPage(vectorsPerPage * codeLength));
+    }
+    arena.copy(ordinal, scratch);
+    coder.encode(scratch, pages.get(page), codeOffset(ordinal));
+  }
+
+  private boolean needsCompaction() {
+    return vectors.deletedCount() >= MIN_DELETES_FOR_COMPACTION
+        && vectors.deletedCount() >= vectors.size() * COMPACTION_RATIO;
+  }
+
+  private void scheduleCompaction() {
+    if (!compactor.isShutdown() && compactionScheduled.compareAndSet(false, true)) {
+      compactor.execute(
+          () -> {
+            compactionScheduled.set(false);
+            while (maybeCompact()) {
+              // Deletes made while compacting may call for another pass.
+            }
+          });
+    }
+  }
+
+  private Path nextVectorFile() {
+    return directory.resolve(String.format("vectors-%06d.f32", ++generation));
+  }
+
+  private int codeOffset(int ordinal) {
+    return (ordinal % vectorsPerPage) * codeLength;
+  }
+
+  private static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      // Still mapped on platforms that refuse to delete such files; retry when the JVM exits.
+      path.toFile().deleteOnExit();
+    }
+  }
+}
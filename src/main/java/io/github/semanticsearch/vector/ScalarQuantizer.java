@@ -0,0 +1,168 @@
+package io.github.semanticsearch.vector;
+
+import java.util.Arrays;
+
+/**
+ * Maps normalized vector components to unsigned 8-bit codes over a calibrated {@code [min, max]}
+ * range, either one range per dimension or a single range shared by all of them. Components
+ * outside the range are clamped to its ends.
+ *
+ * <p>Queries are not quantized to eight bits. {@link #prepare(float[])} folds the ranges into one
+ * integer weight per dimension, so the approximate dot product of a query with a stored vector is
+ * {@code offset + scale * sum(weight[i] * code[i])}: an integer multiply-add over one byte per
+ * dimension instead of a float one over four. Weights are sized so the sum cannot overflow.
+ */
+public final class ScalarQuantizer {
+
+  /** How the quantization range is calibrated. */
+  public enum Calibration {
+    /** One range covering every dimension. */
+    GLOBAL,
+    /** A separate range per dimension; tighter when dimensions have different spreads. */
+    PER_DIMENSION
+  }
+
+  /**
+   * Query prepared for scoring against codes.
+   *
+   * @param offset Dot product of the query with the range minimums
+   * @param scale Value of one unit of the integer weights
+   * @param weights Query component times the code step, in units of {@code scale}, per dimension
+   */
+  public record Query(float offset, float scale, int[] weights) {
+
+    /**
+     * Approximate dot product between the query and an encoded vector.
+     *
+     * @param codes Array holding codes from {@link ScalarQuantizer#encode}
+     * @param start Index of the vector's first code
+     * @return Approximate dot product
+     */
+    public float score(byte[] codes, int start) {
+      int sum = 0;
+      for (int i = 0; i < weights.length; i++) {
+        sum += weights[i] * (codes[start + i] & 0xFF);
+      }
+      return offset + scale * sum;
+    }
+  }
+
+  private static final int MAX_CODE = 255;
+
+  private final float[] minimums;
+  private final float[] steps;
+
+  private ScalarQuantizer(float[] minimums, float[] steps) {
+    this.minimums = minimums;
+    this.steps = steps;
+  }
+
+  /**
+   * Quantizer over {@code [-1, 1]} in every dimension, the range of any unit vector component.
+   * Used until enough vectors have been seen to calibrate.
+   *
+   * @param dimensions Vector dimensions
+   * @return Uncalibrated quantizer
+   */
+  public static ScalarQuantizer unitRange(int dimensions) {
+    float[] minimums = new float[dimensions];
+    float[] maximums = new float[dimensions];
+    Arrays.fill(minimums, -1f);
+    Arrays.fill(maximums, 1f);
+    return fromRange(minimums, maximums);
+  }
+
+  /**
+   * Calibrate the range to the live vectors of an arena.
+   *
+   * @param arena Arena holding normalized vectors
+   * @param calibration Per-dimension or global range
+   * @return Quantizer covering every live component, or {@link #unitRange} if there are none
+   */
+  public static ScalarQuantizer calibrate(VectorArena arena, Calibration calibration) {
+    int dimensions = arena.dimensions();
+    float[] minimums = new float[dimensions];
+    float[] maximums = new float[dimensions];
+    Arrays.fill(minimums, Float.POSITIVE_INFINITY);
+    Arrays.fill(maximums, Float.NEGATIVE_INFINITY);
+    float[] vector = new float[dimensions];
+    boolean empty = true;
+    for (int ordinal = 0; ordinal < arena.size(); ordinal++) {
+      if (arena.isDeleted(ordinal)) {
+        continue;
+      }
+      arena.copy(ordinal, vector);
+      for (int i = 0; i < dimensions; i++) {
+        minimums[i] = Math.min(minimums[i], vector[i]);
+        maximums[i] = Math.max(maximums[i], vector[i]);
+      }
+      empty = false;
+    }
+    if (empty) {
+      return unitRange(dimensions);
+    }
+    if (calibration == Calibration.GLOBAL) {
+      float minimum = Float.POSITIVE_INFINITY;
+      float maximum = Float.NEGATIVE_INFINITY;
+      for (int i = 0; i < dimensions; i++) {
+        minimum = Math.min(minimum, minimums[i]);
+        maximum = Math.max(maximum, maximums[i]);
+      }
+      Arrays.fill(minimums, minimum);
+      Arrays.fill(maximums, maximum);
+    }
+    return fromRange(minimums, maximums);
+  }
+
+  public int dimensions() {
+    return minimums.length;
+  }
+
+  /**
+   * Encode a normalized vector.
+   *
+   * @param vector Vector with {@link #dimensions()} components
+   * @param codes Destination array
+   * @param start Index the first code is written to
+   */
+  public void encode(float[] vector, byte[] codes, int start) {
+    for (int i = 0; i < minimums.length; i++) {
+      int code = steps[i] > 0f ? Math.round((vector[i] - minimums[i]) / steps[i]) : 0;
+      codes[start + i] = (byte) Math.max(0, Math.min(MAX_CODE, code));
+    }
+  }
+
+  /**
+   * Prepare a query for scoring against codes.
+   *
+   * @param unitQuery Normalized query
+   * @return Prepared query
+   */
+  public Query prepare(float[] unitQuery) {
+    float offset = 0f;
+    float largest = 0f;
+    for (int i = 0; i < minimums.length; i++) {
+      offset += unitQuery[i] * minimums[i];
+      largest = Math.max(largest, Math.abs(unitQuery[i] * steps[i]));
+    }
+    int[] weights = new int[minimums.length];
+    if (largest == 0f) {
+      return new Query(offset, 0f, weights);
+    }
+    // Largest weight such that dimensions * weight * MAX_CODE still fits in an int.
+    int maxWeight = Math.max(1, Integer.MAX_VALUE / (minimums.length * MAX_CODE));
+    float scale = largest / maxWeight;
+    for (int i = 0; i < minimums.length; i++) {
+      weights[i] = Math.round(unitQuery[i] * steps[i] / scale);
+    }
+    return new Query(offset, scale, weights);
+  }
+
+  private static ScalarQuantizer fromRange(float[] minimums, float[] maximums) {
+    float[] steps = new float[minimums.length];
+    for (int i = 0; i < steps.length; i++) {
+      steps[i] = (maximums[i] - minimums[i]) / MAX_CODE;
+    }
+    return new ScalarQuantizer(minimums, steps);
+  }
+}
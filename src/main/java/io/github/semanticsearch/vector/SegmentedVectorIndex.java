@@ -0,0 +1,470 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Log-structured exact vector index. New vectors go to a small mutable buffer; once it holds
+ * {@code flushSize} vectors it is sealed into an immutable {@link VectorSegment} and a fresh buffer
+ * takes over. Queries scan the buffer and every segment, each yielding its own top-k, and merge
+ * those lists.
+ *
+ * <p>Deletes and replacements tombstone the old vector: in the buffer under its lock, in a segment
+ * with an atomic bit. A background thread merges segments of similar size, {@code mergeFactor} at a
+ * time, and rewrites segments that are mostly deleted, so segment count stays logarithmic and
+ * deleted vectors are purged without blocking anyone for the duration of the copy.
+ *
+ * <p>Searches read an immutable view of the buffer and segment list and never wait for segment
+ * writes or merges; only the buffer scan shares a short lock with appends to the buffer. Writers
+ * are serialized with each other.
+ */
+public class SegmentedVectorIndex implements VectorIndex {
+
+  /** Default number of vectors the mutable buffer holds before it is sealed. */
+  public static final int DEFAULT_FLUSH_SIZE = 8192;
+
+  /** Default number of similarly sized segments merged at once. */
+  public static final int DEFAULT_MERGE_FACTOR = 4;
+
+  /** Where a sealed vector lives. */
+  private record Location(VectorSegment segment, int ordinal) {}
+
+  /** Mutable buffer and sealed segments as seen by one search. */
+  private record View(Buffer buffer, List<VectorSegment> segments) {}
+
+  private final int dimensions;
+  private final int vectorsPerPage;
+  private final int flushSize;
+  private final int mergeFactor;
+
+  // Guards writes: the buffer contents, sealing, locations and installing merges.
+  private final ReentrantLock writeLock = new ReentrantLock();
+  // Serializes merges so no segment is merged twice.
+  private final Object mergeMonitor = new Object();
+  private final Map<String, Location> locations = new HashMap<>();
+  private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+  private final ExecutorService merger;
+
+  private volatile View view;
+
+  public SegmentedVectorIndex(int dimensions) {
+    this(
+        dimensions, VectorArena.DEFAULT_VECTORS_PER_PAGE, DEFAULT_FLUSH_SIZE, DEFAULT_MERGE_FACTOR);
+  }
+
+  /**
+   * Create an empty index.
+   *
+   * @param dimensions Vector dimensions
+   * @param vectorsPerPage Vectors per off-heap arena page
+   * @param flushSize Vectors the mutable buffer holds before it is sealed into a segment
+   * @param mergeFactor Number of similarly sized segments merged at once; at least 2
+   */
+  public SegmentedVectorIndex(int dimensions, int vectorsPerPage, int flushSize, int mergeFactor) {
+    if (flushSize <= 0 || mergeFactor < 2) {
+      throw new IllegalArgumentException(
+          "Invalid segment settings: flushSize=" + flushSize + ", mergeFactor=" + mergeFactor);
+    }
+    this.dimensions = dimensions;
+    this.vectorsPerPage = vectorsPerPage;
+    this.flushSize = flushSize;
+    this.mergeFactor = mergeFactor;
+    this.view = new View(new Buffer(new VectorArena(dimensions, vectorsPerPage)), List.of());
+    this.merger =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "vector-merge");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Index over a restored snapshot. The snapshot's memory-mapped arena becomes the first segment
+   * as is, without copying.
+   *
+   * @param snapshot Snapshot opened with {@link VectorSnapshot#open}
+   * @param flushSize Vectors the mutable buffer holds before it is sealed into a segment
+   * @param mergeFactor Number of similarly sized segments merged at once
+   * @return Restored index
+   */
+  public static SegmentedVectorIndex restore(
+      VectorSnapshot snapshot, int flushSize, int mergeFactor) {
+    VectorArena arena = snapshot.arena();
+    SegmentedVectorIndex index =
+        new SegmentedVectorIndex(
+            arena.dimensions(), arena.vectorsPerPage(), flushSize, mergeFactor);
+    if (arena.size() > 0) {
+      VectorSegment segment = VectorSegment.seal(arena, snapshot.registry());
+      index.addSegment(segment);
+      index.view = new View(index.view.buffer(), List.of(segment));
+      index.scheduleMerge();
+    }
+    return index;
+  }
+
+  @Override
+  public int dimensions() {
+    return dimensions;
+  }
+
+  @Override
+  public int size() {
+    View current = view;
+    int size = current.buffer().liveCount();
+    for (VectorSegment segment : current.segments()) {
+      size += segment.liveCount();
+    }
+    return size;
+  }
+
+  /** Number of sealed segments, not counting the mutable buffer. */
+  public int segmentCount() {
+    return view.segments().size();
+  }
+
+  @Override
+  public void add(
+      String vectorId, UUID documentId, float[] vector, Map<String, String> metadata) {
+    String[] tags = VectorFilter.tags(metadata);
+    writeLock.lock();
+    try {
+      Buffer buffer = view.buffer();
+      buffer.add(vectorId, documentId, vector, tags);
+      Location sealed = locations.remove(vectorId);
+      if (sealed != null) {
+        deleteSealed(sealed);
+      }
+      if (buffer.arena.size() >= flushSize) {
+        seal();
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(String vectorId) {
+    writeLock.lock();
+    try {
+      if (view.buffer().remove(vectorId)) {
+        return true;
+      }
+      Location sealed = locations.remove(vectorId);
+      if (sealed == null) {
+        return false;
+      }
+      deleteSealed(sealed);
+      return true;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId, VectorFilter filter) {
+    if (query.length != dimensions) {
+      return List.of();
+    }
+    float[] unitQuery = VectorMath.normalize(query);
+    int limit = Math.max(1, k);
+    View current = view;
+    List<VectorMatch> candidates =
+        current.buffer().search(unitQuery, limit, minScore, excludedDocumentId, filter);
+    for (VectorSegment segment : current.segments()) {
+      candidates.addAll(segment.search(unitQuery, limit, minScore, excludedDocumentId, filter));
+    }
+    if (current.segments().isEmpty()) {
+      return candidates;
+    }
+    candidates.sort(Comparator.comparingDouble(VectorMatch::score).reversed());
+    return new ArrayList<>(candidates.subList(0, Math.min(limit, candidates.size())));
+  }
+
+  /**
+   * Write every live vector to a single snapshot. The live vectors are copied while writers wait;
+   * the file itself is written without holding them up.
+   */
+  @Override
+  public void writeSnapshot(Path path) throws IOException {
+    VectorArena arena = new VectorArena(dimensions, vectorsPerPage);
+    DocumentIdRegistry registry = new DocumentIdRegistry();
+    float[] scratch = new float[dimensions];
+    writeLock.lock();
+    try {
+      View current = view;
+      for (VectorSegment segment : current.segments()) {
+        for (int ordinal = 0; ordinal < segment.size(); ordinal++) {
+          if (!segment.isDeleted(ordinal)) {
+            segment.copy(ordinal, scratch);
+            registry.put(
+                arena.appendNormalized(scratch),
+                segment.vectorId(ordinal),
+                segment.documentId(ordinal),
+                segment.tags(ordinal));
+          }
+        }
+      }
+      current.buffer().copyLiveTo(arena, registry, scratch);
+    } finally {
+      writeLock.unlock();
+    }
+    try {
+      VectorSnapshot.write(path, arena, registry);
+    } finally {
+      arena.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    merger.shutdownNow();
+    writeLock.lock();
+    try {
+      locations.clear();
+      view = new View(new Buffer(new VectorArena(dimensions, vectorsPerPage)), List.of());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Run one merge if the policy selects any segments. The background thread calls this until it
+   * returns false; it is exposed for tests.
+   *
+   * @return True if segments were merged
+   */
+  boolean maybeMerge() {
+    synchronized (mergeMonitor) {
+      List<VectorSegment> sources = selectMerge(view.segments());
+      if (sources.isEmpty()) {
+        return false;
+      }
+      VectorSegment.Merge merge = VectorSegment.merge(sources, vectorsPerPage);
+      VectorSegment merged = merge.segment();
+      writeLock.lock();
+      try {
+        for (int s = 0; s < sources.size(); s++) {
+          VectorSegment source = sources.get(s);
+          int[] remap = merge.remaps()[s];
+          for (int ordinal = 0; ordinal < remap.length; ordinal++) {
+            if (remap[ordinal] < 0) {
+              continue;
+            }
+            if (source.isDeleted(ordinal)) {
+              // Deleted or replaced while the merge was copying.
+              merged.delete(remap[ordinal]);
+            } else {
+              locations.put(source.vectorId(ordinal), new Location(merged, remap[ordinal]));
+            }
+          }
+        }
+        List<VectorSegment> segments = new ArrayList<>(view.segments());
+        segments.removeAll(sources);
+        if (merged.liveCount() > 0) {
+          segments.add(merged);
+        }
+        view = new View(view.buffer(), List.copyOf(segments));
+      } finally {
+        writeLock.unlock();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Pick the segments to merge next: a mostly deleted segment on its own, otherwise the {@code
+   * mergeFactor} smallest segments of the lowest size tier that has that many. A segment's tier is
+   * the number of times {@code mergeFactor} fits between the flush size and its live count.
+   */
+  private List<VectorSegment> selectMerge(List<VectorSegment> segments) {
+    for (VectorSegment segment : segments) {
+      if (segment.needsPurge()) {
+        return List.of(segment);
+      }
+    }
+    // Live counts drop under concurrent deletes, so read each one once.
+    Map<VectorSegment, Integer> liveCounts = new HashMap<>();
+    Map<Integer, List<VectorSegment>> tiers = new HashMap<>();
+    for (VectorSegment segment : segments) {
+      int liveCount = segment.liveCount();
+      liveCounts.put(segment, liveCount);
+      tiers.computeIfAbsent(tier(liveCount), tier -> new ArrayList<>()).add(segment);
+    }
+    return tiers.entrySet().stream()
+        .filter(entry -> entry.getValue().size() >= mergeFactor)
+        .min(Map.Entry.comparingByKey())
+        .map(
+            entry ->
+                entry.getValue().stream()
+                    .sorted(Comparator.comparingInt(liveCounts::get))
+                    .limit(mergeFactor)
+                    .toList())
+        .orElse(List.of());
+  }
+
+  private int tier(int liveCount) {
+    int tier = 0;
+    long bound = (long) flushSize * mergeFactor;
+    while (liveCount >= bound) {
+      tier++;
+      bound *= mergeFactor;
+    }
+    return tier;
+  }
+
+  /** Seal the buffer into a segment and start a new one. Requires the write lock. */
+  private void seal() {
+    View current = view;
+    VectorSegment segment = current.buffer().seal();
+    addSegment(segment);
+    List<VectorSegment> segments = new ArrayList<>(current.segments());
+    segments.add(segment);
+    view =
+        new View(new Buffer(new VectorArena(dimensions, vectorsPerPage)), List.copyOf(segments));
+    scheduleMerge();
+  }
+
+  private void addSegment(VectorSegment segment) {
+    for (int ordinal = 0; ordinal < segment.size(); ordinal++) {
+      if (!segment.isDeleted(ordinal)) {
+        locations.put(segment.vectorId(ordinal), new Location(segment, ordinal));
+      }
+    }
+  }
+
+  private void deleteSealed(Location location) {
+    if (location.segment().delete(location.ordinal()) && location.segment().needsPurge()) {
+      scheduleMerge();
+    }
+  }
+
+  private void scheduleMerge() {
+    if (!merger.isShutdown() && mergeScheduled.compareAndSet(false, true)) {
+      merger.execute(
+          () -> {
+            mergeScheduled.set(false);
+            while (maybeMerge()) {
+              // Keep merging until the policy is satisfied.
+            }
+          });
+    }
+  }
+
+  /** Mutable buffer: a small flat index that is sealed once full. */
+  private static final class Buffer {
+
+    private final VectorArena arena;
+    private final DocumentIdRegistry registry = new DocumentIdRegistry();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Buffer(VectorArena arena) {
+      this.arena = arena;
+    }
+
+    int liveCount() {
+      lock.readLock().lock();
+      try {
+        return arena.liveCount();
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    void add(String vectorId, UUID documentId, float[] vector, String[] tags) {
+      lock.writeLock().lock();
+      try {
+        int ordinal = arena.append(vector);
+        int previous = registry.put(ordinal, vectorId, documentId, tags);
+        if (previous != DocumentIdRegistry.ABSENT) {
+          arena.delete(previous);
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    boolean remove(String vectorId) {
+      lock.writeLock().lock();
+      try {
+        int ordinal = registry.remove(vectorId);
+        if (ordinal == DocumentIdRegistry.ABSENT) {
+          return false;
+        }
+        arena.delete(ordinal);
+        return true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    /** Freeze the buffer; it must not be written to afterwards. */
+    VectorSegment seal() {
+      lock.writeLock().lock();
+      try {
+        return VectorSegment.seal(arena, registry);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    List<VectorMatch> search(
+        float[] unitQuery, int k, float minScore, UUID excludedDocumentId, VectorFilter filter) {
+      TopK top = new TopK(k);
+      List<VectorMatch> matches = new ArrayList<>(k);
+      lock.readLock().lock();
+      try {
+        int size = arena.size();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+          if (arena.isDeleted(ordinal)) {
+            continue;
+          }
+          float score = arena.dot(ordinal, unitQuery);
+          if (score >= minScore
+              && top.accepts(score)
+              && (filter.isEmpty() || filter.matches(registry.tags(ordinal)))
+              && (excludedDocumentId == null
+                  || !excludedDocumentId.equals(registry.documentId(ordinal)))) {
+            top.offer(ordinal, score);
+          }
+        }
+        top.drainDescending(
+            (ordinal, score) -> matches.add(new VectorMatch(registry.documentId(ordinal), score)));
+      } finally {
+        lock.readLock().unlock();
+      }
+      return matches;
+    }
+
+    void copyLiveTo(VectorArena target, DocumentIdRegistry targetRegistry, float[] scratch) {
+      lock.readLock().lock();
+      try {
+        for (int ordinal = 0; ordinal < arena.size(); ordinal++) {
+          if (!arena.isDeleted(ordinal)) {
+            arena.copy(ordinal, scratch);
+            targetRegistry.put(
+                target.appendNormalized(scratch),
+                registry.vectorId(ordinal),
+                registry.documentId(ordinal),
+                registry.tags(ordinal));
+          }
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+  }
+}
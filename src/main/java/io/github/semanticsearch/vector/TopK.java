@@ -0,0 +1,177 @@
+package io.github.semanticsearch.vector;
+
+import java.util.Arrays;
+
+/**
+ * Bounded min-heap of (ordinal, score) pairs kept in parallel primitive arrays. The root is the
+ * weakest retained score, so offering N scores costs O(N log k) time and O(k) memory with no
+ * boxing. An unbounded instance doubles as a priority queue.
+ */
+public final class TopK {
+
+  /** Receives drained entries. */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(int ordinal, float score);
+  }
+
+  private final int capacity;
+  private int[] ordinals;
+  private float[] scores;
+  private int size;
+
+  /**
+   * Create a heap that retains at most {@code capacity} entries.
+   *
+   * @param capacity Maximum number of entries; must be positive
+   */
+  public TopK(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.capacity = capacity;
+    int initial = Math.min(capacity, 64);
+    this.ordinals = new int[initial];
+    this.scores = new float[initial];
+  }
+
+  /** Create a heap without a size bound. */
+  public static TopK unbounded() {
+    return new TopK(Integer.MAX_VALUE);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /**
+   * Whether a score would currently be retained by {@link #offer(int, float)}.
+   *
+   * @param score Candidate score
+   * @return True if the heap has room or the score beats the weakest retained one
+   */
+  public boolean accepts(float score) {
+    return size < capacity || score > scores[0];
+  }
+
+  /**
+   * Offer an entry, evicting the weakest one when the heap is full.
+   *
+   * @param ordinal Ordinal of the entry
+   * @param score Score of the entry
+   * @return True if the entry was retained
+   */
+  public boolean offer(int ordinal, float score) {
+    if (size < capacity) {
+      if (size == ordinals.length) {
+        int grown = (int) Math.min(capacity, (long) ordinals.length * 2);
+        ordinals = Arrays.copyOf(ordinals, grown);
+        scores = Arrays.copyOf(scores, grown);
+      }
+      ordinals[size] = ordinal;
+      scores[size] = score;
+      siftUp(size++);
+      return true;
+    }
+    if (score <= scores[0]) {
+      return false;
+    }
+    ordinals[0] = ordinal;
+    scores[0] = score;
+    siftDown(0);
+    return true;
+  }
+
+  /** Lowest retained score. The heap must not be empty. */
+  public float peekScore() {
+    return scores[0];
+  }
+
+  /** Ordinal with the lowest retained score. The heap must not be empty. */
+  public int peekOrdinal() {
+    return ordinals[0];
+  }
+
+  /**
+   * Remove the entry with the lowest score.
+   *
+   * @return Ordinal of the removed entry
+   */
+  public int poll() {
+    int ordinal = ordinals[0];
+    size--;
+    if (size > 0) {
+      ordinals[0] = ordinals[size];
+      scores[0] = scores[size];
+      siftDown(0);
+    }
+    return ordinal;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Empty the heap, handing entries to the consumer from the highest score to the lowest.
+   *
+   * @param consumer Receives each entry
+   */
+  public void drainDescending(EntryConsumer consumer) {
+    int count = size;
+    int[] sortedOrdinals = new int[count];
+    float[] sortedScores = new float[count];
+    for (int i = count - 1; i >= 0; i--) {
+      sortedScores[i] = scores[0];
+      sortedOrdinals[i] = poll();
+    }
+    for (int i = 0; i < count; i++) {
+      consumer.accept(sortedOrdinals[i], sortedScores[i]);
+    }
+  }
+
+  private void siftUp(int index) {
+    int ordinal = ordinals[index];
+    float score = scores[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (scores[parent] <= score) {
+        break;
+      }
+      ordinals[index] = ordinals[parent];
+      scores[index] = scores[parent];
+      index = parent;
+    }
+    ordinals[index] = ordinal;
+    scores[index] = score;
+  }
+
+  private void siftDown(int index) {
+    int ordinal = ordinals[index];
+    float score = scores[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < size && scores[right] < scores[child]) {
+        child = right;
+      }
+      if (score <= scores[child]) {
+        break;
+      }
+      ordinals[index] = ordinals[child];
+      scores[index] = scores[child];
+      index = child;
+    }
+    ordinals[index] = ordinal;
+    scores[index] = score;
+  }
+}
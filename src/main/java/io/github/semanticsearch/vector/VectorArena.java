@@ -0,0 +1,312 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Columnar off-heap store for fixed-dimension float vectors. Vectors are L2-normalized on append
+ * and packed back to back into direct, little-endian pages so a scan walks contiguous memory
+ * instead of chasing per-vector heap objects. Each vector is addressed by a dense int ordinal.
+ *
+ * <p>Deletes only set a tombstone bit; {@link #compact()} rewrites the live vectors into fresh
+ * pages and returns the ordinal remapping. Appends and deletes must be serialized by the owner;
+ * reads of ordinals that were safely published to the reading thread may run concurrently with
+ * appends, since existing pages are never moved. Compaction requires exclusive access.
+ *
+ * <p>An arena restored from a {@link VectorSnapshot} reads its full pages straight from the
+ * memory-mapped file, so vectors are paged in by the OS on first access; new vectors go to fresh
+ * direct pages as usual.
+ *
+ * <p>A {@linkplain #mapped mapped} arena allocates its pages from a file instead of direct memory,
+ * so vectors that are rarely read stay on disk and in the OS page cache rather than in RAM.
+ */
+public final class VectorArena implements AutoCloseable {
+
+  /** Default number of vectors per off-heap page. */
+  public static final int DEFAULT_VECTORS_PER_PAGE = 4096;
+
+  private final int dimensions;
+  private final int vectorsPerPage;
+  private final Path pageFile;
+
+  private FloatBuffer[] pages = new FloatBuffer[0];
+  private long[] tombstones = new long[0];
+  private int size;
+  private int deleted;
+
+  public VectorArena(int dimensions) {
+    this(dimensions, DEFAULT_VECTORS_PER_PAGE);
+  }
+
+  public VectorArena(int dimensions, int vectorsPerPage) {
+    this(dimensions, vectorsPerPage, null);
+  }
+
+  private VectorArena(int dimensions, int vectorsPerPage, Path pageFile) {
+    if (dimensions <= 0) {
+      throw new IllegalArgumentException("Dimensions must be positive");
+    }
+    if (vectorsPerPage <= 0 || (long) vectorsPerPage * dimensions * Float.BYTES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid page size: " + vectorsPerPage);
+    }
+    this.dimensions = dimensions;
+    this.vectorsPerPage = vectorsPerPage;
+    this.pageFile = pageFile;
+  }
+
+  /**
+   * Arena over existing pages, used to restore a snapshot. Every page except possibly the last
+   * must be full; the last one must be writable with room for a whole page.
+   *
+   * @param dimensions Vector dimensions
+   * @param vectorsPerPage Vectors per page
+   * @param pages Pages holding {@code size} normalized vectors back to back
+   * @param size Number of ordinals stored in the pages
+   * @param tombstones Tombstone bitmap covering {@code size} ordinals
+   */
+  VectorArena(
+      int dimensions, int vectorsPerPage, FloatBuffer[] pages, int size, long[] tombstones) {
+    this(dimensions, vectorsPerPage);
+    if ((long) pages.length * vectorsPerPage < size || tombstones.length * 64L < size) {
+      throw new IllegalArgumentException("Pages or tombstones do not cover " + size + " vectors");
+    }
+    this.pages = pages;
+    this.size = size;
+    this.tombstones = Arrays.copyOf(tombstones, Math.max(4, tombstones.length));
+    for (long word : tombstones) {
+      deleted += Long.bitCount(word);
+    }
+  }
+
+  /**
+   * Arena whose pages are memory-mapped from a file, replacing any existing content. The caller
+   * owns the file and deletes it once the arena is closed.
+   *
+   * @param dimensions Vector dimensions
+   * @param vectorsPerPage Vectors per page
+   * @param pageFile File the pages are mapped from
+   * @return Empty arena
+   * @throws IOException If the file cannot be created
+   */
+  public static VectorArena mapped(int dimensions, int vectorsPerPage, Path pageFile)
+      throws IOException {
+    FileChannel.open(
+            pageFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)
+        .close();
+    return new VectorArena(dimensions, vectorsPerPage, pageFile);
+  }
+
+  /** Number of vectors per page. */
+  public int vectorsPerPage() {
+    return vectorsPerPage;
+  }
+
+  public int dimensions() {
+    return dimensions;
+  }
+
+  /** Number of ordinals handed out so far, including tombstoned ones. */
+  public int size() {
+    return size;
+  }
+
+  /** Number of vectors that are not tombstoned. */
+  public int liveCount() {
+    return size - deleted;
+  }
+
+  public int deletedCount() {
+    return deleted;
+  }
+
+  /**
+   * Append a vector and return its ordinal. The vector is normalized before it is stored.
+   *
+   * @param vector Vector with {@link #dimensions()} components
+   * @return Dense ordinal of the stored vector
+   */
+  public int append(float[] vector) {
+    checkDimensions(vector);
+    return appendNormalized(VectorMath.normalize(vector));
+  }
+
+  /**
+   * Tombstone the vector at the given ordinal.
+   *
+   * @param ordinal Ordinal to delete
+   * @return True if the ordinal was live
+   */
+  public boolean delete(int ordinal) {
+    if (ordinal < 0 || ordinal >= size || isDeleted(ordinal)) {
+      return false;
+    }
+    tombstones[ordinal >>> 6] |= 1L << ordinal;
+    deleted++;
+    return true;
+  }
+
+  public boolean isDeleted(int ordinal) {
+    return (tombstones[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Dot product between a stored vector and a query. With a unit-length query this is the cosine
+   * similarity.
+   *
+   * @param ordinal Stored vector ordinal
+   * @param query Query vector with {@link #dimensions()} components
+   * @return Dot product
+   */
+  public float dot(int ordinal, float[] query) {
+    FloatBuffer page = pages[ordinal / vectorsPerPage];
+    int base = offset(ordinal);
+    float sum = 0f;
+    for (int i = 0; i < dimensions; i++) {
+      sum += page.get(base + i) * query[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Dot product between two stored vectors, i.e. their cosine similarity.
+   *
+   * @param ordinal First stored vector ordinal
+   * @param otherOrdinal Second stored vector ordinal
+   * @return Dot product
+   */
+  public float dot(int ordinal, int otherOrdinal) {
+    FloatBuffer page = pages[ordinal / vectorsPerPage];
+    FloatBuffer otherPage = pages[otherOrdinal / vectorsPerPage];
+    int base = offset(ordinal);
+    int otherBase = offset(otherOrdinal);
+    float sum = 0f;
+    for (int i = 0; i < dimensions; i++) {
+      sum += page.get(base + i) * otherPage.get(otherBase + i);
+    }
+    return sum;
+  }
+
+  /**
+   * Copy the stored (normalized) vector into the destination array.
+   *
+   * @param ordinal Stored vector ordinal
+   * @param destination Array with at least {@link #dimensions()} slots
+   */
+  public void copy(int ordinal, float[] destination) {
+    pages[ordinal / vectorsPerPage].get(offset(ordinal), destination, 0, dimensions);
+  }
+
+  /**
+   * Rewrite live vectors into fresh pages, dropping tombstoned ones.
+   *
+   * @return Mapping from old ordinal to new ordinal, or -1 for purged vectors
+   */
+  public int[] compact() {
+    if (pageFile != null) {
+      throw new IllegalStateException("Mapped arenas are compacted by copying into a new file");
+    }
+    int[] remap = new int[size];
+    FloatBuffer[] oldPages = pages;
+    int oldSize = size;
+    long[] oldTombstones = tombstones;
+
+    pages = new FloatBuffer[0];
+    tombstones = new long[0];
+    size = 0;
+    deleted = 0;
+
+    float[] scratch = new float[dimensions];
+    for (int ordinal = 0; ordinal < oldSize; ordinal++) {
+      if ((oldTombstones[ordinal >>> 6] & (1L << ordinal)) != 0) {
+        remap[ordinal] = -1;
+        continue;
+      }
+      oldPages[ordinal / vectorsPerPage].get(offset(ordinal), scratch, 0, dimensions);
+      remap[ordinal] = appendNormalized(scratch);
+    }
+    return remap;
+  }
+
+  /** Copy of the tombstone bitmap, one bit per ordinal below {@link #size()}. */
+  public long[] tombstones() {
+    return Arrays.copyOf(tombstones, (size + 63) >>> 6);
+  }
+
+  /** Off-heap bytes currently reserved by the arena. */
+  public long offHeapBytes() {
+    return (long) pages.length * vectorsPerPage * dimensions * Float.BYTES;
+  }
+
+  /** Release page references so the direct buffers can be reclaimed. */
+  @Override
+  public void close() {
+    pages = new FloatBuffer[0];
+    tombstones = new long[0];
+    size = 0;
+    deleted = 0;
+  }
+
+  /**
+   * Append a vector that is already unit length, e.g. one copied out of another arena.
+   *
+   * @param vector Normalized vector with {@link #dimensions()} components
+   * @return Dense ordinal of the stored vector
+   */
+  int appendNormalized(float[] vector) {
+    int ordinal = size;
+    int page = ordinal / vectorsPerPage;
+    if (page == pages.length) {
+      growPages();
+    }
+    if ((ordinal >>> 6) >= tombstones.length) {
+      tombstones = Arrays.copyOf(tombstones, Math.max(4, tombstones.length * 2));
+    }
+    pages[page].put(offset(ordinal), vector);
+    size++;
+    return ordinal;
+  }
+
+  private void growPages() {
+    FloatBuffer[] grown = Arrays.copyOf(pages, pages.length + 1);
+    grown[pages.length] = allocatePage().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    pages = grown;
+  }
+
+  private ByteBuffer allocatePage() {
+    int pageBytes = vectorsPerPage * dimensions * Float.BYTES;
+    if (pageFile == null) {
+      return ByteBuffer.allocateDirect(pageBytes);
+    }
+    try (FileChannel channel =
+        FileChannel.open(pageFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long position = (long) pages.length * pageBytes;
+      return channel.map(FileChannel.MapMode.READ_WRITE, position, pageBytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to map vector page from " + pageFile, e);
+    }
+  }
+
+  private int offset(int ordinal) {
+    return (ordinal % vectorsPerPage) * dimensions;
+  }
+
+  private void checkDimensions(float[] vector) {
+    if (vector == null || vector.length != dimensions) {
+      throw new IllegalArgumentException(
+          "Expected vector with "
+              + dimensions
+              + " dimensions but got "
+              + (vector == null ? "null" : vector.length));
+    }
+  }
+}
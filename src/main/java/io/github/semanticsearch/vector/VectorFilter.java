@@ -0,0 +1,89 @@
+package io.github.semanticsearch.vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Metadata filter applied during vector retrieval, so the top-k is taken among matching documents
+ * rather than trimmed afterwards. A document matches when every filtered key is present in its
+ * metadata with an equal value, ignoring case.
+ *
+ * <p>Both sides are reduced to sorted tags of the form {@code key=value} with the value lowercased.
+ * Local indexes store the tags per ordinal; Elasticsearch stores them in a keyword field and
+ * matches them with term filters.
+ */
+public final class VectorFilter {
+
+  /** Filter that accepts every vector. */
+  public static final VectorFilter NONE = new VectorFilter(new String[0]);
+
+  private static final String[] NO_TAGS = new String[0];
+
+  private final String[] requiredTags;
+
+  private VectorFilter(String[] requiredTags) {
+    this.requiredTags = requiredTags;
+  }
+
+  /**
+   * Filter requiring every entry of the map.
+   *
+   * @param filters Metadata key/value pairs, or null
+   * @return The filter, or {@link #NONE} when there is nothing to filter on
+   */
+  public static VectorFilter of(Map<String, String> filters) {
+    String[] tags = tags(filters);
+    return tags.length == 0 ? NONE : new VectorFilter(tags);
+  }
+
+  /**
+   * Sorted, de-duplicated tags for a document's metadata.
+   *
+   * @param metadata Document metadata, or null
+   * @return Tags, empty when there is no metadata
+   */
+  public static String[] tags(Map<String, String> metadata) {
+    if (metadata == null || metadata.isEmpty()) {
+      return NO_TAGS;
+    }
+    TreeSet<String> tags = new TreeSet<>();
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      if (entry.getKey() != null && entry.getValue() != null) {
+        tags.add(tag(entry.getKey(), entry.getValue()));
+      }
+    }
+    return tags.toArray(NO_TAGS);
+  }
+
+  /** Tag for one metadata entry. */
+  public static String tag(String key, String value) {
+    return key + "=" + value.toLowerCase(Locale.ROOT);
+  }
+
+  public boolean isEmpty() {
+    return requiredTags.length == 0;
+  }
+
+  /** Tags a vector must carry to match. */
+  public List<String> requiredTags() {
+    return List.of(requiredTags);
+  }
+
+  /**
+   * Whether a vector's tags satisfy the filter.
+   *
+   * @param sortedTags Tags from {@link #tags(Map)}
+   * @return True if every required tag is present
+   */
+  public boolean matches(String[] sortedTags) {
+    for (String required : requiredTags) {
+      if (Arrays.binarySearch(sortedTags, required) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
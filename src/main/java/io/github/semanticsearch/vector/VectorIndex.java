@@ -0,0 +1,102 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-process vector index used when Elasticsearch is not available. Vectors are addressed by the
+ * vector ID stored on the document and scored by cosine similarity.
+ */
+public interface VectorIndex extends AutoCloseable {
+
+  /** Number of dimensions every stored vector must have. */
+  int dimensions();
+
+  /** Number of live (non-deleted) vectors. */
+  int size();
+
+  /**
+   * Add a vector. Adding an existing vector ID replaces the previous vector.
+   *
+   * @param vectorId Vector ID referenced by the document
+   * @param documentId Document the vector belongs to
+   * @param vector Vector components
+   */
+  default void add(String vectorId, UUID documentId, float[] vector) {
+    add(vectorId, documentId, vector, Map.of());
+  }
+
+  /**
+   * Add a vector along with the metadata {@link VectorFilter}s are evaluated against.
+   *
+   * @param vectorId Vector ID referenced by the document
+   * @param documentId Document the vector belongs to
+   * @param vector Vector components
+   * @param metadata Metadata of the document
+   */
+  void add(String vectorId, UUID documentId, float[] vector, Map<String, String> metadata);
+
+  /**
+   * Remove a vector.
+   *
+   * @param vectorId Vector ID to remove
+   * @return True if the vector was present
+   */
+  boolean remove(String vectorId);
+
+  /**
+   * Find the vectors most similar to the query.
+   *
+   * @param query Query vector
+   * @param k Maximum number of matches to return
+   * @param minScore Minimum cosine similarity
+   * @return Matches ordered by descending score
+   */
+  default List<VectorMatch> search(float[] query, int k, float minScore) {
+    return search(query, k, minScore, null);
+  }
+
+  /**
+   * Find the vectors most similar to the query, skipping one document. Used by the
+   * similar-documents path so the source document does not take one of the {@code k} slots.
+   *
+   * @param query Query vector
+   * @param k Maximum number of matches to return
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @return Matches ordered by descending score
+   */
+  default List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId) {
+    return search(query, k, minScore, excludedDocumentId, VectorFilter.NONE);
+  }
+
+  /**
+   * Find the vectors most similar to the query among those whose metadata matches the filter.
+   * Non-matching vectors never take one of the {@code k} slots.
+   *
+   * @param query Query vector
+   * @param k Maximum number of matches to return
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to leave out of the results, or null
+   * @param filter Metadata filter
+   * @return Matches ordered by descending score
+   */
+  List<VectorMatch> search(
+      float[] query, int k, float minScore, UUID excludedDocumentId, VectorFilter filter);
+
+  /**
+   * Write the vectors and their IDs to a {@link VectorSnapshot} file, replacing it atomically.
+   * Concurrent searches continue; writes wait until the snapshot is on disk.
+   *
+   * @param path Snapshot file
+   * @throws IOException If the snapshot cannot be written
+   */
+  void writeSnapshot(Path path) throws IOException;
+
+  @Override
+  void close();
+}
@@ -0,0 +1,11 @@
+package io.github.semanticsearch.vector;
+
+import java.util.UUID;
+
+/**
+ * A document returned by a local vector index together with its cosine similarity.
+ *
+ * @param documentId Document the matched vector belongs to
+ * @param score Cosine similarity between the query and the stored vector
+ */
+public record VectorMatch(UUID documentId, float score) {}
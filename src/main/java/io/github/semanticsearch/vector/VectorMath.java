@@ -0,0 +1,39 @@
+package io.github.semanticsearch.vector;
+
+/** Primitive vector helpers shared by the in-process index backends. */
+public final class VectorMath {
+
+  private VectorMath() {}
+
+  /**
+   * Dot product of two equally sized vectors.
+   *
+   * @param a First vector
+   * @param b Second vector
+   * @return Sum of component-wise products
+   */
+  public static float dot(float[] a, float[] b) {
+    float sum = 0f;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Return an L2-normalized copy of the vector. Zero vectors are returned as zeros.
+   *
+   * @param vector Vector to normalize
+   * @return Unit-length copy
+   */
+  public static float[] normalize(float[] vector) {
+    float[] copy = vector.clone();
+    float norm = (float) Math.sqrt(dot(copy, copy));
+    if (norm > 0f) {
+      for (int i = 0; i < copy.length; i++) {
+        copy[i] /= norm;
+      }
+    }
+    return copy;
+  }
+}
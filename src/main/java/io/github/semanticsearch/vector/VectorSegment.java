@@ -0,0 +1,215 @@
+package io.github.semanticsearch.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Immutable run of vectors in a {@link SegmentedVectorIndex}. Vectors, IDs and tags never change
+ * once the segment is built, so searches scan it without locking. Deletes only set bits in an
+ * atomic tombstone bitmap; the vectors stay until a merge rewrites the segment without them.
+ */
+final class VectorSegment {
+
+  private static final double PURGE_RATIO = 0.25;
+  private static final int MIN_DELETES_FOR_PURGE = 64;
+
+  /**
+   * Segment built by {@link #merge}.
+   *
+   * @param segment Merged segment
+   * @param remaps For each source, its ordinal's new ordinal in the merged segment, or -1 if it
+   *     was already deleted
+   */
+  record Merge(VectorSegment segment, int[][] remaps) {}
+
+  private final VectorArena arena;
+  private final String[] vectorIds;
+  private final long[] documentBits;
+  private final String[][] tags;
+  private final AtomicLongArray tombstones;
+  private final AtomicInteger deleted = new AtomicInteger();
+
+  private VectorSegment(
+      VectorArena arena, String[] vectorIds, long[] documentBits, String[][] tags, long[] dead) {
+    this.arena = arena;
+    this.vectorIds = vectorIds;
+    this.documentBits = documentBits;
+    this.tags = tags;
+    this.tombstones = new AtomicLongArray(Math.max(1, (arena.size() + 63) >>> 6));
+    for (int word = 0; word < dead.length && word < tombstones.length(); word++) {
+      tombstones.set(word, dead[word]);
+      deleted.addAndGet(Long.bitCount(dead[word]));
+    }
+  }
+
+  /**
+   * Freeze an arena and its registry into a segment. Neither may be written to afterwards; the
+   * segment keeps the arena and copies the IDs and tags.
+   *
+   * @param arena Arena holding the vectors
+   * @param registry IDs and tags of the arena's ordinals
+   * @return Segment over the arena
+   */
+  static VectorSegment seal(VectorArena arena, DocumentIdRegistry registry) {
+    int size = arena.size();
+    String[] vectorIds = new String[size];
+    long[] documentBits = new long[2 * size];
+    String[][] tags = new String[size][];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      vectorIds[ordinal] = registry.vectorId(ordinal);
+      UUID documentId = registry.documentId(ordinal);
+      documentBits[2 * ordinal] = documentId.getMostSignificantBits();
+      documentBits[2 * ordinal + 1] = documentId.getLeastSignificantBits();
+      tags[ordinal] = registry.tags(ordinal);
+    }
+    return new VectorSegment(arena, vectorIds, documentBits, tags, arena.tombstones());
+  }
+
+  /**
+   * Copy the live vectors of several segments into a new one. The sources stay searchable and
+   * deletable while this runs; deletes that land after a vector was copied must be carried over
+   * by the caller using the returned remapping.
+   *
+   * @param sources Segments to merge, all with the same dimensions
+   * @param vectorsPerPage Page size of the merged arena
+   * @return Merged segment and the ordinal remapping
+   */
+  static Merge merge(List<VectorSegment> sources, int vectorsPerPage) {
+    VectorArena arena = new VectorArena(sources.get(0).dimensions(), vectorsPerPage);
+    int capacity = 0;
+    for (VectorSegment source : sources) {
+      capacity += source.liveCount();
+    }
+    // Deletes only ever lower the live count, so the copy cannot outgrow this capacity.
+    String[] vectorIds = new String[capacity];
+    long[] documentBits = new long[2 * capacity];
+    String[][] tags = new String[capacity][];
+    int[][] remaps = new int[sources.size()][];
+    float[] scratch = new float[arena.dimensions()];
+    for (int s = 0; s < sources.size(); s++) {
+      VectorSegment source = sources.get(s);
+      int[] remap = new int[source.size()];
+      Arrays.fill(remap, -1);
+      for (int ordinal = 0; ordinal < source.size(); ordinal++) {
+        if (source.isDeleted(ordinal) || arena.size() == capacity) {
+          continue;
+        }
+        source.arena.copy(ordinal, scratch);
+        int merged = arena.appendNormalized(scratch);
+        vectorIds[merged] = source.vectorIds[ordinal];
+        documentBits[2 * merged] = source.documentBits[2 * ordinal];
+        documentBits[2 * merged + 1] = source.documentBits[2 * ordinal + 1];
+        tags[merged] = source.tags[ordinal];
+        remap[ordinal] = merged;
+      }
+      remaps[s] = remap;
+    }
+    int size = arena.size();
+    VectorSegment segment =
+        new VectorSegment(
+            arena,
+            Arrays.copyOf(vectorIds, size),
+            Arrays.copyOf(documentBits, 2 * size),
+            Arrays.copyOf(tags, size),
+            new long[0]);
+    return new Merge(segment, remaps);
+  }
+
+  int dimensions() {
+    return arena.dimensions();
+  }
+
+  /** Number of ordinals, including deleted ones. */
+  int size() {
+    return arena.size();
+  }
+
+  int liveCount() {
+    return arena.size() - deleted.get();
+  }
+
+  /** Whether enough of the segment is deleted that it should be rewritten on its own. */
+  boolean needsPurge() {
+    int deletes = deleted.get();
+    return deletes == arena.size()
+        || (deletes >= MIN_DELETES_FOR_PURGE && deletes >= arena.size() * PURGE_RATIO);
+  }
+
+  /**
+   * Tombstone an ordinal. Safe to call concurrently with searches and merges.
+   *
+   * @param ordinal Ordinal to delete
+   * @return True if the ordinal was live
+   */
+  boolean delete(int ordinal) {
+    long bit = 1L << ordinal;
+    long previous = tombstones.getAndAccumulate(ordinal >>> 6, bit, (word, mask) -> word | mask);
+    if ((previous & bit) != 0) {
+      return false;
+    }
+    deleted.incrementAndGet();
+    return true;
+  }
+
+  boolean isDeleted(int ordinal) {
+    return (tombstones.get(ordinal >>> 6) & (1L << ordinal)) != 0;
+  }
+
+  String vectorId(int ordinal) {
+    return vectorIds[ordinal];
+  }
+
+  UUID documentId(int ordinal) {
+    return new UUID(documentBits[2 * ordinal], documentBits[2 * ordinal + 1]);
+  }
+
+  String[] tags(int ordinal) {
+    return tags[ordinal];
+  }
+
+  /** Copy the stored (normalized) vector into the destination array. */
+  void copy(int ordinal, float[] destination) {
+    arena.copy(ordinal, destination);
+  }
+
+  /**
+   * Best live matches in this segment.
+   *
+   * @param unitQuery Normalized query
+   * @param k Maximum number of matches
+   * @param minScore Minimum cosine similarity
+   * @param excludedDocumentId Document to skip, or null
+   * @param filter Metadata filter
+   * @return Matches ordered by descending score
+   */
+  List<VectorMatch> search(
+      float[] unitQuery, int k, float minScore, UUID excludedDocumentId, VectorFilter filter) {
+    boolean exclude = excludedDocumentId != null;
+    long excludedMost = exclude ? excludedDocumentId.getMostSignificantBits() : 0;
+    long excludedLeast = exclude ? excludedDocumentId.getLeastSignificantBits() : 0;
+    TopK top = new TopK(k);
+    int size = arena.size();
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      if (isDeleted(ordinal)) {
+        continue;
+      }
+      float score = arena.dot(ordinal, unitQuery);
+      if (score >= minScore
+          && top.accepts(score)
+          && (filter.isEmpty() || filter.matches(tags[ordinal]))
+          && !(exclude
+              && documentBits[2 * ordinal] == excludedMost
+              && documentBits[2 * ordinal + 1] == excludedLeast)) {
+        top.offer(ordinal, score);
+      }
+    }
+    List<VectorMatch> matches = new ArrayList<>(top.size());
+    top.drainDescending(
+        (ordinal, score) -> matches.add(new VectorMatch(documentId(ordinal), score)));
+    return matches;
+  }
+}
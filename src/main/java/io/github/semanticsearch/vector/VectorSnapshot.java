@@ -0,0 +1,319 @@
+package io.github.semanticsearch.vector;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned on-disk image of a local vector index: an {@link VectorArena} and its {@link
+ * DocumentIdRegistry}. A restarted node maps the vector block instead of reading it, so it can
+ * serve queries as soon as the small tables are loaded, with the vectors paged in on demand.
+ *
+ * <p>Layout, little-endian throughout:
+ *
+ * <ul>
+ *   <li>64-byte header: magic, version, dimensions, ordinal count, the offsets of the four
+ *       sections below, the file length, a CRC32 of the header and a CRC32 of the sections after
+ *       the vector block.
+ *   <li>Vector block: {@code count * dimensions} normalized float32 values, starting at byte 64.
+ *   <li>Document table: the owning document of every ordinal as two longs.
+ *   <li>Tombstone bitmap: one bit per ordinal in {@code ceil(count / 64)} longs.
+ *   <li>Records: per ordinal the vector ID and the {@link VectorFilter} tags, as length-prefixed
+ *       UTF-8 with -1 for a removed vector.
+ * </ul>
+ *
+ * <p>Snapshots are written to a sibling temporary file, forced to disk and atomically renamed over
+ * the previous one, so a crash leaves either the old or the new snapshot. The vector block is not
+ * checksummed, since that would read every page at startup.
+ *
+ * @param arena Restored vectors
+ * @param registry Restored ID mappings
+ */
+public record VectorSnapshot(VectorArena arena, DocumentIdRegistry registry) {
+
+  static final int MAGIC = 0x53535649; // "SSVI"
+  static final int VERSION = 1;
+
+  private static final int HEADER_BYTES = 64;
+  private static final int CHECKSUMMED_HEADER_BYTES = 56;
+  private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+  /**
+   * Write a snapshot atomically. The caller must keep the arena and registry from changing while
+   * this runs.
+   *
+   * @param path Snapshot file
+   * @param arena Vectors to write
+   * @param registry ID mappings of the arena's ordinals
+   * @throws IOException If the snapshot cannot be written
+   */
+  public static void write(Path path, VectorArena arena, DocumentIdRegistry registry)
+      throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    int count = arena.size();
+    int dimensions = arena.dimensions();
+
+    try (FileChannel channel =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      ByteBuffer buffer =
+          ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      channel.position(HEADER_BYTES);
+
+      float[] vector = new float[dimensions];
+      int vectorBytes = dimensions * Float.BYTES;
+      ByteBuffer vectorBuffer =
+          vectorBytes <= WRITE_BUFFER_BYTES
+              ? buffer
+              : ByteBuffer.allocateDirect(vectorBytes).order(ByteOrder.LITTLE_ENDIAN);
+      for (int ordinal = 0; ordinal < count; ordinal++) {
+        arena.copy(ordinal, vector);
+        ensureRoom(channel, vectorBuffer, vectorBytes, null);
+        vectorBuffer.asFloatBuffer().put(vector);
+        vectorBuffer.position(vectorBuffer.position() + vectorBytes);
+      }
+      flush(channel, vectorBuffer, null);
+
+      CRC32 crc = new CRC32();
+      long documentsOffset = channel.position();
+      for (int ordinal = 0; ordinal < count; ordinal++) {
+        ensureRoom(channel, buffer, 2 * Long.BYTES, crc);
+        UUID documentId = arena.isDeleted(ordinal) ? null : registry.documentId(ordinal);
+        buffer.putLong(documentId != null ? documentId.getMostSignificantBits() : 0L);
+        buffer.putLong(documentId != null ? documentId.getLeastSignificantBits() : 0L);
+      }
+      flush(channel, buffer, crc);
+
+      long tombstonesOffset = channel.position();
+      for (long word : arena.tombstones()) {
+        ensureRoom(channel, buffer, Long.BYTES, crc);
+        buffer.putLong(word);
+      }
+      flush(channel, buffer, crc);
+
+      long recordsOffset = channel.position();
+      for (int ordinal = 0; ordinal < count; ordinal++) {
+        boolean live = !arena.isDeleted(ordinal);
+        putString(channel, buffer, crc, live ? registry.vectorId(ordinal) : null);
+        String[] tags = live ? registry.tags(ordinal) : new String[0];
+        ensureRoom(channel, buffer, Integer.BYTES, crc);
+        buffer.putInt(tags.length);
+        for (String tag : tags) {
+          putString(channel, buffer, crc, tag);
+        }
+      }
+      flush(channel, buffer, crc);
+      long fileLength = channel.position();
+
+      buffer
+          .putInt(MAGIC)
+          .putInt(VERSION)
+          .putInt(dimensions)
+          .putInt(count)
+          .putLong(HEADER_BYTES)
+          .putLong(documentsOffset)
+          .putLong(tombstonesOffset)
+          .putLong(recordsOffset)
+          .putLong(fileLength);
+      CRC32 headerCrc = new CRC32();
+      headerCrc.update(buffer.duplicate().flip());
+      buffer.putInt((int) headerCrc.getValue()).putInt((int) crc.getValue()).flip();
+      channel.write(buffer, 0);
+      channel.force(true);
+    }
+
+    try {
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    forceDirectory(parent);
+  }
+
+  /**
+   * Open a snapshot. Full pages of the vector block are memory-mapped read-only; only a trailing
+   * partial page is copied so the arena can keep appending to it.
+   *
+   * @param path Snapshot file
+   * @param vectorsPerPage Page size of the restored arena
+   * @return Restored arena and registry
+   * @throws IOException If the file cannot be read or is not a valid snapshot
+   */
+  public static VectorSnapshot open(Path path, int vectorsPerPage) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining() && channel.read(header) >= 0) {}
+      header.flip();
+      if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+        throw new IOException("Not a vector snapshot: " + path);
+      }
+      if (header.getInt(4) != VERSION) {
+        throw new IOException("Unsupported vector snapshot version " + header.getInt(4));
+      }
+      CRC32 headerCrc = new CRC32();
+      headerCrc.update(header.duplicate().limit(CHECKSUMMED_HEADER_BYTES));
+      if ((int) headerCrc.getValue() != header.getInt(56)) {
+        throw new IOException("Corrupt vector snapshot header: " + path);
+      }
+
+      int dimensions = header.getInt(8);
+      int count = header.getInt(12);
+      long vectorsOffset = header.getLong(16);
+      long documentsOffset = header.getLong(24);
+      long tombstonesOffset = header.getLong(32);
+      long recordsOffset = header.getLong(40);
+      long fileLength = header.getLong(48);
+      if (dimensions <= 0
+          || count < 0
+          || fileLength != channel.size()
+          || documentsOffset != vectorsOffset + (long) count * dimensions * Float.BYTES
+          || tombstonesOffset != documentsOffset + 2L * Long.BYTES * count
+          || recordsOffset != tombstonesOffset + (long) Long.BYTES * ((count + 63) >>> 6)
+          || fileLength - documentsOffset > Integer.MAX_VALUE) {
+        throw new IOException("Truncated or inconsistent vector snapshot: " + path);
+      }
+
+      ByteBuffer tables =
+          channel
+              .map(FileChannel.MapMode.READ_ONLY, documentsOffset, fileLength - documentsOffset)
+              .order(ByteOrder.LITTLE_ENDIAN);
+      CRC32 tablesCrc = new CRC32();
+      tablesCrc.update(tables.duplicate());
+      if ((int) tablesCrc.getValue() != header.getInt(60)) {
+        throw new IOException("Corrupt vector snapshot tables: " + path);
+      }
+
+      try {
+        long[] documentBits = new long[2 * count];
+        tables.asLongBuffer().get(documentBits);
+        tables.position((int) (tombstonesOffset - documentsOffset));
+        long[] tombstones = new long[(count + 63) >>> 6];
+        tables.asLongBuffer().get(tombstones);
+        tables.position((int) (recordsOffset - documentsOffset));
+
+        DocumentIdRegistry registry = new DocumentIdRegistry();
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+          String vectorId = getString(tables);
+          String[] tags = new String[tables.getInt()];
+          for (int i = 0; i < tags.length; i++) {
+            tags[i] = getString(tables);
+          }
+          boolean live = (tombstones[ordinal >>> 6] & (1L << ordinal)) == 0;
+          if (live && vectorId != null) {
+            UUID documentId = new UUID(documentBits[2 * ordinal], documentBits[2 * ordinal + 1]);
+            registry.put(ordinal, vectorId, documentId, tags);
+          }
+        }
+
+        FloatBuffer[] pages =
+            mapPages(channel, vectorsOffset, dimensions, count, vectorsPerPage);
+        return new VectorSnapshot(
+            new VectorArena(dimensions, vectorsPerPage, pages, count, tombstones), registry);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        throw new IOException("Corrupt vector snapshot records: " + path, e);
+      }
+    }
+  }
+
+  private static FloatBuffer[] mapPages(
+      FileChannel channel, long vectorsOffset, int dimensions, int count, int vectorsPerPage)
+      throws IOException {
+    long pageBytes = (long) vectorsPerPage * dimensions * Float.BYTES;
+    int fullPages = count / vectorsPerPage;
+    int tail = count % vectorsPerPage;
+    FloatBuffer[] pages = new FloatBuffer[fullPages + (tail > 0 ? 1 : 0)];
+    for (int page = 0; page < fullPages; page++) {
+      pages[page] =
+          channel
+              .map(FileChannel.MapMode.READ_ONLY, vectorsOffset + page * pageBytes, pageBytes)
+              .order(ByteOrder.LITTLE_ENDIAN)
+              .asFloatBuffer();
+    }
+    if (tail > 0) {
+      ByteBuffer writable =
+          ByteBuffer.allocateDirect((int) pageBytes).order(ByteOrder.LITTLE_ENDIAN);
+      writable.put(
+          channel.map(
+              FileChannel.MapMode.READ_ONLY,
+              vectorsOffset + fullPages * pageBytes,
+              (long) tail * dimensions * Float.BYTES));
+      pages[fullPages] = writable.clear().asFloatBuffer();
+    }
+    return pages;
+  }
+
+  private static void putString(FileChannel channel, ByteBuffer buffer, CRC32 crc, String value)
+      throws IOException {
+    if (value == null) {
+      ensureRoom(channel, buffer, Integer.BYTES, crc);
+      buffer.putInt(-1);
+      return;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    ensureRoom(channel, buffer, Integer.BYTES, crc);
+    buffer.putInt(utf8.length);
+    for (int written = 0; written < utf8.length; ) {
+      ensureRoom(channel, buffer, 1, crc);
+      int chunk = Math.min(buffer.remaining(), utf8.length - written);
+      buffer.put(utf8, written, chunk);
+      written += chunk;
+    }
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] utf8 = new byte[length];
+    buffer.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes, CRC32 crc)
+      throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush(channel, buffer, crc);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc)
+      throws IOException {
+    buffer.flip();
+    if (crc != null) {
+      crc.update(buffer.duplicate());
+    }
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /** Make the rename durable; not every platform can open a directory, which is tolerated. */
+  private static void forceDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Best effort: the snapshot itself is already on disk.
+    }
+  }
+}
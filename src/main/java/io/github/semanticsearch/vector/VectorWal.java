@@ -0,0 +1,382 @@
+package io.github.semanticsearch.vector;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of local vector index updates, kept as numbered segment files in one
+ * directory. Updates since the last {@link VectorSnapshot} are replayed from it at startup.
+ *
+ * <p>Each record is a little-endian payload length, a CRC32 of the payload and the payload: an
+ * operation byte followed by the vector ID, and for adds the document ID, metadata and vector
+ * components. Replay stops at the first torn or corrupt record, which can only be the tail of the
+ * segment being written when the process died, and cuts the last segment there. A bad record in an
+ * older segment is real corruption: opening fails and the segment is left as it is.
+ *
+ * <p>Appends only write to the file; {@link #sync(long)} makes them durable with group commit. The
+ * first waiting thread forces the channel on behalf of everyone whose record was written before
+ * the force began, so concurrent writers share one fsync instead of queueing for their own.
+ *
+ * <p>A checkpoint calls {@link #rotate()} to start a new segment, writes a snapshot that covers
+ * every record in the older segments, then drops them with {@link #deleteSegmentsBefore(long)}.
+ * Replaying a record the snapshot already holds is harmless: adds replace by vector ID and removes
+ * of absent vectors do nothing.
+ */
+public final class VectorWal implements AutoCloseable {
+
+  /** A logged update. */
+  public sealed interface Operation permits Add, Remove {
+    String vectorId();
+  }
+
+  /** Add or replace a vector. */
+  public record Add(String vectorId, UUID documentId, float[] vector, Map<String, String> metadata)
+      implements Operation {}
+
+  /** Remove a vector. */
+  public record Remove(String vectorId) implements Operation {}
+
+  private static final byte ADD = 1;
+  private static final byte REMOVE = 2;
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+  private static final String SEGMENT_PREFIX = "wal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final Object writeLock = new Object();
+  private final Object syncMonitor = new Object();
+
+  // Guarded by writeLock. Positions are global: a segment starts where the previous one ended.
+  private FileChannel channel;
+  private long segment;
+  private long segmentStart;
+  private volatile long writtenPosition;
+
+  // Guarded by syncMonitor.
+  private long durablePosition;
+  private boolean syncing;
+
+  private VectorWal(Path directory, long segment) throws IOException {
+    this.directory = directory;
+    this.segment = segment;
+    this.channel = openSegment(segment);
+  }
+
+  /**
+   * Replay every logged operation in order, then start a new segment for appends.
+   *
+   * @param directory Directory holding the segments; created if missing
+   * @param replay Receives each operation that was logged before the last shutdown or crash
+   * @return Log ready for appends
+   * @throws IOException If the directory or a segment cannot be read
+   */
+  public static VectorWal open(Path directory, Consumer<Operation> replay) throws IOException {
+    Files.createDirectories(directory);
+    List<Long> segments = segments(directory);
+    for (int i = 0; i < segments.size(); i++) {
+      Path path = segmentPath(directory, segments.get(i));
+      long size = Files.size(path);
+      long valid = replaySegment(path, size, replay);
+      if (valid == size) {
+        continue;
+      }
+      if (i < segments.size() - 1) {
+        throw new IOException(
+            "Corrupt write-ahead log segment "
+                + segments.get(i)
+                + " at byte "
+                + valid
+                + " is followed by newer ones");
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(valid);
+        channel.force(true);
+      }
+    }
+    long next = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+    return new VectorWal(directory, next);
+  }
+
+  /**
+   * Log an operation. The record is written but not yet durable.
+   *
+   * @param operation Operation to log
+   * @return Position to pass to {@link #sync(long)}
+   * @throws IOException If the record cannot be written
+   */
+  public long append(Operation operation) throws IOException {
+    byte[] payload = encode(operation);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer record =
+        ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+    record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+    synchronized (writeLock) {
+      while (record.hasRemaining()) {
+        channel.write(record);
+      }
+      writtenPosition += record.limit();
+      return writtenPosition;
+    }
+  }
+
+  /**
+   * Wait until everything up to the position is on disk, forcing the log if no other thread is.
+   *
+   * @param position Position returned by {@link #append}
+   * @throws IOException If the log cannot be forced
+   */
+  public void sync(long position) throws IOException {
+    synchronized (syncMonitor) {
+      while (durablePosition < position && syncing) {
+        try {
+          syncMonitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the write-ahead log", e);
+        }
+      }
+      if (durablePosition >= position) {
+        return;
+      }
+      syncing = true;
+    }
+    long target;
+    FileChannel current;
+    synchronized (writeLock) {
+      target = writtenPosition;
+      current = channel;
+    }
+    boolean forced = false;
+    try {
+      current.force(false);
+      forced = true;
+    } finally {
+      synchronized (syncMonitor) {
+        syncing = false;
+        if (forced) {
+          durablePosition = Math.max(durablePosition, target);
+        }
+        syncMonitor.notifyAll();
+      }
+    }
+  }
+
+  /** Bytes logged since the last {@link #rotate()}. */
+  public long bytesSinceRotation() {
+    synchronized (writeLock) {
+      return writtenPosition - segmentStart;
+    }
+  }
+
+  /**
+   * Force and close the current segment and continue in a new one. The caller must ensure no
+   * append is still waiting to be applied to the index.
+   *
+   * @return Number of the new segment; every older one is covered by a snapshot taken from now on
+   * @throws IOException If the segments cannot be forced or created
+   */
+  public long rotate() throws IOException {
+    synchronized (syncMonitor) {
+      while (syncing) {
+        try {
+          syncMonitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while rotating the write-ahead log", e);
+        }
+      }
+      synchronized (writeLock) {
+        channel.force(false);
+        durablePosition = writtenPosition;
+        FileChannel next = openSegment(segment + 1);
+        channel.close();
+        channel = next;
+        segment++;
+        segmentStart = writtenPosition;
+        return segment;
+      }
+    }
+  }
+
+  /**
+   * Delete segments older than the given one once a snapshot covers them.
+   *
+   * @param firstKept Segment number returned by {@link #rotate()}
+   * @throws IOException If a segment cannot be deleted
+   */
+  public void deleteSegmentsBefore(long firstKept) throws IOException {
+    for (long number : segments(directory)) {
+      if (number < firstKept) {
+        Files.deleteIfExists(segmentPath(directory, number));
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (writeLock) {
+      if (channel.isOpen()) {
+        channel.force(false);
+        channel.close();
+      }
+    }
+  }
+
+  private FileChannel openSegment(long number) throws IOException {
+    return FileChannel.open(
+        segmentPath(directory, number),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+  }
+
+  private static Path segmentPath(Path directory, long number) {
+    return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+  }
+
+  private static List<Long> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+          .map(
+              name ->
+                  Long.parseLong(
+                      name.substring(
+                          SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+          .sorted()
+          .toList();
+    }
+  }
+
+  /**
+   * Replay one segment up to the first torn or corrupt record.
+   *
+   * @return Length of the valid prefix, {@code size} if every record was valid
+   */
+  private static long replaySegment(Path path, long size, Consumer<Operation> replay)
+      throws IOException {
+    long valid = 0;
+    try (InputStream file = Files.newInputStream(path);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+      while (valid < size) {
+        byte[] header = new byte[RECORD_HEADER_BYTES];
+        in.readFully(header);
+        ByteBuffer fields = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        int length = fields.getInt();
+        int checksum = fields.getInt();
+        if (length <= 0 || length > size - valid - RECORD_HEADER_BYTES) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        replay.accept(decode(payload));
+        valid += RECORD_HEADER_BYTES + length;
+      }
+    } catch (EOFException e) {
+      // Torn record at the tail; everything before it was applied.
+    }
+    return valid;
+  }
+
+  private static byte[] encode(Operation operation) {
+    ByteBuffer buffer;
+    byte[] vectorId = operation.vectorId().getBytes(StandardCharsets.UTF_8);
+    if (operation instanceof Add add) {
+      List<byte[]> metadata = new ArrayList<>();
+      int metadataBytes = 0;
+      Map<String, String> entries = add.metadata() != null ? add.metadata() : Map.of();
+      for (Map.Entry<String, String> entry : entries.entrySet()) {
+        if (entry.getKey() == null || entry.getValue() == null) {
+          continue;
+        }
+        byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+        metadata.add(key);
+        metadata.add(value);
+        metadataBytes += 2 * Integer.BYTES + key.length + value.length;
+      }
+      buffer =
+          ByteBuffer.allocate(
+                  1
+                      + Integer.BYTES
+                      + vectorId.length
+                      + 2 * Long.BYTES
+                      + Integer.BYTES
+                      + metadataBytes
+                      + Integer.BYTES
+                      + add.vector().length * Float.BYTES)
+              .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.put(ADD).putInt(vectorId.length).put(vectorId);
+      buffer
+          .putLong(add.documentId().getMostSignificantBits())
+          .putLong(add.documentId().getLeastSignificantBits());
+      buffer.putInt(metadata.size() / 2);
+      for (byte[] bytes : metadata) {
+        buffer.putInt(bytes.length).put(bytes);
+      }
+      buffer.putInt(add.vector().length);
+      buffer.asFloatBuffer().put(add.vector());
+    } else {
+      buffer =
+          ByteBuffer.allocate(1 + Integer.BYTES + vectorId.length).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.put(REMOVE).putInt(vectorId.length).put(vectorId);
+    }
+    return buffer.array();
+  }
+
+  private static Operation decode(byte[] payload) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      byte type = buffer.get();
+      String vectorId = getString(buffer);
+      if (type == REMOVE) {
+        return new Remove(vectorId);
+      }
+      if (type != ADD) {
+        throw new IOException("Unknown write-ahead log operation " + type);
+      }
+      UUID documentId = new UUID(buffer.getLong(), buffer.getLong());
+      int entries = buffer.getInt();
+      Map<String, String> metadata = new LinkedHashMap<>();
+      for (int i = 0; i < entries; i++) {
+        metadata.put(getString(buffer), getString(buffer));
+      }
+      float[] vector = new float[buffer.getInt()];
+      buffer.asFloatBuffer().get(vector);
+      return new Add(vectorId, documentId, vector, metadata);
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed write-ahead log record", e);
+    }
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] utf8 = new byte[buffer.getInt()];
+    buffer.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS embeddings (
+    content_hash VARCHAR(255) NOT NULL,
+    model VARCHAR(255) NOT NULL,
+    dimensions INTEGER NOT NULL,
+    vector BYTEA NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (content_hash, model, dimensions)
+);
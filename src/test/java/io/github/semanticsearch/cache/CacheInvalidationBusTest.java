@@ -0,0 +1,161 @@
+package io.github.semanticsearch.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.github.semanticsearch.config.NearCacheProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CacheInvalidationBusTest {
+
+  /** In-memory stand-in for the counters and pub/sub channel of a shared Redis. */
+  private static class FakeRedis extends RedisTemplate<String, Object> {
+    final Map<String, Long> counters = new ConcurrentHashMap<>();
+    final List<CacheInvalidationBus> subscribers = new CopyOnWriteArrayList<>();
+    volatile boolean dropMessages;
+
+    FakeRedis() {
+      setValueSerializer(new JdkSerializationRedisSerializer());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueOperations<String, Object> opsForValue() {
+      return (ValueOperations<String, Object>)
+          Proxy.newProxyInstance(
+              getClass().getClassLoader(),
+              new Class<?>[] {ValueOperations.class},
+              (proxy, method, args) ->
+                  switch (method.getName()) {
+                    case "increment" -> counters.merge((String) args[0], 1L, Long::sum);
+                    case "get" -> counters.get(args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                  });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Long convertAndSend(String channel, Object message) {
+      if (dropMessages) {
+        return 0L;
+      }
+      byte[] body = ((RedisSerializer<Object>) getValueSerializer()).serialize(message);
+      for (CacheInvalidationBus subscriber : subscribers) {
+        subscriber.onMessage(new DefaultMessage(channel.getBytes(), body), null);
+      }
+      return (long) subscribers.size();
+    }
+  }
+
+  private final FakeRedis redis = new FakeRedis();
+  private final ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+  private final CacheInvalidationBus busA = newBus();
+  private final CacheInvalidationBus busB = newBus();
+  private final Cache nodeA = newNode(busA).getCache("embeddings");
+  private final Cache nodeB = newNode(busB).getCache("embeddings");
+
+  @AfterEach
+  void closeBuses() {
+    busA.close();
+    busB.close();
+  }
+
+  @Test
+  void writesOnOneNodeEvictTheOthersNearCache() {
+    nodeA.put("k", "v1");
+    assertEquals("v1", nodeB.get("k", String.class));
+
+    nodeA.put("k", "v2");
+    assertEquals("v1", nodeB.get("k", String.class));
+
+    busA.flush();
+    assertEquals("v2", nodeB.get("k", String.class));
+    assertEquals("v2", nodeA.get("k", String.class));
+  }
+
+  @Test
+  void firstFillsAreNotBroadcast() {
+    nodeA.put("k", "v1");
+    nodeA.put("other", "x");
+    busA.flush();
+
+    assertNull(redis.counters.get(CacheInvalidationBus.EPOCH_KEY_PREFIX + "embeddings"));
+    assertEquals("v1", nodeB.get("k", String.class));
+  }
+
+  @Test
+  void coalescesEvictionsIntoOneEpoch() {
+    nodeA.evict("a");
+    nodeA.evict("b");
+    nodeA.evict("a");
+    busA.flush();
+
+    assertEquals(1L, redis.counters.get(CacheInvalidationBus.EPOCH_KEY_PREFIX + "embeddings"));
+  }
+
+  @Test
+  void gapInEpochsClearsTheNearCache() {
+    nodeA.put("k", "v1");
+    nodeA.put("other", "x");
+    busA.flush();
+    assertEquals("v1", nodeB.get("k", String.class));
+
+    redis.dropMessages = true;
+    nodeA.put("k", "v2");
+    busA.flush();
+    redis.dropMessages = false;
+    assertEquals("v1", nodeB.get("k", String.class));
+
+    nodeA.evict("other");
+    busA.flush();
+    assertEquals("v2", nodeB.get("k", String.class));
+  }
+
+  @Test
+  void epochCheckClearsANodeThatMissedTheLastMessage() {
+    nodeA.put("k", "v1");
+    busA.flush();
+    assertEquals("v1", nodeB.get("k", String.class));
+
+    redis.dropMessages = true;
+    nodeA.put("k", "v2");
+    busA.flush();
+
+    busB.checkEpochs();
+    assertEquals("v1", nodeB.get("k", String.class));
+    busB.checkEpochs();
+    assertEquals("v2", nodeB.get("k", String.class));
+  }
+
+  private CacheInvalidationBus newBus() {
+    CacheInvalidationBus bus =
+        new CacheInvalidationBus(
+            redis, "cache:invalidation", Duration.ofHours(1), Duration.ofHours(1), 100);
+    redis.subscribers.add(bus);
+    return bus;
+  }
+
+  private TieredCacheManager newNode(CacheInvalidationBus bus) {
+    TieredCacheManager node =
+        new TieredCacheManager(remote, new NearCacheProperties(), new SimpleMeterRegistry(), bus);
+    bus.bind(node);
+    return node;
+  }
+}
@@ -0,0 +1,58 @@
+package io.github.semanticsearch.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.semanticsearch.model.Embedding;
+
+class EmbeddingRedisSerializerTest {
+
+  private final Embedding embedding = Embedding.of(new float[] {0.5f, -1.25f, 0f, 3.75f});
+
+  @Test
+  void float32RoundTripIsExactAndCompact() {
+    EmbeddingRedisSerializer serializer =
+        new EmbeddingRedisSerializer(EmbeddingRedisSerializer.Encoding.FLOAT32);
+
+    byte[] bytes = serializer.serialize(embedding);
+
+    assertEquals(6 + 4 * Float.BYTES, bytes.length);
+    assertEquals(embedding, serializer.deserialize(bytes));
+  }
+
+  @Test
+  void int8RoundTripIsCloseToOriginal() {
+    EmbeddingRedisSerializer serializer =
+        new EmbeddingRedisSerializer(EmbeddingRedisSerializer.Encoding.INT8);
+
+    byte[] bytes = serializer.serialize(embedding);
+    Embedding decoded = serializer.deserialize(bytes);
+
+    assertEquals(6 + Float.BYTES + 4, bytes.length);
+    for (int i = 0; i < embedding.dimensions(); i++) {
+      assertEquals(embedding.get(i), decoded.get(i), 3.75f / 127f);
+    }
+  }
+
+  @Test
+  void decodesEntriesWrittenWithTheOtherEncoding() {
+    byte[] int8 =
+        new EmbeddingRedisSerializer(EmbeddingRedisSerializer.Encoding.INT8).serialize(embedding);
+
+    Embedding decoded =
+        new EmbeddingRedisSerializer(EmbeddingRedisSerializer.Encoding.FLOAT32).deserialize(int8);
+
+    assertEquals(embedding.dimensions(), decoded.dimensions());
+  }
+
+  @Test
+  void unknownVersionIsTreatedAsMiss() {
+    EmbeddingRedisSerializer serializer =
+        new EmbeddingRedisSerializer(EmbeddingRedisSerializer.Encoding.FLOAT32);
+    byte[] bytes = serializer.serialize(embedding);
+    bytes[0] = (byte) (EmbeddingRedisSerializer.VERSION + 1);
+
+    assertNull(serializer.deserialize(bytes));
+  }
+}
@@ -0,0 +1,108 @@
+package io.github.semanticsearch.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class IndexGenerationTest {
+
+  /** In-memory stand-in for the generation counter in a shared Redis. */
+  private static class FakeRedis extends StringRedisTemplate {
+    final Map<String, Long> counters = new ConcurrentHashMap<>();
+    final AtomicInteger reads = new AtomicInteger();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueOperations<String, String> opsForValue() {
+      return (ValueOperations<String, String>)
+          Proxy.newProxyInstance(
+              getClass().getClassLoader(),
+              new Class<?>[] {ValueOperations.class},
+              (proxy, method, args) ->
+                  switch (method.getName()) {
+                    case "get" -> {
+                      reads.incrementAndGet();
+                      Long value = counters.get(args[0]);
+                      yield value != null ? value.toString() : null;
+                    }
+                    case "increment" ->
+                        counters.merge(
+                            (String) args[0], args.length > 1 ? (Long) args[1] : 1L, Long::sum);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                  });
+    }
+  }
+
+  private final FakeRedis redis = new FakeRedis();
+
+  @Test
+  void readsAreServedLocallyWithinTheRefreshInterval() {
+    IndexGeneration generation = newGeneration(Duration.ofHours(1));
+    redis.counters.put(IndexGeneration.REDIS_KEY, 3L);
+
+    assertEquals(3, generation.current());
+    redis.counters.put(IndexGeneration.REDIS_KEY, 7L);
+    assertEquals(3, generation.current());
+    assertEquals(1, redis.reads.get());
+
+    assertEquals(8, generation.advance());
+    assertEquals(8, generation.current());
+  }
+
+  @Test
+  void resetKeyIsRaisedPastEveryGenerationSeen() {
+    IndexGeneration generation = newGeneration(Duration.ZERO);
+    redis.counters.put(IndexGeneration.REDIS_KEY, 5L);
+    assertEquals(5, generation.current());
+
+    redis.counters.clear();
+    long afterReset = generation.current();
+    assertTrue(afterReset > 5);
+    assertEquals(afterReset, redis.counters.get(IndexGeneration.REDIS_KEY));
+
+    // A peer's advance after the reset is seen rather than ignored
+    redis.counters.merge(IndexGeneration.REDIS_KEY, 1L, Long::sum);
+    assertEquals(afterReset + 1, generation.current());
+
+    redis.counters.put(IndexGeneration.REDIS_KEY, 0L);
+    assertTrue(generation.advance() > afterReset + 1);
+  }
+
+  @Test
+  void advanceAfterCommitWaitsForTheTransactionToComplete() {
+    IndexGeneration generation = newGeneration(Duration.ZERO);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      generation.advanceAfterCommit();
+      assertEquals(0, generation.current());
+
+      for (TransactionSynchronization synchronization :
+          TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals(1, generation.current());
+    generation.advanceAfterCommit();
+    assertEquals(2, generation.current());
+  }
+
+  private IndexGeneration newGeneration(Duration refreshInterval) {
+    StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("redis", redis));
+    return new IndexGeneration(
+        beans.getBeanProvider(StringRedisTemplate.class), true, refreshInterval);
+  }
+}
@@ -0,0 +1,51 @@
+package io.github.semanticsearch.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.semanticsearch.model.SearchRequest;
+
+class SearchCacheKeyTest {
+
+  @Test
+  void equivalentRequestsShareAKey() {
+    Map<String, String> filters = new LinkedHashMap<>();
+    filters.put("topic", "search");
+    filters.put("lang", "en");
+    SearchRequest first =
+        SearchRequest.builder()
+            .query("  vector   search ")
+            .filters(filters)
+            .fields(List.of("topic", "author"))
+            .build();
+    SearchRequest second =
+        SearchRequest.builder()
+            .query("vector search")
+            .filters(Map.of("lang", "en", "topic", "search"))
+            .fields(List.of("author", "topic"))
+            .build();
+
+    assertEquals(SearchCacheKey.of(first, "A", 3), SearchCacheKey.of(second, "A", 3));
+  }
+
+  @Test
+  void responseShapingParametersChangeTheKey() {
+    SearchRequest base = SearchRequest.builder().query("vector search").build();
+    String key = SearchCacheKey.of(base, "A", 1);
+
+    assertNotEquals(key, SearchCacheKey.of(base, "B", 1));
+    assertNotEquals(key, SearchCacheKey.of(base, "A", 2));
+    assertNotEquals(
+        key,
+        SearchCacheKey.of(SearchRequest.builder().query("vector search").limit(3).build(), "A", 1));
+    assertNotEquals(
+        key,
+        SearchCacheKey.of(
+            SearchRequest.builder().query("vector search").includeContent(false).build(), "A", 1));
+  }
+}
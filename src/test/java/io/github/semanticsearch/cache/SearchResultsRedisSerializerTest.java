@@ -0,0 +1,57 @@
+package io.github.semanticsearch.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.semanticsearch.model.SearchResult;
+
+class SearchResultsRedisSerializerTest {
+
+  private final SearchResultsRedisSerializer serializer = new SearchResultsRedisSerializer();
+
+  @Test
+  void roundTripsAllFields() {
+    SearchResult full =
+        SearchResult.builder()
+            .id(UUID.randomUUID())
+            .title("Vector search")
+            .content("Approximate nearest neighbours — ünïcödé")
+            .metadata(Map.of("category", "search"))
+            .score(0.875)
+            .highlights(List.of("nearest", "neighbours"))
+            .build();
+    SearchResult sparse = SearchResult.builder().score(0.5).build();
+
+    byte[] bytes = serializer.serialize(List.of(full, sparse));
+    List<SearchResult> decoded = serializer.deserialize(bytes);
+
+    assertEquals(2, decoded.size());
+    SearchResult first = decoded.get(0);
+    assertEquals(full.getId(), first.getId());
+    assertEquals(full.getTitle(), first.getTitle());
+    assertEquals(full.getContent(), first.getContent());
+    assertEquals(full.getMetadata(), first.getMetadata());
+    assertEquals(full.getScore(), first.getScore());
+    assertEquals(full.getHighlights(), first.getHighlights());
+
+    SearchResult second = decoded.get(1);
+    assertNull(second.getId());
+    assertNull(second.getTitle());
+    assertNull(second.getMetadata());
+    assertNull(second.getHighlights());
+    assertEquals(0.5, second.getScore());
+  }
+
+  @Test
+  void otherSchemaVersionIsTreatedAsMiss() {
+    byte[] bytes = serializer.serialize(List.of(SearchResult.builder().score(1).build()));
+    bytes[0] = (byte) (SearchResultsRedisSerializer.VERSION + 1);
+
+    assertNull(serializer.deserialize(bytes));
+  }
+}
@@ -0,0 +1,66 @@
+package io.github.semanticsearch.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import io.github.semanticsearch.config.NearCacheProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TieredCacheManagerTest {
+
+  private final ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TieredCacheManager manager =
+      new TieredCacheManager(remote, new NearCacheProperties(), meterRegistry);
+
+  @Test
+  void promotesRemoteHitsIntoLocalTier() {
+    remote.getCache("embeddings").put("k", "remote value");
+    Cache cache = manager.getCache("embeddings");
+
+    assertEquals("remote value", cache.get("k", String.class));
+    remote.getCache("embeddings").evict("k");
+    assertEquals("remote value", cache.get("k", String.class));
+
+    assertEquals(1.0, count("l2", "hit"));
+    assertEquals(1.0, count("l1", "hit"));
+  }
+
+  @Test
+  void writesAndEvictionsReachBothTiers() {
+    Cache cache = manager.getCache("embeddings");
+    cache.put("k", "value");
+
+    assertEquals("value", remote.getCache("embeddings").get("k", String.class));
+
+    cache.evict("k");
+    assertNull(cache.get("k"));
+    assertNull(remote.getCache("embeddings").get("k"));
+    assertEquals(1.0, count("l2", "miss"));
+  }
+
+  @Test
+  void cachesNullValues() {
+    Cache cache = manager.getCache("embeddings");
+    cache.put("k", null);
+
+    Cache.ValueWrapper wrapper = cache.get("k");
+    assertNotNull(wrapper);
+    assertNull(wrapper.get());
+  }
+
+  private double count(String tier, String result) {
+    return meterRegistry
+        .get("cache.tier.requests")
+        .tag("cache", "embeddings")
+        .tag("tier", tier)
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+}
@@ -15,6 +15,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
 
 import io.github.semanticsearch.model.Document;
+import io.github.semanticsearch.model.DocumentPatch;
+import io.github.semanticsearch.model.Embedding;
 import io.github.semanticsearch.service.IndexService;
 import io.github.semanticsearch.support.InMemoryDocumentRepository;
 
@@ -107,6 +109,54 @@ class DocumentControllerTest {
     assertEquals(updated.getId(), indexService.lastUpdatedId);
   }
 
+  @Test
+  void updateDocument_withUnchangedContentSkipsReindex() {
+    Document created = controller.createDocument(makeDocument("Doc 1", "body")).getBody();
+    assertNotNull(created);
+
+    Document update = makeDocument("Renamed", "body");
+    update.setMetadata(Map.of("author", "bob"));
+    Document updated = controller.updateDocument(created.getId(), update).getBody();
+
+    assertEquals("Renamed", updated.getTitle());
+    assertEquals("bob", updated.getMetadata().get("author"));
+    assertNull(indexService.lastUpdatedId);
+    assertEquals(created.getId(), indexService.lastRefreshedId);
+  }
+
+  @Test
+  void patchDocument_changesOnlyGivenFieldsWithoutReindex() {
+    Document created = controller.createDocument(makeDocument("Doc 1", "body")).getBody();
+    assertNotNull(created);
+
+    Document patched =
+        controller
+            .patchDocument(created.getId(), new DocumentPatch(null, null, Map.of("tag", "x")))
+            .getBody();
+
+    assertEquals("Doc 1", patched.getTitle());
+    assertEquals("body", patched.getContent());
+    assertEquals(Map.of("tag", "x"), patched.getMetadata());
+    assertNull(indexService.lastUpdatedId);
+    assertEquals(created.getId(), indexService.lastRefreshedId);
+  }
+
+  @Test
+  void patchDocument_reindexesWhenContentChanges() {
+    Document created = controller.createDocument(makeDocument("Doc 1", "body")).getBody();
+    assertNotNull(created);
+    String originalHash = created.getContentHash();
+
+    Document patched =
+        controller
+            .patchDocument(created.getId(), new DocumentPatch(null, "new body", null))
+            .getBody();
+
+    assertEquals("new body", patched.getContent());
+    assertNotEquals(originalHash, patched.getContentHash());
+    assertEquals(created.getId(), indexService.lastUpdatedId);
+  }
+
   @Test
   void deleteDocument_removesFromRepositoryAndIndex() {
     Document created = controller.createDocument(makeDocument("Doc 1", "body")).getBody();
@@ -148,10 +198,11 @@ class DocumentControllerTest {
   private static class RecordingIndexService extends IndexService {
     UUID lastIndexedId;
     UUID lastUpdatedId;
+    UUID lastRefreshedId;
     String deletedVectorId;
 
     RecordingIndexService() {
-      super(null, null, null);
+      super(null, null, null, null, null);
     }
 
     @Override
@@ -170,6 +221,12 @@ class DocumentControllerTest {
       return indexDocument(document);
     }
 
+    @Override
+    public Document refreshDocumentAttributes(Document document) {
+      lastRefreshedId = document.getId();
+      return document;
+    }
+
     @Override
     public boolean deleteDocumentVector(String vectorId) {
       deletedVectorId = vectorId;
@@ -181,7 +238,7 @@ class DocumentControllerTest {
 
     @Override
     public List<Map.Entry<UUID, Double>> findSimilarDocuments(
-        List<Double> queryVector, int limit, double minScore) {
+        Embedding queryVector, int limit, double minScore) {
       return List.of(new AbstractMap.SimpleEntry<>(UUID.randomUUID(), 1.0));
     }
   }
@@ -99,7 +99,7 @@ class SearchControllerTest {
     private final List<SearchResult> cannedResults;
 
     StubSearchService(List<SearchResult> cannedResults) {
-      super(null, null, null, new io.github.semanticsearch.config.SearchProperties());
+      super(null, null, null, new io.github.semanticsearch.config.SearchProperties(), null);
       this.cannedResults = cannedResults;
     }
 
@@ -122,7 +122,7 @@ class SearchControllerTest {
     boolean initializeCalled = false;
 
     RecordingIndexService() {
-      super(null, null, null);
+      super(null, null, null, null, null);
     }
 
     @Override
@@ -0,0 +1,54 @@
+package io.github.semanticsearch.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class EmbeddingTest {
+
+  @Test
+  void copiesInputAndExposesDefensiveArrays() {
+    float[] source = {1f, 2f, 3f};
+    Embedding embedding = Embedding.of(source);
+    source[0] = 42f;
+
+    assertEquals(1f, embedding.get(0));
+    embedding.toArray()[1] = 42f;
+    assertEquals(2f, embedding.get(1));
+    assertEquals(3, embedding.dimensions());
+  }
+
+  @Test
+  void convertsFromProviderListAndComputesCosine() {
+    Embedding a = Embedding.of(List.of(1.0, 0.0));
+    Embedding b = Embedding.of(new double[] {1.0, 1.0});
+
+    assertEquals(Math.sqrt(0.5), a.cosineSimilarity(b), 1e-6);
+    assertEquals(1.0, a.cosineSimilarity(a), 1e-6);
+    assertEquals(0.0, a.cosineSimilarity(Embedding.EMPTY));
+    assertEquals(0.0, a.cosineSimilarity(Embedding.of(new float[] {1f, 0f, 0f})));
+  }
+
+  @Test
+  void emptyInputsCollapseToEmpty() {
+    assertSame(Embedding.EMPTY, Embedding.of(new float[0]));
+    assertSame(Embedding.EMPTY, Embedding.of(List.of()));
+    assertTrue(Embedding.EMPTY.isEmpty());
+  }
+
+  @Test
+  void roundTripsThroughJson() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    Embedding original = Embedding.of(new float[] {0.25f, -0.5f, 0.75f});
+
+    String json = mapper.writeValueAsString(original);
+    Embedding restored = mapper.readValue(json, Embedding.class);
+
+    assertEquals(original, restored);
+    assertEquals(original.hashCode(), restored.hashCode());
+  }
+}
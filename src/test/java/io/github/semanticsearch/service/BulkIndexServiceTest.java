@@ -0,0 +1,210 @@
+package io.github.semanticsearch.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.semanticsearch.cache.IndexGeneration;
+import io.github.semanticsearch.model.Document;
+import io.github.semanticsearch.repository.DocumentRepository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+class BulkIndexServiceTest {
+
+  @Autowired private BulkIndexService bulkIndexService;
+
+  @Autowired private DocumentRepository documentRepository;
+
+  @Autowired private IndexGeneration indexGeneration;
+
+  @Test
+  void successfulItemsAreMarkedIndexedWithoutOverwritingConcurrentEdits() {
+    Document document = save("Original title", "bulk indexed while being edited");
+    // Edited after the bulk operation was queued
+    document.setTitle("Edited title");
+    documentRepository.save(document);
+    long before = indexGeneration.current();
+
+    afterBulk(List.of(document), List.of(201));
+
+    Document stored = documentRepository.findById(document.getId()).orElseThrow();
+    assertTrue(stored.isIndexed());
+    assertEquals(document.getId().toString(), stored.getVectorId());
+    assertEquals("Edited title", stored.getTitle());
+    assertTrue(indexGeneration.current() > before);
+  }
+
+  @Test
+  void partialFailureOnlyMarksTheFailedItemsUnindexed() {
+    Document indexed = save("Indexed", "bulk item that succeeds");
+    Document failed = save("Failed", "bulk item that fails");
+    failed.setIndexed(true);
+    documentRepository.save(failed);
+
+    afterBulk(List.of(indexed, failed), List.of(201, 500));
+
+    assertTrue(documentRepository.findById(indexed.getId()).orElseThrow().isIndexed());
+    assertFalse(documentRepository.findById(failed.getId()).orElseThrow().isIndexed());
+  }
+
+  @Test
+  void versionConflictCountsAsIndexed() {
+    Document document = save("Conflict", "a newer version is already indexed");
+
+    afterBulk(List.of(document), List.of(409));
+
+    Document stored = documentRepository.findById(document.getId()).orElseThrow();
+    assertTrue(stored.isIndexed());
+    assertEquals(document.getId().toString(), stored.getVectorId());
+  }
+
+  @Test
+  void failedRequestMarksEveryDocumentUnindexed() {
+    Document document = save("Unreachable", "bulk request that never reached the cluster");
+    document.setIndexed(true);
+    documentRepository.save(document);
+
+    bulkIndexService
+        .new IndexingListener()
+        .afterBulk(1L, null, pending(List.of(document)), new IOException("connection refused"));
+
+    assertFalse(documentRepository.findById(document.getId()).orElseThrow().isIndexed());
+  }
+
+  @Test
+  void generationAdvancesOnlyAfterARefreshingBulkRequestReturns() {
+    Document document = save("Visible", "searchable before the generation advances");
+    RecordingTransport transport = new RecordingTransport();
+    BulkIndexService target = AopTestUtils.getTargetObject(bulkIndexService);
+    ElasticsearchClient client =
+        (ElasticsearchClient) ReflectionTestUtils.getField(target, "elasticsearchClient");
+    ReflectionTestUtils.setField(target, "elasticsearchClient", new ElasticsearchClient(transport));
+    ReflectionTestUtils.setField(target, "stubEnabled", false);
+    try {
+      target.start();
+      target.submit(document);
+      target.close();
+    } finally {
+      ReflectionTestUtils.setField(target, "elasticsearchClient", client);
+      ReflectionTestUtils.setField(target, "stubEnabled", true);
+      ReflectionTestUtils.setField(target, "ingester", null);
+    }
+
+    assertEquals(Refresh.WaitFor, transport.request.refresh());
+    assertTrue(indexGeneration.current() > transport.generationDuringRequest);
+    assertTrue(documentRepository.findById(document.getId()).orElseThrow().isIndexed());
+  }
+
+  private void afterBulk(List<Document> documents, List<Integer> statuses) {
+    List<BulkResponseItem> items = new ArrayList<>();
+    for (int i = 0; i < documents.size(); i++) {
+      String id = documents.get(i).getId().toString();
+      int status = statuses.get(i);
+      items.add(
+          BulkResponseItem.of(
+              item -> {
+                item.operationType(OperationType.Index).index("semantic-search").id(id);
+                item.status(status);
+                if (status >= 300) {
+                  item.error(e -> e.type("error").reason("status " + status));
+                }
+                return item;
+              }));
+    }
+    BulkResponse response =
+        BulkResponse.of(
+            r -> r.errors(statuses.stream().anyMatch(s -> s >= 300)).took(1).items(items));
+    bulkIndexService.new IndexingListener().afterBulk(1L, null, pending(documents), response);
+  }
+
+  private static List<BulkIndexService.PendingVector> pending(List<Document> documents) {
+    return documents.stream()
+        .map(d -> new BulkIndexService.PendingVector(d.getId(), IndexService.vectorIdOf(d)))
+        .toList();
+  }
+
+  private Document save(String title, String content) {
+    Document document = new Document();
+    document.setTitle(title);
+    document.setContent(content);
+    document.setContentHash(UUID.randomUUID().toString());
+    return documentRepository.save(document);
+  }
+
+  /**
+   * Transport that answers every bulk request with a created item per operation, recording the
+   * request and the index generation while it is in flight.
+   */
+  private class RecordingTransport implements ElasticsearchTransport {
+
+    private BulkRequest request;
+    private long generationDuringRequest;
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(
+        RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+        RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+      this.request = (BulkRequest) request;
+      this.generationDuringRequest = indexGeneration.current();
+      List<BulkResponseItem> items =
+          this.request.operations().stream()
+              .map(
+                  operation ->
+                      BulkResponseItem.of(
+                          item ->
+                              item.operationType(OperationType.Index)
+                                  .index(operation.index().index())
+                                  .id(operation.index().id())
+                                  .status(201)))
+              .toList();
+      return CompletableFuture.completedFuture(
+          (ResponseT) BulkResponse.of(r -> r.errors(false).took(1).items(items)));
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+      return new JacksonJsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+      return null;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,128 @@
+package io.github.semanticsearch.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.semanticsearch.model.Embedding;
+
+class EmbeddingBatcherTest {
+
+  private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+
+  private List<Embedding> fakeProvider(List<String> texts) {
+    calls.add(texts);
+    return texts.stream().map(t -> Embedding.of(new float[] {t.length(), 1f})).toList();
+  }
+
+  @Test
+  void coalescesConcurrentRequestsIntoOneCall() throws Exception {
+    try (EmbeddingBatcher batcher =
+        new EmbeddingBatcher(this::fakeProvider, Duration.ofMillis(200), 100, 4)) {
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Embedding>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        String text = "x".repeat(i + 1);
+        results.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return batcher.embed(text);
+                }));
+      }
+      start.countDown();
+      for (int i = 0; i < 8; i++) {
+        assertEquals(i + 1, results.get(i).get(5, TimeUnit.SECONDS).get(0));
+      }
+      pool.shutdown();
+    }
+
+    assertEquals(1, calls.size());
+    assertEquals(8, calls.get(0).size());
+  }
+
+  @Test
+  void sendsAsSoonAsBatchIsFull() throws Exception {
+    try (EmbeddingBatcher batcher =
+        new EmbeddingBatcher(this::fakeProvider, Duration.ofSeconds(30), 2, 4)) {
+      CompletableFuture<Embedding> first = batcher.submit("a");
+      CompletableFuture<Embedding> second = batcher.submit("bb");
+
+      assertEquals(1f, first.get(5, TimeUnit.SECONDS).get(0));
+      assertEquals(2f, second.get(5, TimeUnit.SECONDS).get(0));
+    }
+    assertEquals(List.of(List.of("a", "bb")), calls);
+  }
+
+  @Test
+  void deduplicatesIdenticalTexts() throws Exception {
+    try (EmbeddingBatcher batcher =
+        new EmbeddingBatcher(this::fakeProvider, Duration.ofMillis(50), 10, 4)) {
+      CompletableFuture<Embedding> first = batcher.submit("same");
+      CompletableFuture<Embedding> second = batcher.submit("same");
+
+      assertSame(first, second);
+      assertEquals(4f, first.get(5, TimeUnit.SECONDS).get(0));
+    }
+    assertEquals(List.of(List.of("same")), calls);
+  }
+
+  @Test
+  void propagatesProviderFailureToEveryCaller() {
+    try (EmbeddingBatcher batcher =
+        new EmbeddingBatcher(
+            texts -> {
+              throw new IllegalStateException("provider down");
+            },
+            Duration.ofMillis(1),
+            10,
+            4)) {
+      IllegalStateException error =
+          assertThrows(IllegalStateException.class, () -> batcher.embed("text"));
+      assertEquals("provider down", error.getMessage());
+    }
+  }
+
+  @Test
+  void runsAtMostTheConfiguredNumberOfBatchesAtOnce() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    try (EmbeddingBatcher batcher =
+        new EmbeddingBatcher(
+            texts -> {
+              peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+              try {
+                Thread.sleep(20);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              running.decrementAndGet();
+              return fakeProvider(texts);
+            },
+            Duration.ofSeconds(30),
+            1,
+            2)) {
+      List<CompletableFuture<Embedding>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(batcher.submit("text-" + i));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    }
+
+    assertEquals(8, calls.size());
+    assertTrue(peak.get() <= 2, "peak concurrency was " + peak.get());
+  }
+}
@@ -2,15 +2,37 @@ package io.github.semanticsearch.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.theokanning.openai.embedding.EmbeddingRequest;
+import com.theokanning.openai.embedding.EmbeddingResult;
+import com.theokanning.openai.service.OpenAiService;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+
+import io.github.semanticsearch.model.Embedding;
+import io.github.semanticsearch.model.StoredEmbedding;
+import io.github.semanticsearch.repository.StoredEmbeddingRepository;
+import io.github.semanticsearch.util.ContentHasher;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -19,24 +41,153 @@ class EmbeddingServiceTest {
 
   @Autowired private EmbeddingService embeddingService;
 
+  @Autowired private StoredEmbeddingRepository storedEmbeddingRepository;
+
   @Value("${embedding.stub-dimensions}")
   private int stubDimensions;
 
   @Test
   void stubEmbeddingIsDeterministicAndSized() {
-    List<Double> first = embeddingService.embed("semantic search works");
-    List<Double> second = embeddingService.embed("semantic search works");
+    Embedding first = embeddingService.embed("semantic search works");
+    Embedding second = embeddingService.embed("semantic search works");
 
     assertFalse(first.isEmpty());
-    assertEquals(stubDimensions, first.size());
+    assertEquals(stubDimensions, first.dimensions());
     assertEquals(first, second, "Stub embeddings should be deterministic for the same input");
   }
 
   @Test
   void differentInputsYieldDifferentVectors() {
-    List<Double> alpha = embeddingService.embed("alpha");
-    List<Double> beta = embeddingService.embed("beta");
+    Embedding alpha = embeddingService.embed("alpha");
+    Embedding beta = embeddingService.embed("beta");
 
     assertNotEquals(alpha, beta, "Distinct inputs should not map to the same stub vector");
   }
+
+  @Test
+  void embedAllKeepsInputOrderAndMatchesSingleEmbeddings() {
+    List<String> texts = List.of("gamma", "delta", "gamma", "epsilon");
+
+    List<Embedding> embeddings = embeddingService.embedAll(texts);
+
+    assertEquals(texts.size(), embeddings.size());
+    for (int i = 0; i < texts.size(); i++) {
+      assertEquals(embeddingService.embed(texts.get(i)), embeddings.get(i));
+    }
+    assertEquals(embeddings.get(0), embeddings.get(2));
+  }
+
+  @Test
+  void generatedEmbeddingsArePersistedByContentHashAndModel() {
+    Embedding embedding = embeddingService.embed("persist me");
+
+    StoredEmbedding.Key key =
+        new StoredEmbedding.Key(ContentHasher.sha256("persist me"), "stub", stubDimensions);
+    assertEquals(
+        embedding,
+        storedEmbeddingRepository.findById(key).map(StoredEmbedding::toEmbedding).orElseThrow());
+  }
+
+  @Test
+  void storedEmbeddingsAreServedWithoutRegenerating() {
+    float[] values = new float[stubDimensions];
+    values[0] = 1f;
+    Embedding stored = Embedding.of(values);
+    storedEmbeddingRepository.save(
+        new StoredEmbedding(
+            new StoredEmbedding.Key(ContentHasher.sha256("already stored"), "stub", stubDimensions),
+            stored));
+
+    assertEquals(List.of(stored), embeddingService.embedAll(List.of("already stored")));
+  }
+
+  @Test
+  void storedEmbeddingsAreFoundWhateverTheirDimensions() {
+    // The model returned a different size than the configured dimensions
+    Embedding stored = Embedding.of(new float[] {0f, 1f, 0f});
+    storedEmbeddingRepository.save(
+        new StoredEmbedding(
+            new StoredEmbedding.Key(ContentHasher.sha256("other dimensions"), "stub", 3), stored));
+
+    assertEquals(List.of(stored), embeddingService.embedAll(List.of("other dimensions")));
+  }
+
+  @Test
+  void fallbackEmbeddingsAreNeitherCachedNorStored() {
+    OpenAiService failing =
+        new OpenAiService("test-key") {
+          @Override
+          public EmbeddingResult createEmbeddings(EmbeddingRequest request) {
+            throw new IllegalStateException("provider down");
+          }
+        };
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    EmbeddingService service =
+        new EmbeddingService(
+            failing,
+            cacheManager,
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build()),
+            CircuitBreakerRegistry.ofDefaults(),
+            storedEmbeddingRepository);
+    ReflectionTestUtils.setField(service, "embeddingModel", "test-model");
+    ReflectionTestUtils.setField(service, "stubDimensions", stubDimensions);
+
+    String text = "provider outage";
+    assertEquals(stubDimensions, service.embed(text).dimensions());
+
+    assertNull(cacheManager.getCache(EmbeddingService.CACHE_NAME).get(service.cacheKey(text)));
+    assertTrue(
+        storedEmbeddingRepository.findAll().stream()
+            .noneMatch(row -> row.getId().getModel().equals("test-model")));
+  }
+
+  @Test
+  void failedCoalescedBatchCountsOnceAgainstTheCircuitBreaker() throws Exception {
+    AtomicInteger providerCalls = new AtomicInteger();
+    OpenAiService failing =
+        new OpenAiService("test-key") {
+          @Override
+          public EmbeddingResult createEmbeddings(EmbeddingRequest request) {
+            providerCalls.incrementAndGet();
+            throw new IllegalStateException("provider down");
+          }
+        };
+    CircuitBreakerRegistry breakers = CircuitBreakerRegistry.ofDefaults();
+    EmbeddingService service =
+        new EmbeddingService(
+            failing,
+            new ConcurrentMapCacheManager(),
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build()),
+            breakers,
+            storedEmbeddingRepository);
+    ReflectionTestUtils.setField(service, "embeddingModel", "test-model");
+    ReflectionTestUtils.setField(service, "stubDimensions", stubDimensions);
+    ReflectionTestUtils.setField(service, "batcherEnabled", true);
+    ReflectionTestUtils.setField(service, "batcherWindowMs", 200L);
+    ReflectionTestUtils.setField(service, "batcherMaxItems", 64);
+    ReflectionTestUtils.setField(service, "batcherMaxConcurrentBatches", 1);
+    service.startBatcher();
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Embedding>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      String text = "coalesced failure " + i;
+      results.add(
+          pool.submit(
+              () -> {
+                start.await();
+                return service.embed(text);
+              }));
+    }
+    start.countDown();
+    for (Future<Embedding> result : results) {
+      assertEquals(stubDimensions, result.get(5, TimeUnit.SECONDS).dimensions());
+    }
+    pool.shutdown();
+    service.stopBatcher();
+
+    assertEquals(1, providerCalls.get());
+    assertEquals(1, breakers.circuitBreaker("embedding").getMetrics().getNumberOfFailedCalls());
+  }
 }
@@ -6,6 +6,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.AbstractMap;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -16,10 +17,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import io.github.semanticsearch.cache.IndexGeneration;
 import io.github.semanticsearch.model.Document;
 import io.github.semanticsearch.repository.DocumentRepository;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+
 @SpringBootTest
 @ActiveProfiles("test")
 @ExtendWith(SpringExtension.class)
@@ -31,6 +41,8 @@ class IndexServiceTest {
 
   @Autowired private DocumentRepository documentRepository;
 
+  @Autowired private IndexGeneration indexGeneration;
+
   @Test
   void indexesAndFindsSimilarDocumentsInStubMode() {
     Document document = new Document();
@@ -53,6 +65,128 @@ class IndexServiceTest {
     assertTrue(similar.get(0).getValue() > 0.0);
   }
 
+  @Test
+  void indexWritesAdvanceTheGeneration() {
+    Document document = new Document();
+    document.setTitle("Generation");
+    document.setContent("every index write invalidates cached searches");
+    document.setContentHash(hash(document.getContent()));
+
+    long before = indexGeneration.current();
+    Document indexed = indexService.indexDocument(documentRepository.save(document));
+    long afterIndex = indexGeneration.current();
+    indexService.deleteDocumentVector(indexed.getVectorId());
+
+    assertTrue(afterIndex > before);
+    assertTrue(indexGeneration.current() > afterIndex);
+  }
+
+  @Test
+  void reindexingOverwritesTheVectorStoredUnderTheDocumentId() {
+    Document document = new Document();
+    document.setTitle("Upsert");
+    document.setContent("first version of the upserted document");
+    document.setContentHash(hash(document.getContent()));
+    Document indexed = indexService.indexDocument(documentRepository.save(document));
+
+    indexed.setContent("second version of the upserted document");
+    indexed.setContentHash(hash(indexed.getContent()));
+    Document updated = indexService.updateDocumentIndex(documentRepository.save(indexed));
+
+    assertEquals(updated.getId().toString(), updated.getVectorId());
+    long copies =
+        indexService
+            .findSimilarDocuments(embeddingService.embed(updated.getContent()), 50, 0.0)
+            .stream()
+            .filter(entry -> entry.getKey().equals(updated.getId()))
+            .count();
+    assertEquals(1, copies);
+  }
+
+  @Test
+  void vectorSourceCarriesTheDenormalizedDocument() {
+    Document document = new Document();
+    document.setTitle("Snapshot");
+    document.setContent("x".repeat(2000));
+    document.setContentHash(hash(document.getContent()));
+    document.setMetadata(new HashMap<>(Map.of("category", "tech")));
+    Document saved = documentRepository.save(document);
+
+    Map<String, Object> source =
+        indexService.toVectorSource(saved, embeddingService.embed(saved.getContent()));
+
+    assertEquals(saved.getId().toString(), source.get("document_id"));
+    assertEquals("Snapshot", source.get("title"));
+    assertEquals(500, ((String) source.get("snippet")).length());
+    assertEquals(Map.of("category", "tech"), source.get("metadata"));
+    assertNotNull(source.get("created_at"));
+  }
+
+  @Test
+  void versionConflictKeepsTheStoredDocument() throws Exception {
+    Document document = new Document();
+    document.setTitle("Original title");
+    document.setContent("indexed after a newer version was stored");
+    document.setContentHash(hash(document.getContent()));
+    Document stale = documentRepository.save(document);
+    Document newer = documentRepository.findById(stale.getId()).orElseThrow();
+    newer.setTitle("Edited title");
+    documentRepository.save(newer);
+
+    IndexService target = AopTestUtils.getTargetObject(indexService);
+    Object client = ReflectionTestUtils.getField(target, "elasticsearchClient");
+    ReflectionTestUtils.setField(target, "elasticsearchClient", new ConflictingClient());
+    ReflectionTestUtils.setField(target, "stubEnabled", false);
+    Document indexed;
+    try {
+      indexed = indexService.indexDocument(stale);
+    } finally {
+      ReflectionTestUtils.setField(target, "elasticsearchClient", client);
+      ReflectionTestUtils.setField(target, "stubEnabled", true);
+    }
+
+    Document stored = documentRepository.findById(stale.getId()).orElseThrow();
+    assertEquals("Edited title", indexed.getTitle());
+    assertEquals("Edited title", stored.getTitle());
+    assertTrue(stored.isIndexed());
+    assertEquals(stale.getId().toString(), stored.getVectorId());
+  }
+
+  @Test
+  void vectorHitRebuildsADocumentFromItsSnapshotFields() {
+    UUID id = UUID.randomUUID();
+    IndexService.VectorHit hit =
+        new IndexService.VectorHit(
+            id.toString(), "Title", "snippet", Map.of("k", "v"), 1_000L, 2_000L);
+
+    Document snapshot = hit.toSnapshot();
+
+    assertNotNull(snapshot);
+    assertEquals(id, snapshot.getId());
+    assertEquals("snippet", snapshot.getContent());
+    assertEquals(Map.of("k", "v"), snapshot.getMetadata());
+    assertEquals(2_000L, snapshot.getUpdatedAt().toEpochMilli());
+    assertNull(
+        new IndexService.VectorHit(id.toString(), null, null, null, null, null).toSnapshot());
+  }
+
+  /** Client whose index writes are all rejected because a newer version is stored. */
+  private static class ConflictingClient extends ElasticsearchClient {
+    ConflictingClient() {
+      super(null);
+    }
+
+    @Override
+    public <T> IndexResponse index(IndexRequest<T> request) {
+      throw new ElasticsearchException(
+          "index",
+          ErrorResponse.of(
+              r ->
+                  r.status(409)
+                      .error(e -> e.type("version_conflict_engine_exception").reason("stale"))));
+    }
+  }
+
   private String hash(String content) {
     try {
       MessageDigest digest = MessageDigest.getInstance("SHA-256");
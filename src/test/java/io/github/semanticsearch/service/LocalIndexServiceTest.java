@@ -0,0 +1,62 @@
+package io.github.semanticsearch.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.semanticsearch.config.VectorIndexProperties;
+import io.github.semanticsearch.model.Embedding;
+
+class LocalIndexServiceTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void restoresTheSnapshot() {
+    VectorIndexProperties properties = properties();
+    LocalIndexService service = new LocalIndexService(properties);
+    service.restore();
+    UUID documentId = UUID.randomUUID();
+    service.add("v1", documentId, Embedding.of(new float[] {1f, 0f}), Map.of());
+    service.close();
+
+    LocalIndexService restored = new LocalIndexService(properties);
+    restored.restore();
+
+    Embedding query = Embedding.of(new float[] {1f, 0f});
+    assertEquals(documentId, restored.search(query, 1, 0.5, null).get(0).documentId());
+    restored.close();
+  }
+
+  @Test
+  void unreadableSnapshotFailsStartupWithoutBeingOverwritten() throws IOException {
+    VectorIndexProperties properties = properties();
+    LocalIndexService service = new LocalIndexService(properties);
+    service.restore();
+    service.add("v1", UUID.randomUUID(), Embedding.of(new float[] {1f, 0f}), Map.of());
+    service.close();
+    Path snapshot = Path.of(properties.getSnapshotPath());
+    byte[] corrupt = Files.readAllBytes(snapshot);
+    corrupt[8] ^= 0x7f; // dimensions, covered by the header checksum
+    Files.write(snapshot, corrupt);
+
+    assertThrows(IllegalStateException.class, new LocalIndexService(properties)::restore);
+
+    assertArrayEquals(corrupt, Files.readAllBytes(snapshot));
+  }
+
+  private VectorIndexProperties properties() {
+    VectorIndexProperties properties = new VectorIndexProperties();
+    properties.setBackend(VectorIndexProperties.Backend.FLAT);
+    properties.setVectorsPerPage(4);
+    properties.setSnapshotPath(directory.resolve("index.snapshot").toString());
+    return properties;
+  }
+}
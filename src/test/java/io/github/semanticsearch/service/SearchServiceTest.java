@@ -11,6 +11,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -18,7 +19,12 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import io.github.semanticsearch.model.Document;
 import io.github.semanticsearch.model.SearchRequest;
 import io.github.semanticsearch.model.SearchResult;
+import io.github.semanticsearch.model.StoredEmbedding;
 import io.github.semanticsearch.repository.DocumentRepository;
+import io.github.semanticsearch.repository.StoredEmbeddingRepository;
+import io.github.semanticsearch.util.ContentHasher;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -31,6 +37,13 @@ class SearchServiceTest {
 
   @Autowired private DocumentRepository documentRepository;
 
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private StoredEmbeddingRepository storedEmbeddingRepository;
+
+  @Value("${embedding.stub-dimensions}")
+  private int stubDimensions;
+
   @Test
   void searchReturnsHighlightsAndMetadata() {
     Document document = new Document();
@@ -61,6 +74,40 @@ class SearchServiceTest {
     assertFalse(first.getHighlights().isEmpty());
   }
 
+  @Test
+  void repeatedEquivalentSearchIsServedFromCache() {
+    Document document = new Document();
+    document.setTitle("Cache Demo");
+    document.setContent("cached query results skip the vector search");
+    document.setContentHash(hash(document.getContent()));
+    indexService.indexDocument(documentRepository.save(document));
+
+    String padded = "  " + document.getContent().replace(" ", "   ") + " ";
+    SearchRequest request = SearchRequest.builder().query(padded).limit(2).minScore(0.1).build();
+    SearchRequest equivalent =
+        SearchRequest.builder().query(document.getContent()).limit(2).minScore(0.1).build();
+
+    double hitsBefore = cacheHits();
+    List<SearchResult> first = searchService.search(request);
+    List<SearchResult> second = searchService.search(equivalent);
+
+    assertFalse(first.isEmpty());
+    assertEquals(first.get(0).getId(), second.get(0).getId());
+    assertEquals(first.get(0).getScore(), second.get(0).getScore());
+    assertEquals(hitsBefore + 1, cacheHits());
+    // The search that filled the cache embedded the normalized query, not the padded one
+    assertTrue(storedEmbeddingRepository.findById(storeKey(document.getContent())).isPresent());
+    assertFalse(storedEmbeddingRepository.findById(storeKey(padded)).isPresent());
+  }
+
+  private StoredEmbedding.Key storeKey(String text) {
+    return new StoredEmbedding.Key(ContentHasher.sha256(text), "stub", stubDimensions);
+  }
+
+  private double cacheHits() {
+    return meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count();
+  }
+
   private String hash(String content) {
     try {
       MessageDigest digest = MessageDigest.getInstance("SHA-256");
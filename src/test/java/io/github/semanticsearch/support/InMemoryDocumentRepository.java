@@ -68,6 +68,42 @@ public class InMemoryDocumentRepository implements DocumentRepository {
         .findFirst();
   }
 
+  @Override
+  public List<String> findVectorIdsByIdIn(Collection<UUID> ids) {
+    return ids.stream()
+        .map(store::get)
+        .filter(doc -> doc != null && doc.getVectorId() != null)
+        .map(Document::getVectorId)
+        .toList();
+  }
+
+  @Override
+  public int markIndexed(Collection<UUID> ids) {
+    int updated = 0;
+    for (UUID id : ids) {
+      Document doc = store.get(id);
+      if (doc != null) {
+        doc.setIndexed(true);
+        doc.setVectorId(id.toString());
+        updated++;
+      }
+    }
+    return updated;
+  }
+
+  @Override
+  public int markNotIndexed(Collection<UUID> ids) {
+    int updated = 0;
+    for (UUID id : ids) {
+      Document doc = store.get(id);
+      if (doc != null) {
+        doc.setIndexed(false);
+        updated++;
+      }
+    }
+    return updated;
+  }
+
   @Override
   public <S extends Document> S save(S entity) {
     if (entity.getId() == null) {
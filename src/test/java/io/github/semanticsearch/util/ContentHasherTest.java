@@ -0,0 +1,15 @@
+package io.github.semanticsearch.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ContentHasherTest {
+
+  @Test
+  void hashesUtf8ContentWithSha256() {
+    assertEquals("47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hSuFU=", ContentHasher.sha256(""));
+    assertEquals(ContentHasher.sha256("naïve"), ContentHasher.sha256("naïve"));
+    assertNotEquals(ContentHasher.sha256("naïve"), ContentHasher.sha256("naive"));
+  }
+}
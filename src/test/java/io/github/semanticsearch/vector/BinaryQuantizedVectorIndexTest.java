@@ -0,0 +1,67 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryQuantizedVectorIndexTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void hammingDistanceCountsDimensionsOnOppositeSides() {
+    BinaryQuantizer quantizer = BinaryQuantizer.signs(70);
+    float[] vector = new float[70];
+    for (int i = 0; i < 70; i++) {
+      vector[i] = i % 2 == 0 ? 1f : -1f;
+    }
+    long[] codes = new long[BinaryQuantizer.words(70)];
+    quantizer.encode(vector, codes, 0);
+    vector[3] = -vector[3];
+    vector[68] = -vector[68];
+
+    assertEquals(2, codes.length);
+    assertEquals(0, BinaryQuantizer.distance(codes, codes, 0));
+    assertEquals(2, BinaryQuantizer.distance(quantizer.encode(vector), codes, 0));
+  }
+
+  @Test
+  void rerankedResultsFindTheNearestStoredVector() {
+    BinaryQuantizedVectorIndex index =
+        new BinaryQuantizedVectorIndex(64, 256, directory.resolve("vectors"), 500, 20);
+    Random random = new Random(11);
+    float[][] stored = new float[2000][];
+    for (int i = 0; i < stored.length; i++) {
+      stored[i] = randomVector(random, 64);
+      index.add("v" + i, UUID.randomUUID(), stored[i]);
+    }
+
+    double recall = 0;
+    for (int q = 0; q < 20; q++) {
+      float[] query = stored[random.nextInt(stored.length)].clone();
+      for (int i = 0; i < query.length; i++) {
+        query[i] += (float) (0.5 * random.nextGaussian());
+      }
+      recall += index.recall(query, 10);
+      VectorMatch exactBest = index.searchExact(query, 1, -1f).get(0);
+      VectorMatch best = index.search(query, 1, -1f).get(0);
+      assertEquals(exactBest.documentId(), best.documentId());
+      assertEquals(exactBest.score(), best.score(), 1e-6f);
+    }
+    assertTrue(recall / 20 >= 0.6, "recall was " + recall / 20);
+    index.close();
+  }
+
+  private static float[] randomVector(Random random, int dimensions) {
+    float[] vector = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+}
@@ -0,0 +1,78 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class DocumentIdRegistryTest {
+
+  @Test
+  void resolvesEveryDirection() {
+    DocumentIdRegistry registry = new DocumentIdRegistry();
+    UUID doc = UUID.randomUUID();
+
+    assertEquals(DocumentIdRegistry.ABSENT, registry.put(0, "v0", doc));
+
+    assertEquals(0, registry.ordinalOf("v0"));
+    assertEquals(0, registry.ordinalOfDocument(doc));
+    assertEquals(doc, registry.documentId(0));
+    assertEquals("v0", registry.vectorId(0));
+  }
+
+  @Test
+  void replacingVectorIdReturnsPreviousOrdinal() {
+    DocumentIdRegistry registry = new DocumentIdRegistry();
+    UUID doc = UUID.randomUUID();
+    registry.put(0, "v0", doc);
+
+    assertEquals(0, registry.put(1, "v0", doc));
+    assertEquals(1, registry.ordinalOf("v0"));
+    assertEquals(1, registry.ordinalOfDocument(doc));
+    assertNull(registry.vectorId(0));
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  void removeKeepsDocumentSlotReadable() {
+    DocumentIdRegistry registry = new DocumentIdRegistry();
+    UUID doc = UUID.randomUUID();
+    registry.put(0, "v0", doc);
+
+    assertEquals(0, registry.remove("v0"));
+    assertEquals(DocumentIdRegistry.ABSENT, registry.remove("v0"));
+    assertEquals(DocumentIdRegistry.ABSENT, registry.ordinalOfDocument(doc));
+    assertEquals(doc, registry.documentId(0));
+  }
+
+  @Test
+  void remapsAfterCompaction() {
+    DocumentIdRegistry registry = new DocumentIdRegistry();
+    UUID[] docs = new UUID[100];
+    for (int i = 0; i < docs.length; i++) {
+      docs[i] = UUID.randomUUID();
+      registry.put(i, "v" + i, docs[i]);
+    }
+    int[] remap = new int[docs.length];
+    int next = 0;
+    for (int i = 0; i < docs.length; i++) {
+      if (i % 2 == 0) {
+        registry.remove("v" + i);
+        remap[i] = -1;
+      } else {
+        remap[i] = next++;
+      }
+    }
+
+    registry.remap(remap);
+
+    assertEquals(50, registry.size());
+    for (int i = 1; i < docs.length; i += 2) {
+      int ordinal = registry.ordinalOf("v" + i);
+      assertEquals(i / 2, ordinal);
+      assertEquals(docs[i], registry.documentId(ordinal));
+      assertEquals(ordinal, registry.ordinalOfDocument(docs[i]));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class FlatVectorIndexTest {
+
+  @Test
+  void returnsClosestDocumentsFirst() {
+    FlatVectorIndex index = new FlatVectorIndex(2);
+    UUID east = UUID.randomUUID();
+    UUID north = UUID.randomUUID();
+    UUID northEast = UUID.randomUUID();
+    index.add("v-east", east, new float[] {1f, 0f});
+    index.add("v-north", north, new float[] {0f, 1f});
+    index.add("v-north-east", northEast, new float[] {1f, 1f});
+
+    List<VectorMatch> matches = index.search(new float[] {2f, 0.1f}, 2, 0f);
+
+    assertEquals(2, matches.size());
+    assertEquals(east, matches.get(0).documentId());
+    assertEquals(northEast, matches.get(1).documentId());
+  }
+
+  @Test
+  void excludesDocumentWithoutShrinkingResults() {
+    FlatVectorIndex index = new FlatVectorIndex(2);
+    UUID source = UUID.randomUUID();
+    UUID near = UUID.randomUUID();
+    UUID far = UUID.randomUUID();
+    index.add("v-source", source, new float[] {1f, 0f});
+    index.add("v-near", near, new float[] {1f, 0.2f});
+    index.add("v-far", far, new float[] {1f, 1f});
+
+    List<VectorMatch> matches = index.search(new float[] {1f, 0f}, 2, 0f, source);
+
+    assertEquals(List.of(near, far), matches.stream().map(VectorMatch::documentId).toList());
+  }
+
+  @Test
+  void filterIsAppliedBeforeTheTopK() {
+    FlatVectorIndex index = new FlatVectorIndex(2);
+    UUID closest = UUID.randomUUID();
+    UUID news = UUID.randomUUID();
+    index.add("v-closest", closest, new float[] {1f, 0f}, Map.of("category", "blog"));
+    index.add("v-news", news, new float[] {0f, 1f}, Map.of("category", "News"));
+
+    List<VectorMatch> matches =
+        index.search(
+            new float[] {1f, 0f}, 1, -1f, null, VectorFilter.of(Map.of("category", "news")));
+
+    assertEquals(List.of(news), matches.stream().map(VectorMatch::documentId).toList());
+  }
+
+  @Test
+  void replacesAndRemovesByVectorId() {
+    FlatVectorIndex index = new FlatVectorIndex(2);
+    UUID doc = UUID.randomUUID();
+    index.add("v1", doc, new float[] {1f, 0f});
+    index.add("v1", doc, new float[] {0f, 1f});
+
+    assertEquals(1, index.size());
+    assertEquals(1f, index.search(new float[] {0f, 1f}, 1, 0f).get(0).score(), 1e-6f);
+
+    assertTrue(index.remove("v1"));
+    assertFalse(index.remove("v1"));
+    assertTrue(index.search(new float[] {0f, 1f}, 1, 0f).isEmpty());
+  }
+
+  @Test
+  void compactsAfterManyDeletesWithoutLosingLiveVectors() {
+    FlatVectorIndex index = new FlatVectorIndex(2);
+    UUID keep = UUID.randomUUID();
+    for (int i = 0; i < 200; i++) {
+      index.add("v" + i, UUID.randomUUID(), new float[] {1f, i});
+    }
+    index.add("keep", keep, new float[] {-1f, 0f});
+    for (int i = 0; i < 200; i++) {
+      index.remove("v" + i);
+    }
+
+    List<VectorMatch> matches = index.search(new float[] {-1f, 0f}, 5, 0.5f);
+    assertEquals(1, index.size());
+    assertEquals(1, matches.size());
+    assertEquals(keep, matches.get(0).documentId());
+  }
+}
@@ -0,0 +1,231 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HnswVectorIndexTest {
+
+  private static final int DIMENSIONS = 16;
+
+  @TempDir Path directory;
+
+  @Test
+  void approximatesExactSearchOnClusteredData() {
+    Random random = new Random(42);
+    float[][] vectors = clustered(random, 1000);
+    HnswVectorIndex hnsw = new HnswVectorIndex(DIMENSIONS, 8, 100, 64);
+    FlatVectorIndex exact = new FlatVectorIndex(DIMENSIONS);
+    for (int i = 0; i < vectors.length; i++) {
+      UUID id = UUID.randomUUID();
+      hnsw.add("v" + i, id, vectors[i]);
+      exact.add("v" + i, id, vectors[i]);
+    }
+
+    int hits = 0;
+    int total = 0;
+    for (int q = 0; q < 50; q++) {
+      float[] query = vectors[random.nextInt(vectors.length)];
+      Set<UUID> truth = ids(exact.search(query, 10, -1f));
+      for (VectorMatch match : hnsw.search(query, 10, -1f)) {
+        if (truth.contains(match.documentId())) {
+          hits++;
+        }
+      }
+      total += truth.size();
+    }
+
+    assertTrue(hits / (double) total >= 0.9, "recall@10 was " + hits / (double) total);
+  }
+
+  @Test
+  void softDeletedAndReplacedVectorsAreNotReturned() {
+    HnswVectorIndex index = new HnswVectorIndex(2, 4, 16, 16);
+    UUID kept = UUID.randomUUID();
+    UUID removed = UUID.randomUUID();
+    index.add("kept", kept, new float[] {1f, 0.1f});
+    index.add("removed", removed, new float[] {1f, 0f});
+    index.add("replaced", UUID.randomUUID(), new float[] {0f, 1f});
+    index.add("replaced", kept, new float[] {-1f, 0f});
+
+    assertTrue(index.remove("removed"));
+    assertFalse(index.remove("removed"));
+
+    List<VectorMatch> matches = index.search(new float[] {1f, 0f}, 5, -1f);
+    assertEquals(2, index.size());
+    assertEquals(2, matches.size());
+    assertFalse(ids(matches).contains(removed));
+    assertTrue(index.search(new float[] {0f, 1f}, 5, 0.5f).isEmpty());
+  }
+
+  @Test
+  void excludedDocumentIsSkipped() {
+    HnswVectorIndex index = new HnswVectorIndex(2, 4, 16, 16);
+    UUID source = UUID.randomUUID();
+    UUID other = UUID.randomUUID();
+    index.add("source", source, new float[] {1f, 0f});
+    index.add("other", other, new float[] {1f, 0.5f});
+
+    List<VectorMatch> matches = index.search(new float[] {1f, 0f}, 1, 0f, source);
+
+    assertEquals(1, matches.size());
+    assertEquals(other, matches.get(0).documentId());
+  }
+
+  @Test
+  void selectiveFilterReturnsTheTopMatchingDocuments() {
+    Random random = new Random(11);
+    float[][] vectors = clustered(random, 1000);
+    HnswVectorIndex hnsw = new HnswVectorIndex(DIMENSIONS, 8, 100, 64);
+    FlatVectorIndex exact = new FlatVectorIndex(DIMENSIONS);
+    for (int i = 0; i < vectors.length; i++) {
+      UUID id = UUID.randomUUID();
+      Map<String, String> metadata = Map.of("shard", i % 50 == 0 ? "rare" : "common");
+      hnsw.add("v" + i, id, vectors[i], metadata);
+      exact.add("v" + i, id, vectors[i], metadata);
+    }
+    VectorFilter rare = VectorFilter.of(Map.of("shard", "rare"));
+
+    int hits = 0;
+    int total = 0;
+    for (int q = 0; q < 20; q++) {
+      float[] query = vectors[random.nextInt(vectors.length)];
+      Set<UUID> truth = ids(exact.search(query, 10, -1f, null, rare));
+      List<VectorMatch> matches = hnsw.search(query, 10, -1f, null, rare);
+      assertEquals(10, matches.size());
+      for (VectorMatch match : matches) {
+        if (truth.contains(match.documentId())) {
+          hits++;
+        }
+      }
+      total += truth.size();
+    }
+
+    assertTrue(hits / (double) total >= 0.9, "filtered recall@10 was " + hits / (double) total);
+  }
+
+  @Test
+  void filterMatchingFewVectorsIsScoredExactly() {
+    Random random = new Random(5);
+    float[][] vectors = clustered(random, 2000);
+    HnswVectorIndex hnsw = new HnswVectorIndex(DIMENSIONS, 8, 100, 16);
+    FlatVectorIndex exact = new FlatVectorIndex(DIMENSIONS);
+    for (int i = 0; i < vectors.length; i++) {
+      UUID id = UUID.randomUUID();
+      Map<String, String> metadata = Map.of("shard", i % 200 == 0 ? "rare" : "common");
+      hnsw.add("v" + i, id, vectors[i], metadata);
+      exact.add("v" + i, id, vectors[i], metadata);
+    }
+    hnsw.remove("v0");
+    exact.remove("v0");
+    VectorFilter rare = VectorFilter.of(Map.of("shard", "rare"));
+
+    for (int q = 0; q < 10; q++) {
+      float[] query = vectors[random.nextInt(vectors.length)];
+      List<VectorMatch> expected = exact.search(query, 5, -1f, null, rare);
+      List<VectorMatch> matches = hnsw.search(query, 5, -1f, null, rare);
+      assertEquals(5, matches.size());
+      for (int i = 0; i < matches.size(); i++) {
+        assertEquals(expected.get(i).documentId(), matches.get(i).documentId());
+        assertEquals(expected.get(i).score(), matches.get(i).score(), 1e-5f);
+      }
+    }
+  }
+
+  @Test
+  void supportsConcurrentInserts() throws Exception {
+    HnswVectorIndex index = new HnswVectorIndex(DIMENSIONS, 8, 50, 32);
+    float[][] vectors = clustered(new Random(7), 800);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int offset = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = offset; i < vectors.length; i += 4) {
+                    index.add("v" + i, UUID.randomUUID(), vectors[i]);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(vectors.length, index.size());
+    List<VectorMatch> matches = index.search(vectors[0], 1, 0f);
+    assertEquals(1, matches.size());
+    assertEquals(1f, matches.get(0).score(), 1e-5f);
+  }
+
+  @Test
+  void restoredIndexSearchesExactlyUntilTheGraphIsRelinked() throws Exception {
+    HnswVectorIndex index = new HnswVectorIndex(new VectorArena(DIMENSIONS, 64), 8, 50, 32);
+    float[][] vectors = clustered(new Random(11), 500);
+    UUID[] ids = new UUID[vectors.length];
+    for (int i = 0; i < vectors.length; i++) {
+      ids[i] = UUID.randomUUID();
+      index.add("v" + i, ids[i], vectors[i]);
+    }
+    index.remove("v0");
+    Path path = directory.resolve("hnsw.snapshot");
+    index.writeSnapshot(path);
+    index.close();
+
+    HnswVectorIndex restored = HnswVectorIndex.restore(VectorSnapshot.open(path, 64), 8, 50, 32);
+    UUID added = UUID.randomUUID();
+    restored.add("added", added, vectors[0]);
+
+    assertEquals(vectors.length, restored.size());
+    assertEquals(ids[1], restored.search(vectors[1], 1, 0f).get(0).documentId());
+    assertTrue(restored.awaitRelinked(30, TimeUnit.SECONDS));
+    for (int i = 1; i < vectors.length; i += 50) {
+      assertEquals(ids[i], restored.search(vectors[i], 1, 0f).get(0).documentId());
+    }
+    assertEquals(added, restored.search(vectors[0], 1, 0f).get(0).documentId());
+    restored.close();
+  }
+
+  private static float[][] clustered(Random random, int count) {
+    float[][] centers = new float[10][DIMENSIONS];
+    for (float[] center : centers) {
+      for (int i = 0; i < DIMENSIONS; i++) {
+        center[i] = (float) random.nextGaussian();
+      }
+    }
+    float[][] vectors = new float[count][DIMENSIONS];
+    for (float[] vector : vectors) {
+      float[] center = centers[random.nextInt(centers.length)];
+      for (int i = 0; i < DIMENSIONS; i++) {
+        vector[i] = center[i] + (float) random.nextGaussian() * 0.3f;
+      }
+    }
+    return vectors;
+  }
+
+  private static Set<UUID> ids(List<VectorMatch> matches) {
+    Set<UUID> ids = new HashSet<>();
+    for (VectorMatch match : matches) {
+      ids.add(match.documentId());
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,47 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class QuantizedVectorIndexTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void rescoredResultsKeepRecallWithEitherCalibration() {
+    for (ScalarQuantizer.Calibration calibration : ScalarQuantizer.Calibration.values()) {
+      QuantizedVectorIndex index =
+          new QuantizedVectorIndex(
+              32, 256, directory.resolve(calibration.name()), calibration, 500, 4);
+      Random random = new Random(11);
+      for (int i = 0; i < 2000; i++) {
+        index.add("v" + i, UUID.randomUUID(), randomVector(random, 32));
+      }
+
+      double recall = 0;
+      for (int q = 0; q < 20; q++) {
+        float[] query = randomVector(random, 32);
+        recall += index.recall(query, 10);
+        VectorMatch exactBest = index.searchExact(query, 1, -1f).get(0);
+        VectorMatch best = index.search(query, 1, -1f).get(0);
+        assertEquals(exactBest.score(), best.score(), 1e-6f);
+      }
+      assertTrue(recall / 20 >= 0.9, calibration + " recall was " + recall / 20);
+      index.close();
+    }
+  }
+
+  private static float[] randomVector(Random random, int dimensions) {
+    float[] vector = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+}
@@ -0,0 +1,228 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RescoringVectorIndexTest {
+
+  /**
+   * Codes holding the vector itself, so the first stage ranks exactly. Calibrating counts the
+   * calls and runs a hook once, which lets a test write while a compaction is copying.
+   */
+  private record CopyCoder(
+      int dimensions, AtomicInteger calibrations, AtomicReference<Runnable> duringCalibration)
+      implements RescoringVectorIndex.Coder<float[]> {
+
+    @Override
+    public int codeLength() {
+      return dimensions;
+    }
+
+    @Override
+    public float[] newPage(int length) {
+      return new float[length];
+    }
+
+    @Override
+    public void encode(float[] unit, float[] page, int start) {
+      System.arraycopy(unit, 0, page, start, dimensions);
+    }
+
+    @Override
+    public RescoringVectorIndex.Scorer<float[]> prepare(float[] unitQuery) {
+      return (page, start) -> {
+        float dot = 0f;
+        for (int i = 0; i < dimensions; i++) {
+          dot += unitQuery[i] * page[start + i];
+        }
+        return dot;
+      };
+    }
+
+    @Override
+    public RescoringVectorIndex.Coder<float[]> calibrate(VectorArena arena) {
+      calibrations.incrementAndGet();
+      Runnable hook = duringCalibration.getAndSet(null);
+      if (hook != null) {
+        hook.run();
+      }
+      return this;
+    }
+  }
+
+  private static final class CopyIndex extends RescoringVectorIndex<float[]> {
+
+    final AtomicInteger calibrations;
+    final AtomicReference<Runnable> duringCalibration;
+
+    CopyIndex(int dimensions, int vectorsPerPage, Path directory, int calibrationSize) {
+      this(
+          new CopyCoder(dimensions, new AtomicInteger(), new AtomicReference<>()),
+          vectorsPerPage,
+          directory,
+          calibrationSize,
+          new DocumentIdRegistry());
+    }
+
+    private CopyIndex(
+        CopyCoder coder,
+        int vectorsPerPage,
+        Path directory,
+        int calibrationSize,
+        DocumentIdRegistry registry) {
+      super(
+          coder.dimensions(),
+          vectorsPerPage,
+          directory,
+          "vector-copy",
+          coder,
+          calibrationSize,
+          1,
+          registry);
+      this.calibrations = coder.calibrations();
+      this.duringCalibration = coder.duringCalibration();
+    }
+
+    static CopyIndex restore(VectorSnapshot snapshot, Path directory, int calibrationSize) {
+      VectorArena source = snapshot.arena();
+      CopyIndex index =
+          new CopyIndex(
+              new CopyCoder(source.dimensions(), new AtomicInteger(), new AtomicReference<>()),
+              source.vectorsPerPage(),
+              directory,
+              calibrationSize,
+              snapshot.registry());
+      index.load(source);
+      return index;
+    }
+  }
+
+  @TempDir Path directory;
+
+  @Test
+  void replacesRemovesAndCompactsIntoANewFile() throws IOException {
+    Path files = directory.resolve("vectors");
+    CopyIndex index = new CopyIndex(4, 16, files, 50);
+    Random random = new Random(3);
+    UUID target = UUID.randomUUID();
+    for (int i = 0; i < 200; i++) {
+      index.add("v" + i, UUID.randomUUID(), randomVector(random, 4));
+    }
+    index.add("v0", target, new float[] {1f, 0f, 0f, 0f});
+    assertEquals(1, index.calibrations.get());
+    for (int i = 100; i < 200; i++) {
+      assertTrue(index.remove("v" + i));
+    }
+    while (index.maybeCompact()) {
+      // Finish any compaction the removes left pending.
+    }
+
+    assertEquals(100, index.size());
+    assertTrue(index.calibrations.get() > 1, "compaction recalibrates");
+    assertEquals(target, index.search(new float[] {1f, 0f, 0f, 0f}, 1, 0f).get(0).documentId());
+    try (Stream<Path> listing = Files.list(files)) {
+      assertEquals(1, listing.count());
+    }
+    index.close();
+    try (Stream<Path> listing = Files.list(files)) {
+      assertEquals(0, listing.count());
+    }
+  }
+
+  @Test
+  void compactionKeepsWritesMadeWhileItCopies() {
+    CopyIndex index = new CopyIndex(2, 16, directory.resolve("vectors"), 1);
+    Map<String, UUID> documents = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      documents.put("v" + i, UUID.randomUUID());
+      index.add("v" + i, documents.get("v" + i), new float[] {1f, i});
+    }
+    UUID late = UUID.randomUUID();
+    UUID replaced = UUID.randomUUID();
+    index.duringCalibration.set(
+        () -> {
+          // Runs on the compacting thread between the copy and the swap.
+          assertEquals(36, index.search(new float[] {1f, 50f}, 100, -1f).size());
+          index.remove("v70");
+          index.add("v80", replaced, new float[] {0f, -1f});
+          index.add("late", late, new float[] {-1f, 0f});
+        });
+    for (int i = 0; i < 64; i++) {
+      assertTrue(index.remove("v" + i));
+    }
+    while (index.maybeCompact()) {
+      // Wait for the background compaction, or run it here.
+    }
+
+    assertNull(index.duringCalibration.get(), "compaction did not run");
+    assertEquals(36, index.size());
+    assertFalse(index.remove("v70"));
+    assertEquals(late, index.search(new float[] {-1f, 0f}, 1, 0f).get(0).documentId());
+    assertEquals(replaced, index.search(new float[] {0f, -1f}, 1, 0f).get(0).documentId());
+    assertEquals(
+        documents.get("v99"), index.search(new float[] {1f, 99f}, 1, 0f).get(0).documentId());
+    index.close();
+  }
+
+  @Test
+  void appliesFilterAndExclusionBeforeTheShortlist() {
+    CopyIndex index = new CopyIndex(2, 16, null, 1);
+    UUID source = UUID.randomUUID();
+    UUID news = UUID.randomUUID();
+    index.add("v-source", source, new float[] {1f, 0f}, Map.of("category", "news"));
+    index.add("v-blog", UUID.randomUUID(), new float[] {1f, 0.1f}, Map.of("category", "blog"));
+    index.add("v-news", news, new float[] {0f, 1f}, Map.of("category", "News"));
+
+    List<VectorMatch> matches =
+        index.search(
+            new float[] {1f, 0f}, 1, -1f, source, VectorFilter.of(Map.of("category", "news")));
+
+    assertEquals(List.of(news), matches.stream().map(VectorMatch::documentId).toList());
+    index.close();
+  }
+
+  @Test
+  void restoresFromSnapshot() throws IOException {
+    CopyIndex index = new CopyIndex(2, 4, directory.resolve("a"), 5);
+    UUID target = UUID.randomUUID();
+    index.add("target", target, new float[] {1f, 0f});
+    for (int i = 0; i < 9; i++) {
+      index.add("v" + i, UUID.randomUUID(), new float[] {(float) Math.sin(i), 1f});
+    }
+    index.remove("v0");
+    Path path = directory.resolve("copy.snapshot");
+    index.writeSnapshot(path);
+    index.close();
+
+    CopyIndex restored = CopyIndex.restore(VectorSnapshot.open(path, 4), directory.resolve("b"), 5);
+
+    assertEquals(9, restored.size());
+    assertEquals(1, restored.calibrations.get());
+    assertEquals(target, restored.search(new float[] {1f, 0f}, 1, 0f).get(0).documentId());
+    assertFalse(restored.remove("v0"));
+    assertTrue(restored.remove("v1"));
+    restored.close();
+  }
+
+  private static float[] randomVector(Random random, int dimensions) {
+    float[] vector = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+}
@@ -0,0 +1,119 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentedVectorIndexTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void mergesTopKAcrossBufferAndSegments() {
+    SegmentedVectorIndex index = new SegmentedVectorIndex(2, 4, 4, 100);
+    FlatVectorIndex reference = new FlatVectorIndex(2);
+    Random random = new Random(7);
+    for (int i = 0; i < 30; i++) {
+      float[] vector = {random.nextFloat() - 0.5f, random.nextFloat() - 0.5f};
+      UUID documentId = UUID.randomUUID();
+      index.add("v" + i, documentId, vector);
+      reference.add("v" + i, documentId, vector);
+    }
+
+    assertEquals(7, index.segmentCount());
+    assertEquals(30, index.size());
+    float[] query = {1f, 0.3f};
+    assertEquals(ids(reference.search(query, 5, -1f)), ids(index.search(query, 5, -1f)));
+  }
+
+  @Test
+  void replacesAndRemovesVectorsInSealedSegments() {
+    SegmentedVectorIndex index = new SegmentedVectorIndex(2, 4, 2, 100);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    index.add("a", first, new float[] {1f, 0f});
+    index.add("b", second, new float[] {0f, 1f});
+    index.add("a", first, new float[] {-1f, 0f});
+
+    assertEquals(2, index.size());
+    assertEquals(first, index.search(new float[] {-1f, 0f}, 1, 0f).get(0).documentId());
+    assertTrue(index.search(new float[] {1f, 0f}, 2, 0.5f).isEmpty());
+
+    assertTrue(index.remove("b"));
+    assertFalse(index.remove("b"));
+    assertEquals(1, index.size());
+    assertEquals(List.of(first), ids(index.search(new float[] {0f, 1f}, 5, -1f)));
+  }
+
+  @Test
+  void mergesSimilarSegmentsAndPurgesDeletes() {
+    SegmentedVectorIndex index = new SegmentedVectorIndex(2, 4, 4, 2);
+    for (int i = 0; i < 16; i++) {
+      index.add("v" + i, UUID.randomUUID(), new float[] {1f, i});
+    }
+    while (index.maybeMerge()) {
+      // Run merges inline rather than waiting for the background thread.
+    }
+    assertEquals(1, index.segmentCount());
+
+    for (int i = 0; i < 16; i++) {
+      assertTrue(index.remove("v" + i));
+    }
+    while (index.maybeMerge()) {
+      // Fully deleted segments are dropped.
+    }
+
+    assertEquals(0, index.segmentCount());
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void appliesFilterAndExclusionInEverySegment() {
+    SegmentedVectorIndex index = new SegmentedVectorIndex(2, 4, 2, 100);
+    UUID source = UUID.randomUUID();
+    UUID news = UUID.randomUUID();
+    index.add("v-source", source, new float[] {1f, 0f}, Map.of("category", "news"));
+    index.add("v-blog", UUID.randomUUID(), new float[] {1f, 0.1f}, Map.of("category", "blog"));
+    index.add("v-news", news, new float[] {0f, 1f}, Map.of("category", "News"));
+
+    List<VectorMatch> matches =
+        index.search(
+            new float[] {1f, 0f}, 1, -1f, source, VectorFilter.of(Map.of("category", "news")));
+
+    assertEquals(List.of(news), ids(matches));
+  }
+
+  @Test
+  void restoresFromSnapshot() throws IOException {
+    SegmentedVectorIndex index = new SegmentedVectorIndex(2, 4, 3, 100);
+    UUID target = UUID.randomUUID();
+    index.add("target", target, new float[] {1f, 0f});
+    for (int i = 0; i < 7; i++) {
+      index.add("v" + i, UUID.randomUUID(), new float[] {0f, 1f + i});
+    }
+    index.remove("v0");
+    Path path = directory.resolve("segmented.snapshot");
+    index.writeSnapshot(path);
+
+    SegmentedVectorIndex restored =
+        SegmentedVectorIndex.restore(VectorSnapshot.open(path, 4), 3, 100);
+
+    assertEquals(7, restored.size());
+    assertEquals(target, restored.search(new float[] {1f, 0f}, 1, 0f).get(0).documentId());
+    assertFalse(restored.remove("v0"));
+    assertTrue(restored.remove("v1"));
+    assertEquals(6, restored.size());
+  }
+
+  private static List<UUID> ids(List<VectorMatch> matches) {
+    return matches.stream().map(VectorMatch::documentId).toList();
+  }
+}
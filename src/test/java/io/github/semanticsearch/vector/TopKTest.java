@@ -0,0 +1,79 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+  @Test
+  void keepsHighestScoresInDescendingOrder() {
+    TopK top = new TopK(3);
+    float[] scores = {0.2f, 0.9f, 0.1f, 0.5f, 0.7f, 0.3f};
+    for (int i = 0; i < scores.length; i++) {
+      top.offer(i, scores[i]);
+    }
+
+    assertTrue(top.isFull());
+    assertFalse(top.accepts(0.4f));
+
+    List<Integer> ordinals = new ArrayList<>();
+    List<Float> drained = new ArrayList<>();
+    top.drainDescending(
+        (ordinal, score) -> {
+          ordinals.add(ordinal);
+          drained.add(score);
+        });
+
+    assertEquals(List.of(1, 4, 3), ordinals);
+    assertEquals(List.of(0.9f, 0.7f, 0.5f), drained);
+    assertTrue(top.isEmpty());
+  }
+
+  @Test
+  void matchesFullSortOnRandomInput() {
+    Random random = new Random(11);
+    float[] scores = new float[5000];
+    TopK top = new TopK(25);
+    for (int i = 0; i < scores.length; i++) {
+      scores[i] = random.nextFloat();
+      top.offer(i, scores[i]);
+    }
+
+    float[] sorted = scores.clone();
+    Arrays.sort(sorted);
+    List<Float> drained = new ArrayList<>();
+    top.drainDescending((ordinal, score) -> drained.add(score));
+
+    assertEquals(25, drained.size());
+    for (int i = 0; i < drained.size(); i++) {
+      assertEquals(sorted[sorted.length - 1 - i], (float) drained.get(i));
+    }
+  }
+
+  @Test
+  void unboundedHeapPollsInAscendingOrder() {
+    TopK queue = TopK.unbounded();
+    for (int i = 0; i < 200; i++) {
+      queue.offer(i, (i * 37) % 200);
+    }
+
+    float previous = Float.NEGATIVE_INFINITY;
+    while (!queue.isEmpty()) {
+      float score = queue.peekScore();
+      assertTrue(score >= previous);
+      previous = score;
+      queue.poll();
+    }
+  }
+
+  @Test
+  void rejectsNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new TopK(0));
+  }
+}
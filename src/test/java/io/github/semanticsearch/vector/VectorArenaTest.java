@@ -0,0 +1,53 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class VectorArenaTest {
+
+  @Test
+  void appendsNormalizedVectorsAcrossPages() {
+    VectorArena arena = new VectorArena(2, 2);
+    int first = arena.append(new float[] {3f, 4f});
+    int second = arena.append(new float[] {0f, 2f});
+    int third = arena.append(new float[] {5f, 0f});
+
+    assertEquals(0, first);
+    assertEquals(2, third);
+    assertEquals(3, arena.size());
+    assertEquals(2 * 2 * 2 * Float.BYTES, arena.offHeapBytes());
+
+    float[] stored = new float[2];
+    arena.copy(first, stored);
+    assertArrayEquals(new float[] {0.6f, 0.8f}, stored, 1e-6f);
+    assertEquals(1f, arena.dot(second, new float[] {0f, 1f}), 1e-6f);
+    assertEquals(1f, arena.dot(third, new float[] {1f, 0f}), 1e-6f);
+  }
+
+  @Test
+  void tombstonesAndCompactsLiveVectors() {
+    VectorArena arena = new VectorArena(2, 2);
+    arena.append(new float[] {1f, 0f});
+    arena.append(new float[] {0f, 1f});
+    arena.append(new float[] {1f, 1f});
+
+    assertTrue(arena.delete(1));
+    assertFalse(arena.delete(1));
+    assertTrue(arena.isDeleted(1));
+    assertEquals(2, arena.liveCount());
+
+    int[] remap = arena.compact();
+
+    assertArrayEquals(new int[] {0, -1, 1}, remap);
+    assertEquals(2, arena.size());
+    assertEquals(0, arena.deletedCount());
+    assertEquals(1f, arena.dot(1, new float[] {0.70710677f, 0.70710677f}), 1e-6f);
+  }
+
+  @Test
+  void rejectsMismatchedDimensions() {
+    VectorArena arena = new VectorArena(3);
+    assertThrows(IllegalArgumentException.class, () -> arena.append(new float[] {1f, 2f}));
+  }
+}
@@ -0,0 +1,92 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VectorSnapshotTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void restoresVectorsIdsTombstonesAndTags() throws IOException {
+    FlatVectorIndex index = new FlatVectorIndex(new VectorArena(2, 4));
+    UUID[] ids = new UUID[10];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      double angle = i * 0.1;
+      index.add(
+          "v" + i,
+          ids[i],
+          new float[] {(float) Math.cos(angle), (float) Math.sin(angle)},
+          Map.of("parity", i % 2 == 0 ? "even" : "odd"));
+    }
+    index.remove("v0");
+    index.add("v1", ids[1], new float[] {0f, 1f}, Map.of("parity", "odd"));
+    Path path = directory.resolve("index.snapshot");
+    index.writeSnapshot(path);
+
+    FlatVectorIndex restored = new FlatVectorIndex(VectorSnapshot.open(path, 4));
+
+    assertEquals(index.size(), restored.size());
+    assertEquals(
+        ids(index.search(new float[] {1f, 0f}, 5, -1f)),
+        ids(restored.search(new float[] {1f, 0f}, 5, -1f)));
+    assertEquals(
+        List.of(ids[2]),
+        ids(
+            restored.search(
+                new float[] {1f, 0f}, 1, -1f, null, VectorFilter.of(Map.of("parity", "even")))));
+    assertTrue(restored.remove("v1"));
+    assertFalse(restored.remove("v0"));
+
+    UUID added = UUID.randomUUID();
+    restored.add("new", added, new float[] {-1f, 0f});
+    assertEquals(added, restored.search(new float[] {-1f, 0f}, 1, 0f).get(0).documentId());
+  }
+
+  @Test
+  void hnswRelinksRestoredVectors() throws IOException {
+    HnswVectorIndex index = new HnswVectorIndex(new VectorArena(2, 8), 4, 16, 16);
+    UUID target = UUID.randomUUID();
+    index.add("target", target, new float[] {1f, 0f});
+    for (int i = 0; i < 20; i++) {
+      index.add("v" + i, UUID.randomUUID(), new float[] {(float) Math.sin(i), 1f});
+    }
+    Path path = directory.resolve("hnsw.snapshot");
+    index.writeSnapshot(path);
+
+    HnswVectorIndex restored = HnswVectorIndex.restore(VectorSnapshot.open(path, 8), 4, 16, 16);
+
+    assertEquals(21, restored.size());
+    assertEquals(target, restored.search(new float[] {1f, 0f}, 1, 0f).get(0).documentId());
+  }
+
+  @Test
+  void rejectsCorruptSnapshots() throws IOException {
+    FlatVectorIndex index = new FlatVectorIndex(2);
+    index.add("v", UUID.randomUUID(), new float[] {1f, 0f});
+    Path path = directory.resolve("corrupt.snapshot");
+    index.writeSnapshot(path);
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(path) - 1);
+    }
+
+    assertThrows(IOException.class, () -> VectorSnapshot.open(path, 4));
+  }
+
+  private static List<UUID> ids(List<VectorMatch> matches) {
+    return matches.stream().map(VectorMatch::documentId).toList();
+  }
+}
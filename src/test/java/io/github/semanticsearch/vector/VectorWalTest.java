@@ -0,0 +1,142 @@
+package io.github.semanticsearch.vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VectorWalTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void replaysLoggedOperationsAfterReopen() throws IOException {
+    UUID documentId = UUID.randomUUID();
+    try (VectorWal wal = VectorWal.open(directory, operation -> fail("unexpected replay"))) {
+      wal.sync(
+          wal.append(
+              new VectorWal.Add("v1", documentId, new float[] {1f, 2f}, Map.of("tag", "a"))));
+      wal.sync(wal.append(new VectorWal.Remove("v1")));
+    }
+
+    List<VectorWal.Operation> replayed = new ArrayList<>();
+    VectorWal.open(directory, replayed::add).close();
+
+    assertEquals(2, replayed.size());
+    VectorWal.Add add = (VectorWal.Add) replayed.get(0);
+    assertEquals("v1", add.vectorId());
+    assertEquals(documentId, add.documentId());
+    assertArrayEquals(new float[] {1f, 2f}, add.vector());
+    assertEquals(Map.of("tag", "a"), add.metadata());
+    assertEquals(new VectorWal.Remove("v1"), replayed.get(1));
+  }
+
+  @Test
+  void truncatesTornTail() throws IOException {
+    try (VectorWal wal = VectorWal.open(directory, operation -> {})) {
+      wal.append(new VectorWal.Remove("kept"));
+      wal.sync(wal.append(new VectorWal.Remove("torn")));
+    }
+    Path segment = onlySegment();
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(segment) - 2);
+    }
+
+    List<VectorWal.Operation> replayed = new ArrayList<>();
+    VectorWal.open(directory, replayed::add).close();
+    List<VectorWal.Operation> again = new ArrayList<>();
+    VectorWal.open(directory, again::add).close();
+
+    assertEquals(List.of(new VectorWal.Remove("kept")), replayed);
+    assertEquals(replayed, again);
+  }
+
+  @Test
+  void corruptOlderSegmentFailsWithoutBeingCut() throws IOException {
+    try (VectorWal wal = VectorWal.open(directory, operation -> {})) {
+      wal.append(new VectorWal.Remove("first"));
+      wal.append(new VectorWal.Remove("second"));
+      wal.rotate();
+      wal.sync(wal.append(new VectorWal.Remove("newer")));
+    }
+    Path older;
+    try (Stream<Path> files = Files.list(directory)) {
+      older = files.sorted().findFirst().orElseThrow();
+    }
+    byte[] bytes = Files.readAllBytes(older);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(older, bytes);
+
+    assertThrows(IOException.class, () -> VectorWal.open(directory, operation -> {}));
+    assertArrayEquals(bytes, Files.readAllBytes(older));
+  }
+
+  @Test
+  void groupCommitsConcurrentAppends() throws Exception {
+    int threads = 8;
+    int perThread = 50;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (VectorWal wal = VectorWal.open(directory, operation -> {})) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < perThread; i++) {
+                    wal.sync(wal.append(new VectorWal.Remove(thread + "-" + i)));
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    List<VectorWal.Operation> replayed = new ArrayList<>();
+    VectorWal.open(directory, replayed::add).close();
+
+    assertEquals(threads * perThread, replayed.size());
+  }
+
+  @Test
+  void dropsSegmentsCoveredByCheckpoint() throws IOException {
+    try (VectorWal wal = VectorWal.open(directory, operation -> {})) {
+      wal.append(new VectorWal.Remove("old"));
+      long firstKept = wal.rotate();
+      assertEquals(0, wal.bytesSinceRotation());
+      wal.sync(wal.append(new VectorWal.Remove("new")));
+      wal.deleteSegmentsBefore(firstKept);
+    }
+
+    List<VectorWal.Operation> replayed = new ArrayList<>();
+    VectorWal.open(directory, replayed::add).close();
+
+    assertEquals(List.of(new VectorWal.Remove("new")), replayed);
+  }
+
+  private Path onlySegment() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> segments = files.filter(path -> path.toFile().length() > 0).toList();
+      assertEquals(1, segments.size());
+      return segments.get(0);
+    }
+  }
+}